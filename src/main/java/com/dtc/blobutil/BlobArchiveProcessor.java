@@ -1,18 +1,26 @@
 package com.dtc.blobutil;
 
 import com.dtc.blobutil.config.AppConfig;
+import com.dtc.blobutil.config.ArchiveConfig;
 import com.dtc.blobutil.config.BlobStorageConfig;
 import com.dtc.blobutil.config.ConfigLoader;
 import com.dtc.blobutil.config.DatabaseConfig;
+import com.dtc.blobutil.dao.AppendStateDao;
 import com.dtc.blobutil.dao.BlobChangeDao;
+import com.dtc.blobutil.dao.FileSummaryDao;
+import com.dtc.blobutil.dao.QuarantineDao;
+import com.dtc.blobutil.model.FailureCategory;
 import com.dtc.blobutil.processor.ArchiveFileProcessor;
-import com.dtc.blobutil.processor.ArchiveFileProcessor.FileProcessingException;
-import com.dtc.blobutil.processor.ArchiveFileProcessor.RecordCounts;
+import com.dtc.blobutil.processor.ArchivePipeline;
+import com.dtc.blobutil.processor.ArchivePipeline.BatchResult;
+import com.dtc.blobutil.processor.CrossFileDuplicateIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -25,20 +33,28 @@ public class BlobArchiveProcessor {
     public static void main(String[] args) {
         // Parse command line arguments
         String configFilePath = null;
-        if (args.length > 0) {
-            if (args[0].equals("-h") || args[0].equals("--help")) {
+        boolean replayQuarantine = false;
+        FailureCategory replayCategory = null; // null = all categories
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-h") || args[i].equals("--help")) {
                 printUsage();
                 System.exit(0);
-            } else if (args[0].equals("-c") || args[0].equals("--config")) {
-                if (args.length < 2) {
+            } else if (args[i].equals("-c") || args[i].equals("--config")) {
+                if (i + 1 >= args.length) {
                     System.err.println("Error: Config file path required after -c/--config");
                     printUsage();
                     System.exit(1);
                 }
-                configFilePath = args[1];
+                configFilePath = args[++i];
+            } else if (args[i].equals("--replay-quarantine")) {
+                replayQuarantine = true;
+                // Optional category argument
+                if (i + 1 < args.length && !args[i + 1].startsWith("-") && isFailureCategory(args[i + 1])) {
+                    replayCategory = FailureCategory.valueOf(args[++i].toUpperCase());
+                }
             } else {
-                // Assume first argument is config file path for backward compatibility
-                configFilePath = args[0];
+                // Assume positional argument is config file path for backward compatibility
+                configFilePath = args[i];
             }
         }
 
@@ -77,6 +93,20 @@ public class BlobArchiveProcessor {
             // Initialize table (ensures columns exist)
             dao.initializeTable();
 
+            QuarantineDao quarantineDao = new QuarantineDao(
+                dataSource,
+                dbConfig.getSchema(),
+                dbConfig.getTableName() + "_quarantine"
+            );
+            quarantineDao.initializeTable();
+
+            FileSummaryDao summaryDao = new FileSummaryDao(
+                dataSource,
+                dbConfig.getSchema(),
+                dbConfig.getTableName() + "_summary"
+            );
+            summaryDao.initializeTable();
+
             // Initialize archive file processor
             BlobStorageConfig blobConfig = config.getBlobStorageConfig();
             if (blobConfig.getArchiveContainerName() == null || blobConfig.getArchiveContainerName().isEmpty()) {
@@ -84,7 +114,56 @@ public class BlobArchiveProcessor {
             }
             
             logger.info("Archive container: {}", blobConfig.getArchiveContainerName());
-            ArchiveFileProcessor archiveProcessor = new ArchiveFileProcessor(blobConfig);
+            ArchiveConfig archiveConfig = config.getArchiveConfig();
+            ArchiveFileProcessor archiveProcessor = new ArchiveFileProcessor(blobConfig, archiveConfig);
+
+            // Offsets and key hashes of NDJSON append blobs, so updates only count the appended bytes
+            AppendStateDao appendStateDao = null;
+            if (archiveConfig.isIncrementalAppendBlobs()) {
+                appendStateDao = new AppendStateDao(
+                    dataSource,
+                    dbConfig.getSchema(),
+                    dbConfig.getTableName() + "_append_state"
+                );
+                appendStateDao.initializeTable();
+            }
+
+            // Per-day Bloom filters of record keys (closed with the pipeline)
+            CrossFileDuplicateIndex duplicateIndex = null;
+            if (archiveConfig.isCrossFileDuplicates()) {
+                duplicateIndex = new CrossFileDuplicateIndex(
+                    archiveConfig.getDuplicateIndexDirectory(),
+                    archiveConfig.getDuplicateIndexFalsePositiveRate(),
+                    archiveConfig.getDuplicateIndexRetentionDays()
+                );
+            }
+
+            // Download (I/O) and parse (CPU) stages
+            ArchivePipeline pipeline = new ArchivePipeline(
+                archiveProcessor,
+                dao,
+                quarantineDao,
+                summaryDao,
+                appendStateDao,
+                duplicateIndex,
+                archiveConfig.getEffectiveConcurrency(),
+                archiveConfig.getEffectiveParseThreads(),
+                archiveConfig.getEffectivePrefetchQueueSize(),
+                MAX_RETRIES,
+                archiveConfig.isSkipUnchangedContent(),
+                archiveConfig.getQuarantineReprocessDelayMinutes()
+            );
+
+            if (replayQuarantine) {
+                // One-shot bulk replay of quarantined files, regardless of category limits
+                List<String> blobNames = quarantineDao.getQuarantinedBlobNames(replayCategory);
+                logger.info("Replaying {} quarantined files (category: {})", blobNames.size(),
+                    replayCategory != null ? replayCategory : "ALL");
+                BatchResult result = pipeline.processBatch(blobNames);
+                logger.info("Replay complete. Processed: {}, Failed: {}", result.getProcessed(), result.getFailed());
+                pipeline.close();
+                return;
+            }
 
             // Get polling interval and processing delay
             long pollingInterval = blobConfig.getPollingIntervalSeconds();
@@ -96,13 +175,14 @@ public class BlobArchiveProcessor {
             // Add shutdown hook for graceful shutdown
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 logger.info("Shutdown signal received. Stopping gracefully...");
+                pipeline.close();
             }));
 
             // Continuous processing loop
             boolean running = true;
             while (running) {
                 try {
-                    processArchiveFiles(dao, archiveProcessor, minutesOld);
+                    processArchiveFiles(dao, quarantineDao, pipeline, minutesOld, archiveConfig.getQuarantineMaxAttempts());
                     
                     // Wait before next poll
                     logger.debug("Waiting {} seconds before next poll...", pollingInterval);
@@ -121,6 +201,7 @@ public class BlobArchiveProcessor {
                 }
             }
 
+            pipeline.close();
             logger.info("Archive processor stopped");
 
         } catch (Exception e) {
@@ -130,15 +211,32 @@ public class BlobArchiveProcessor {
     }
 
     /**
-     * Process archive files older than specified minutes
+     * Process archive files older than specified minutes.
+     * Files flow through the download and parse stages of the pipeline; each file is isolated
+     * so a failure in one file does not affect the others. Quarantined files with a transient
+     * failure whose reprocessing delay has elapsed are added to the batch.
      * @param dao The data access object
-     * @param archiveProcessor The archive file processor
+     * @param quarantineDao The quarantine data access object
+     * @param pipeline The archive processing pipeline
      * @param minutesOld Minimum age in minutes before processing
+     * @param quarantineMaxAttempts Failures after which quarantined files are no longer reprocessed automatically
      */
-    private static void processArchiveFiles(BlobChangeDao dao, ArchiveFileProcessor archiveProcessor, int minutesOld) {
+    private static void processArchiveFiles(BlobChangeDao dao, QuarantineDao quarantineDao, ArchivePipeline pipeline,
+                                            int minutesOld, int quarantineMaxAttempts) throws InterruptedException {
         try {
-            // Get blob names older than specified minutes that haven't been processed yet
-            List<String> blobNames = dao.getBlobNamesOlderThan(minutesOld);
+            // Get blob names older than specified minutes that haven't been processed yet,
+            // with the retries already made for them in earlier cycles
+            Map<String, Integer> candidates = dao.getBlobRetryCountsOlderThan(minutesOld);
+
+            List<String> reprocess = quarantineDao.getBlobNamesDueForReprocessing(quarantineMaxAttempts);
+            if (!reprocess.isEmpty()) {
+                logger.info("Reprocessing {} quarantined files", reprocess.size());
+                // A quarantined file gets a fresh set of retries; the quarantine counts its failures
+                for (String blobName : reprocess) {
+                    candidates.putIfAbsent(blobName, 0);
+                }
+            }
+            List<String> blobNames = new ArrayList<>(candidates.keySet());
 
             if (blobNames.isEmpty()) {
                 logger.debug("No files found that are older than {} minutes and need processing", minutesOld);
@@ -147,59 +245,11 @@ public class BlobArchiveProcessor {
 
             logger.info("Found {} files to process", blobNames.size());
 
-            int processed = 0;
-            int failed = 0;
+            BatchResult result = pipeline.processBatch(blobNames, candidates);
 
-            for (String blobName : blobNames) {
-                try {
-                    logger.debug("Processing file: {}", blobName);
-                    
-                    // Mark as processing
-                    try {
-                        dao.updateProcessingStatus(blobName, "PROCESSING");
-                    } catch (Exception e) {
-                        logger.warn("Failed to update status to PROCESSING for blob: {}", blobName, e);
-                    }
-                    
-                    // Parse file from archive container with retry logic
-                    RecordCounts counts = archiveProcessor.parseFileWithRetry(blobName, MAX_RETRIES);
-                    
-                    // Update database with record counts and mark as completed
-                    dao.updateRecordCountsAndStatus(
-                        blobName, 
-                        counts.getTotalRecords(), 
-                        counts.getDistinctRecords(), 
-                        "COMPLETED"
-                    );
-                    
-                    processed++;
-                    if (processed % 10 == 0) {
-                        logger.info("Processed {} files", processed);
-                    }
-                } catch (FileProcessingException e) {
-                    failed++;
-                    logger.error("Error processing file after {} retries: {}", MAX_RETRIES, blobName, e);
-                    
-                    // Mark as failed
-                    try {
-                        dao.updateProcessingStatus(blobName, "FAILED");
-                    } catch (Exception statusException) {
-                        logger.error("Failed to update status to FAILED for blob: {}", blobName, statusException);
-                    }
-                } catch (Exception e) {
-                    failed++;
-                    logger.error("Unexpected error processing file: {}", blobName, e);
-                    
-                    // Mark as failed
-                    try {
-                        dao.updateProcessingStatus(blobName, "FAILED");
-                    } catch (Exception statusException) {
-                        logger.error("Failed to update status to FAILED for blob: {}", blobName, statusException);
-                    }
-                }
-            }
-
-            logger.info("Processing complete. Processed: {}, Failed: {}", processed, failed);
+            logger.info("Processing complete. Processed: {}, Failed: {}", result.getProcessed(), result.getFailed());
+        } catch (InterruptedException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error processing archive files", e);
             throw new RuntimeException("Failed to process archive files", e);
@@ -238,6 +288,15 @@ public class BlobArchiveProcessor {
         }
     }
 
+    private static boolean isFailureCategory(String value) {
+        for (FailureCategory category : FailureCategory.values()) {
+            if (category.name().equalsIgnoreCase(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private static void printUsage() {
         System.out.println("Blob Archive Processor");
         System.out.println();
@@ -247,11 +306,14 @@ public class BlobArchiveProcessor {
         System.out.println("Options:");
         System.out.println("  -c, --config <file>    Path to configuration file");
         System.out.println("  -h, --help             Show this help message");
+        System.out.println("  --replay-quarantine [PARSE|IO|MISSING]");
+        System.out.println("                         Reprocess all quarantined files (optionally one category) and exit");
         System.out.println();
         System.out.println("Examples:");
         System.out.println("  java -cp blob-util-1.0.0.jar com.dtc.blobutil.BlobArchiveProcessor");
         System.out.println("  java -cp blob-util-1.0.0.jar com.dtc.blobutil.BlobArchiveProcessor my-config.conf");
         System.out.println("  java -cp blob-util-1.0.0.jar com.dtc.blobutil.BlobArchiveProcessor -c /path/to/config.conf");
+        System.out.println("  java -cp blob-util-1.0.0.jar com.dtc.blobutil.BlobArchiveProcessor -c my-config.conf --replay-quarantine PARSE");
         System.out.println();
         System.out.println("This utility processes files from the archive container that are older than 10 minutes,");
         System.out.println("parses the JSON structure, counts total and distinct records, and updates the database.");
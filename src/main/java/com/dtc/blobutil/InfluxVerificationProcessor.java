@@ -8,12 +8,28 @@ import com.dtc.blobutil.config.InfluxConfig;
 import com.dtc.blobutil.dao.BlobChangeDao;
 import com.dtc.blobutil.influx.InfluxClient;
 import com.dtc.blobutil.influx.InfluxClientFactory;
+import com.dtc.blobutil.processor.AdaptiveConcurrencyLimit;
+import com.dtc.blobutil.processor.RetryScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
+import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Main utility class to verify archive data in InfluxDB using FlightSQL.
@@ -24,11 +40,26 @@ import java.util.concurrent.TimeUnit;
  *  - Executes the query against InfluxDB 3 via FlightSQL.
  *  - Updates processing_status in blob_changes to:
  *      - 'VERIFIED_OK' on success
+ *      - 'VERIFY_RETRY' while a failed query waits for its retry backoff
  *      - 'VERIFIED_FAILED' on failure after retries
+ *
+ * Failed queries are retried through a {@link RetryScheduler}: the loop moves on to the
+ * next blob and picks the failed one up again once its backoff has elapsed.
+ *
+ * Queries run concurrently on worker threads. The number in flight is set by an
+ * {@link AdaptiveConcurrencyLimit}, which grows while Influx answers in usual time and
+ * shrinks when queries fail or slow down, up to influx.maxVerificationConcurrency. Batch queries
+ * take far longer than single-blob ones, so each kind of query has its own limit.
+ *
+ * With influx.verificationBatchSize above 1, blobs whose type has a batch template are verified
+ * with one grouped query per batch (file_name IN (...) GROUP BY file_name) before the per-blob loop.
  */
 public class InfluxVerificationProcessor {
     private static final Logger logger = LoggerFactory.getLogger(InfluxVerificationProcessor.class);
     private static final int MAX_RETRIES = 3;
+    private static final AtomicInteger WORKER_NUMBER = new AtomicInteger();
+    // Wakes the verification loop when the last blob of a cycle has its final status
+    private static final VerificationTask CYCLE_COMPLETE = new VerificationTask(null, 0);
 
     public static void main(String[] args) {
         // Parse command line arguments (same style as other mains)
@@ -112,12 +143,26 @@ public class InfluxVerificationProcessor {
             long pollingIntervalSeconds = blobConfig != null ? blobConfig.getPollingIntervalSeconds() : 60;
             logger.info("Verification polling interval: {} seconds", pollingIntervalSeconds);
 
-            try (InfluxClient influxClient = InfluxClientFactory.create(influxConfig)) {
+            // Verification queries run on worker threads, as many at once as the adaptive limit allows
+            int maxConcurrency = influxConfig.getMaxVerificationConcurrency();
+            logger.info("Verification concurrency: adaptive, up to {} queries", maxConcurrency);
+            AdaptiveConcurrencyLimit concurrency = new AdaptiveConcurrencyLimit("influx-verification", 1, maxConcurrency);
+            AdaptiveConcurrencyLimit batchConcurrency =
+                new AdaptiveConcurrencyLimit("influx-batch-verification", 1, maxConcurrency);
+            ExecutorService workers = Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+                Thread thread = new Thread(runnable, "influx-verify-" + WORKER_NUMBER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            try (InfluxClient influxClient = InfluxClientFactory.create(influxConfig);
+                 RetryScheduler retryScheduler = new RetryScheduler("influx-verification")) {
                 // Simple continuous loop (like other processors)
                 boolean running = true;
                 while (running) {
                     try {
-                        processInfluxVerifications(dao, influxClient, influxConfig);
+                        processInfluxVerifications(dao, influxClient, influxConfig, retryScheduler,
+                            workers, concurrency, batchConcurrency);
 
                         logger.debug("Waiting {} seconds before next verification cycle...", pollingIntervalSeconds);
                         Thread.sleep(TimeUnit.SECONDS.toMillis(pollingIntervalSeconds));
@@ -135,6 +180,8 @@ public class InfluxVerificationProcessor {
                         }
                     }
                 }
+            } finally {
+                workers.shutdownNow();
             }
 
             logger.info("Influx Verification Processor stopped");
@@ -146,72 +193,290 @@ public class InfluxVerificationProcessor {
 
     /**
      * For each blob that has completed archive processing, run the configured Influx query
-     * and update processing_status accordingly.
+     * and update processing_status accordingly. Queries run concurrently on the workers, within
+     * the adaptive concurrency limit of their kind (single-blob or batch). Failed queries are re-enqueued after a backoff while the
+     * remaining blobs are verified; the cycle ends when every blob has a final status.
      */
     private static void processInfluxVerifications(BlobChangeDao dao,
                                                    InfluxClient influxClient,
-                                                   InfluxConfig influxConfig) {
+                                                   InfluxConfig influxConfig,
+                                                   RetryScheduler retryScheduler,
+                                                   ExecutorService workers,
+                                                   AdaptiveConcurrencyLimit concurrency,
+                                                   AdaptiveConcurrencyLimit batchConcurrency) throws InterruptedException {
         try {
-            List<String> blobNames = dao.getBlobNamesForInfluxVerification();
+            // Retries already made for each blob in earlier cycles, so MAX_RETRIES holds across cycles and restarts
+            Map<String, Integer> retryCounts = dao.getBlobRetryCountsForInfluxVerification();
+            List<String> blobNames = new ArrayList<>(retryCounts.keySet());
 
             if (blobNames.isEmpty()) {
                 logger.debug("No blobs found that need Influx verification");
                 return;
             }
 
-            logger.info("Found {} blobs to verify in Influx", blobNames.size());
+            logger.info("Found {} blobs to verify in Influx (concurrency limit {})", blobNames.size(),
+                concurrency.getLimit());
 
-            int verifiedOk = 0;
-            int verifiedFailed = 0;
+            // Batched queries first; what they leave is verified one query per blob
+            List<String> singleBlobs = blobNames;
+            if (influxConfig.getVerificationBatchSize() > 1) {
+                singleBlobs = verifyInBatches(dao, influxClient, influxConfig, workers, batchConcurrency, blobNames);
+            }
 
-            for (String blobName : blobNames) {
-                try {
-                    logger.debug("Verifying blob in Influx: {}", blobName);
+            Deque<VerificationTask> ready = new ArrayDeque<>(singleBlobs.size());
+            for (String blobName : singleBlobs) {
+                ready.add(new VerificationTask(blobName, retryCounts.getOrDefault(blobName, 0)));
+            }
+            // Filled by the retry scheduler once a failed blob's backoff has elapsed, and with
+            // CYCLE_COMPLETE by the worker that gives the last blob its final status
+            BlockingQueue<VerificationTask> retries = new LinkedBlockingQueue<>();
+
+            AtomicInteger remaining = new AtomicInteger(singleBlobs.size());
+            AtomicInteger verifiedOk = new AtomicInteger(blobNames.size() - singleBlobs.size());
+            AtomicInteger verifiedFailed = new AtomicInteger();
+
+            while (remaining.get() > 0) {
+                // Due retries first, then new blobs; only wait when nothing else is left to do
+                VerificationTask task = retries.poll();
+                if (task == null) {
+                    task = ready.poll();
+                }
+                if (task == null) {
+                    task = retries.take();
+                }
+                if (task == CYCLE_COMPLETE) {
+                    continue;
+                }
 
-                    // Mark as verifying (best-effort)
-                    try {
-                        dao.updateProcessingStatus(blobName, "VERIFYING");
-                    } catch (Exception e) {
-                        logger.warn("Failed to update status to VERIFYING for blob: {}", blobName, e);
+                AdaptiveConcurrencyLimit.Permit permit = concurrency.acquire();
+                VerificationTask started = task;
+                workers.execute(() -> {
+                    VerificationOutcome outcome = verifyBlob(dao, influxClient, influxConfig, retryScheduler,
+                        retries, started, permit);
+                    if (outcome == VerificationOutcome.RETRY_SCHEDULED) {
+                        return;
                     }
-
-                    // Determine file type and select appropriate query template
-                    String queryTemplate = getQueryTemplateForBlob(blobName, influxConfig);
-                    if (queryTemplate == null || queryTemplate.isEmpty()) {
-                        logger.error("No query template found for blob: {} (type detection failed)", blobName);
-                        throw new IllegalArgumentException("No query template configured for blob type: " + blobName);
+                    (outcome == VerificationOutcome.VERIFIED_OK ? verifiedOk : verifiedFailed).incrementAndGet();
+                    if (remaining.decrementAndGet() == 0) {
+                        retries.add(CYCLE_COMPLETE);
                     }
+                });
+            }
 
-                    String sql = String.format(queryTemplate, blobName);
-                    logger.info("InfluxDB query for blob '{}': {}", blobName, sql);
+            logger.info("Influx verification cycle complete. OK: {}, Failed: {} (concurrency limit {})",
+                verifiedOk.get(), verifiedFailed.get(), concurrency.getLimit());
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error running Influx verification cycle", e);
+            throw new RuntimeException("Failed to run Influx verification cycle", e);
+        }
+    }
 
-                    long count = executeWithRetry(influxClient, sql, blobName);
-                    logger.info("Influx count(*) for blob {} is {}", blobName, count);
+    /**
+     * Verify one blob with its own count(*) query, on a worker thread
+     * @param permit Permit of the query, released once the query has completed
+     */
+    private static VerificationOutcome verifyBlob(BlobChangeDao dao,
+                                                  InfluxClient influxClient,
+                                                  InfluxConfig influxConfig,
+                                                  RetryScheduler retryScheduler,
+                                                  BlockingQueue<VerificationTask> retries,
+                                                  VerificationTask task,
+                                                  AdaptiveConcurrencyLimit.Permit permit) {
+        String blobName = task.blobName;
+        try {
+            logger.debug("Verifying blob in Influx: {}", blobName);
 
-                    try {
-                        // Update both InfluxDB count and status
-                        dao.updateInfluxCountAndStatus(blobName, count, "VERIFIED_OK");
-                    } catch (Exception e) {
-                        logger.error("Failed to update InfluxDB count and status to VERIFIED_OK for blob: {}", blobName, e);
-                    }
+            // Mark as verifying (best-effort)
+            try {
+                dao.updateProcessingStatus(blobName, "VERIFYING");
+            } catch (Exception e) {
+                logger.warn("Failed to update status to VERIFYING for blob: {}", blobName, e);
+            }
 
-                    verifiedOk++;
-                } catch (Exception e) {
-                    verifiedFailed++;
-                    logger.error("Error verifying blob in Influx after retries: {}", blobName, e);
-                    try {
-                        dao.updateProcessingStatus(blobName, "VERIFIED_FAILED");
-                    } catch (Exception statusException) {
-                        logger.error("Failed to update status to VERIFIED_FAILED for blob: {}",
-                            blobName, statusException);
+            // Determine file type and select appropriate query template
+            String queryTemplate = getQueryTemplateForBlob(blobName, influxConfig);
+            if (queryTemplate == null || queryTemplate.isEmpty()) {
+                logger.error("No query template found for blob: {} (type detection failed)", blobName);
+                throw new IllegalArgumentException("No query template configured for blob type: " + blobName);
+            }
+
+            logger.debug("InfluxDB query for blob '{}' from template: {}", blobName, queryTemplate);
+
+            long count;
+            try {
+                permit.start();
+                count = influxClient.queryCount(queryTemplate, blobName);
+                permit.release(false);
+            } catch (Exception e) {
+                permit.release(true);
+                if (task.attempt < MAX_RETRIES) {
+                    scheduleRetry(dao, retryScheduler, retries, task, e);
+                    return VerificationOutcome.RETRY_SCHEDULED;
+                }
+                throw new RuntimeException("Failed to execute Influx query for blob " + blobName +
+                    " after " + MAX_RETRIES + " retries", e);
+            }
+            logger.info("Influx count(*) for blob {} is {}", blobName, count);
+
+            try {
+                // Update both InfluxDB count and status
+                dao.updateInfluxCountAndStatus(blobName, count, "VERIFIED_OK");
+            } catch (Exception e) {
+                logger.error("Failed to update InfluxDB count and status to VERIFIED_OK for blob: {}", blobName, e);
+            }
+
+            return VerificationOutcome.VERIFIED_OK;
+        } catch (Exception e) {
+            logger.error("Error verifying blob in Influx after retries: {}", blobName, e);
+            try {
+                dao.updateProcessingStatus(blobName, "VERIFIED_FAILED");
+            } catch (Exception statusException) {
+                logger.error("Failed to update status to VERIFIED_FAILED for blob: {}",
+                    blobName, statusException);
+            }
+            return VerificationOutcome.VERIFIED_FAILED;
+        } finally {
+            // The query was never sent
+            permit.abandon();
+        }
+    }
+
+    /**
+     * Verify blobs with one grouped query per batch of up to verificationBatchSize blobs of the same type.
+     * Batches run concurrently on the workers, within the adaptive concurrency limit of batch queries. Blobs the query
+     * returns no row for are counted as 0. Blobs of a type without a batch template, and the blobs of a
+     * batch whose query failed, are returned for verification one query per blob, which also retries them.
+     * @return the blobs that were not verified
+     */
+    private static List<String> verifyInBatches(BlobChangeDao dao,
+                                                InfluxClient influxClient,
+                                                InfluxConfig influxConfig,
+                                                ExecutorService workers,
+                                                AdaptiveConcurrencyLimit concurrency,
+                                                List<String> blobNames) throws InterruptedException {
+        Map<String, List<String>> blobsByTemplate = new LinkedHashMap<>();
+        List<String> unverified = Collections.synchronizedList(new ArrayList<>());
+        for (String blobName : blobNames) {
+            String template = getBatchQueryTemplateForBlob(blobName, influxConfig);
+            if (template == null) {
+                unverified.add(blobName);
+            } else {
+                blobsByTemplate.computeIfAbsent(template, t -> new ArrayList<>()).add(blobName);
+            }
+        }
+
+        int batchSize = influxConfig.getVerificationBatchSize();
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : blobsByTemplate.entrySet()) {
+            List<String> blobs = entry.getValue();
+            for (int from = 0; from < blobs.size(); from += batchSize) {
+                List<String> batch = blobs.subList(from, Math.min(from + batchSize, blobs.size()));
+                AdaptiveConcurrencyLimit.Permit permit = concurrency.acquire();
+                batches.add(CompletableFuture.runAsync(() -> {
+                    if (!verifyBatch(dao, influxClient, entry.getKey(), batch, permit)) {
+                        unverified.addAll(batch);
                     }
+                }, workers));
+            }
+        }
+        try {
+            CompletableFuture.allOf(batches.toArray(new CompletableFuture[0])).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batched Influx verification failed", e.getCause());
+        }
+
+        logger.info("Verified {} blobs with {} batched Influx queries; {} left for single-blob queries",
+            blobNames.size() - unverified.size(), batches.size(), unverified.size());
+        return new ArrayList<>(unverified);
+    }
+
+    /**
+     * Verify a batch of blobs of the same type with one grouped query, on a worker thread
+     * @param permit Permit of the query, released once the query has completed
+     * @return false if the query failed and the blobs were not verified
+     */
+    private static boolean verifyBatch(BlobChangeDao dao,
+                                       InfluxClient influxClient,
+                                       String queryTemplate,
+                                       List<String> batch,
+                                       AdaptiveConcurrencyLimit.Permit permit) {
+        try {
+            // Mark as verifying (best-effort)
+            try {
+                dao.updateProcessingStatus(batch, "VERIFYING");
+            } catch (Exception e) {
+                logger.warn("Failed to update status to VERIFYING for a batch of {} blobs", batch.size(), e);
+            }
+
+            Map<String, Long> counts;
+            try {
+                permit.start();
+                counts = influxClient.queryCountsByFileName(queryTemplate, batch);
+                permit.release(false);
+            } catch (Exception e) {
+                permit.release(true);
+                logger.warn("Batched Influx query for {} blobs failed, verifying them one query per blob",
+                    batch.size(), e);
+                return false;
+            }
+
+            Map<String, Long> batchCounts = new LinkedHashMap<>();
+            int withoutRows = 0;
+            for (String blobName : batch) {
+                Long count = counts.get(blobName);
+                if (count == null) {
+                    withoutRows++;
+                    count = 0L;
                 }
+                batchCounts.put(blobName, count);
+            }
+            logger.info("Influx count(*) for a batch of {} blobs ({} without rows in Influx)",
+                batch.size(), withoutRows);
+
+            try {
+                // Update both InfluxDB counts and status
+                dao.updateInfluxCountsAndStatus(batchCounts, "VERIFIED_OK");
+            } catch (Exception e) {
+                logger.error("Failed to update InfluxDB counts and status to VERIFIED_OK for a batch of {} blobs",
+                    batch.size(), e);
+            }
+            return true;
+        } finally {
+            // The query was never sent
+            permit.abandon();
+        }
+    }
+
+    /**
+     * Determine the grouped query template for a blob, or null if its type has none
+     */
+    private static String getBatchQueryTemplateForBlob(String blobName, InfluxConfig influxConfig) {
+        String template = null;
+        if (blobName != null) {
+            if (blobName.startsWith("IRIS_Data_")) {
+                template = influxConfig.getQueryDataBatchTemplate();
+            } else if (blobName.startsWith("IRIS_Events_")) {
+                template = influxConfig.getQueryEventsBatchTemplate();
             }
+        }
+        return template != null && !template.isEmpty() ? template : null;
+    }
 
-            logger.info("Influx verification cycle complete. OK: {}, Failed: {}", verifiedOk, verifiedFailed);
+    /**
+     * Schedule a failed verification for another attempt and persist when it becomes due
+     */
+    private static void scheduleRetry(BlobChangeDao dao, RetryScheduler retryScheduler,
+                                      BlockingQueue<VerificationTask> retries, VerificationTask task, Exception cause) {
+        VerificationTask next = new VerificationTask(task.blobName, task.attempt + 1);
+        OffsetDateTime nextAttemptAt = retryScheduler.schedule(next.attempt, () -> retries.add(next));
+        logger.warn("Attempt {} failed for blob {}. Retry {} of {} scheduled at {}",
+            task.attempt + 1, task.blobName, next.attempt, MAX_RETRIES, nextAttemptAt, cause);
+        try {
+            dao.scheduleRetry(task.blobName, "VERIFY_RETRY", next.attempt, nextAttemptAt);
         } catch (Exception e) {
-            logger.error("Error running Influx verification cycle", e);
-            throw new RuntimeException("Failed to run Influx verification cycle", e);
+            logger.warn("Failed to record scheduled retry for blob: {}", task.blobName, e);
         }
     }
 
@@ -248,34 +513,6 @@ public class InfluxVerificationProcessor {
         return null;
     }
 
-    /**
-     * Execute a count(*) query with simple retry logic.
-     */
-    private static long executeWithRetry(InfluxClient influxClient, String sql, String blobName) throws Exception {
-        int attempt = 0;
-        Exception lastException = null;
-
-        while (attempt <= MAX_RETRIES) {
-            try {
-                if (attempt > 0) {
-                    logger.info("Retry attempt {} of {} for Influx verification of blob: {}",
-                        attempt, MAX_RETRIES, blobName);
-                    Thread.sleep((long) Math.pow(2, attempt - 1) * 1000);
-                }
-                return influxClient.queryCount(sql);
-            } catch (Exception e) {
-                lastException = e;
-                attempt++;
-                if (attempt <= MAX_RETRIES) {
-                    logger.warn("Attempt {} failed for blob {}. Will retry...", attempt, blobName, e);
-                }
-            }
-        }
-
-        throw new RuntimeException("Failed to execute Influx query for blob " + blobName +
-            " after " + MAX_RETRIES + " retries", lastException);
-    }
-
     private static void validateConfig(AppConfig config) {
         if (config.getBlobStorageConfig() == null) {
             throw new IllegalArgumentException("Blob storage configuration is required");
@@ -345,9 +582,32 @@ public class InfluxVerificationProcessor {
         System.out.println("      (used by InfluxDB 3 FlightSQL client). This exposes JDK internals needed by Arrow.");
         System.out.println();
         System.out.println("This utility verifies archived blob data in InfluxDB 3 using FlightSQL");
-        System.out.println("by running a configured count(*) query per blob file name and updating");
+        System.out.println("by running a configured count(*) query per blob file name (or per batch of");
+        System.out.println("file names when influx.verificationBatchSize > 1) and updating");
         System.out.println("the processing_status field in the blob_changes table.");
     }
+
+    /**
+     * Result of a single-blob verification
+     */
+    private enum VerificationOutcome {
+        VERIFIED_OK,
+        VERIFIED_FAILED,
+        RETRY_SCHEDULED
+    }
+
+    /**
+     * A blob waiting for verification, with the number of retries already made
+     */
+    private static class VerificationTask {
+        private final String blobName;
+        private final int attempt;
+
+        VerificationTask(String blobName, int attempt) {
+            this.blobName = blobName;
+            this.attempt = attempt;
+        }
+    }
 }
 
 
@@ -0,0 +1,228 @@
+package com.dtc.blobutil;
+
+import com.dtc.blobutil.config.ArchiveConfig;
+import com.dtc.blobutil.processor.ArchiveCompression;
+import com.dtc.blobutil.processor.ArchiveFileProcessor;
+import com.dtc.blobutil.processor.ArchiveFileProcessor.RecordCounts;
+import com.dtc.blobutil.processor.JsonDocumentFormat;
+import com.dtc.blobutil.processor.JsonParserBackend;
+import com.dtc.blobutil.processor.JsonParserBackendFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares the JSON parser backends on archive documents.
+ *
+ * Each file is decompressed into memory once, then counted by every backend through the same
+ * code path the archive processor uses. Reports throughput per backend and checks that all
+ * backends produce the same total and distinct record counts.
+ */
+public class ParserBenchmark {
+    private static final int DEFAULT_WARMUP_ITERATIONS = 5;
+    private static final int DEFAULT_ITERATIONS = 10;
+    private static final int DEFAULT_SYNTHETIC_RECORDS = 200000;
+
+    public static void main(String[] args) {
+        int warmupIterations = DEFAULT_WARMUP_ITERATIONS;
+        int iterations = DEFAULT_ITERATIONS;
+        int syntheticRecords = DEFAULT_SYNTHETIC_RECORDS;
+        List<String> files = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("-h") || args[i].equals("--help")) {
+                    printUsage();
+                    System.exit(0);
+                } else if (args[i].equals("--warmup")) {
+                    warmupIterations = Integer.parseInt(requireValue(args, ++i));
+                } else if (args[i].equals("--iterations")) {
+                    iterations = Integer.parseInt(requireValue(args, ++i));
+                } else if (args[i].equals("--records")) {
+                    syntheticRecords = Integer.parseInt(requireValue(args, ++i));
+                } else {
+                    files.add(args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            printUsage();
+            System.exit(1);
+        }
+
+        try {
+            Map<String, byte[]> documents = new LinkedHashMap<>();
+            if (files.isEmpty()) {
+                documents.put("IRIS_Data_synthetic.json", generateDataDocument(syntheticRecords));
+                documents.put("IRIS_Events_synthetic.json", generateEventsDocument(syntheticRecords));
+            } else {
+                for (String file : files) {
+                    documents.put(file, readDecompressed(Paths.get(file)));
+                }
+            }
+
+            ObjectMapper objectMapper = ArchiveFileProcessor.createObjectMapper();
+            boolean consistent = true;
+            for (Map.Entry<String, byte[]> document : documents.entrySet()) {
+                consistent &= benchmark(document.getKey(), document.getValue(), objectMapper, warmupIterations, iterations);
+            }
+            System.exit(consistent ? 0 : 2);
+        } catch (Exception e) {
+            System.err.println("Benchmark failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Run every backend over one document
+     * @return true if all backends produced the same counts
+     */
+    private static boolean benchmark(String name, byte[] content, ObjectMapper objectMapper,
+                                     int warmupIterations, int iterations) throws Exception {
+        double megabytes = content.length / (1024.0 * 1024.0);
+        System.out.printf("%s (%.1f MB)%n", name, megabytes);
+
+        RecordCounts reference = null;
+        String referenceName = null;
+        boolean consistent = true;
+        for (String backendName : ArchiveConfig.PARSER_BACKENDS) {
+            JsonParserBackend backend;
+            try {
+                backend = JsonParserBackendFactory.create(backendName, objectMapper);
+            } catch (RuntimeException | LinkageError e) {
+                // Arrow cannot allocate memory without --add-opens=java.base/java.nio=ALL-UNNAMED
+                System.out.printf("  %-10s skipped: %s%n", backendName, e);
+                continue;
+            }
+            JsonDocumentFormat format = new JsonDocumentFormat(backend);
+
+            RecordCounts counts = null;
+            long start;
+            try {
+                for (int i = 0; i < warmupIterations; i++) {
+                    counts = format.count(content, name);
+                }
+                start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    counts = format.count(content, name);
+                }
+            } finally {
+                if (backend instanceof AutoCloseable) {
+                    ((AutoCloseable) backend).close();
+                }
+            }
+            double seconds = Math.max(System.nanoTime() - start, 1) / 1e9 / Math.max(iterations, 1);
+
+            System.out.printf("  %-10s %9.2f ms/file %9.1f MB/s %12.0f records/s   total=%d distinct=%d%n",
+                backendName, seconds * 1000, megabytes / seconds, counts.getTotalRecords() / seconds,
+                counts.getTotalRecords(), counts.getDistinctRecords());
+
+            if (reference == null) {
+                reference = counts;
+                referenceName = backendName;
+            } else if (counts.getTotalRecords() != reference.getTotalRecords()
+                    || counts.getDistinctRecords() != reference.getDistinctRecords()) {
+                System.out.printf("  WARNING: %s counts differ from %s%n", backendName, referenceName);
+                consistent = false;
+            }
+        }
+        return consistent;
+    }
+
+    private static byte[] readDecompressed(Path file) throws Exception {
+        try (InputStream in = ArchiveCompression.decode(Files.newInputStream(file), ArchiveCompression.NONE, file.toString())) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Synthetic ExportedData document: a few hundred tags, one value per tag and second, with about
+     * 5% of the records repeated as duplicates
+     */
+    private static byte[] generateDataDocument(int records) {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder(records * 160);
+        json.append("{\"_name\":\"IRIS_Data\",\"ExportedData\":{\"Header\":{\"SystemName\":\"BENCH\",")
+            .append("\"StartDate\":\"2024-01-01T00:00:00Z\",\"EndDate\":\"2024-01-01T01:00:00Z\"},\"Objects\":[");
+        for (int i = 0; i < records; i++) {
+            int source = random.nextInt(20) == 0 && i > 0 ? random.nextInt(i) : i;
+            int tag = source % 500;
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"Id\":").append(tag)
+                .append(",\"Fullname\":\"Plant.Area").append(tag % 10).append(".Tag").append(tag)
+                .append("\",\"Time\":\"2024-01-01T00:").append(timeOfDay(source / 500))
+                .append("Z\",\"Value\":").append(source * 0.25)
+                .append(",\"Reason\":0,\"State\":\"Good\",\"Quality\":\"192\",\"Units\":\"degC\"}");
+        }
+        json.append("]}}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Synthetic ExportedEvents document with the same duplicate rate as the data document
+     */
+    private static byte[] generateEventsDocument(int records) {
+        Random random = new Random(43);
+        StringBuilder json = new StringBuilder(records * 320);
+        json.append("{\"_name\":\"IRIS_Events\",\"ExportedEvents\":{\"Header\":{\"SystemName\":\"BENCH\",")
+            .append("\"StartDate\":\"2024-01-01T00:00:00Z\",\"EndDate\":\"2024-01-01T01:00:00Z\"},\"Objects\":[");
+        for (int i = 0; i < records; i++) {
+            int source = random.nextInt(20) == 0 && i > 0 ? random.nextInt(i) : i;
+            int tag = source % 200;
+            if (i > 0) {
+                json.append(',');
+            }
+            String time = "2024-01-01T00:" + timeOfDay(source / 200) + "Z";
+            json.append("{\"Id\":").append(tag)
+                .append(",\"Fullname\":\"Plant.Area").append(tag % 10).append(".Alarm").append(tag)
+                .append("\",\"Severity\":\"").append(source % 4)
+                .append("\",\"ReceiptTime\":\"").append(time)
+                .append("\",\"RecordTime\":\"").append(time)
+                .append("\",\"Category\":\"Process\",\"User\":\"system\",\"AreaOfInterest\":\"Area").append(tag % 10)
+                .append("\",\"AlarmState\":\"ACTIVE\",\"Message\":\"High limit exceeded on tag ").append(tag)
+                .append("\",\"EncodedMessage\":null,\"SeqNo\":").append(source)
+                .append('}');
+        }
+        json.append("]}}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String timeOfDay(int second) {
+        return String.format("%02d:%02d", (second / 60) % 60, second % 60);
+    }
+
+    private static String requireValue(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Value required after " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    private static void printUsage() {
+        System.out.println("JSON Parser Backend Benchmark");
+        System.out.println();
+        System.out.println("Usage:");
+        System.out.println("  java --add-opens=java.base/java.nio=ALL-UNNAMED -cp blob-util-archive-1.0.0.jar com.dtc.blobutil.ParserBenchmark [options] [file ...]");
+        System.out.println();
+        System.out.println("Options:");
+        System.out.println("  --warmup <n>           Warmup iterations per backend (default: " + DEFAULT_WARMUP_ITERATIONS + ")");
+        System.out.println("  --iterations <n>       Measured iterations per backend (default: " + DEFAULT_ITERATIONS + ")");
+        System.out.println("  --records <n>          Records per synthetic document when no files are given (default: " + DEFAULT_SYNTHETIC_RECORDS + ")");
+        System.out.println("  -h, --help             Show this help message");
+        System.out.println();
+        System.out.println("Files may be gzip or zstd compressed. Without files, synthetic IRIS_Data_ and IRIS_Events_");
+        System.out.println("documents are generated. Exits with status 2 if the backends disagree on the record counts.");
+        System.out.println("The arrow backend is skipped when the --add-opens JVM argument is missing.");
+    }
+}
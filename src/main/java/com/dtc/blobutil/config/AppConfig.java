@@ -7,6 +7,7 @@ public class AppConfig {
     private BlobStorageConfig blobStorageConfig;
     private DatabaseConfig databaseConfig;
     private InfluxConfig influxConfig;
+    private ArchiveConfig archiveConfig;
 
     public BlobStorageConfig getBlobStorageConfig() {
         return blobStorageConfig;
@@ -31,6 +32,14 @@ public class AppConfig {
     public void setInfluxConfig(InfluxConfig influxConfig) {
         this.influxConfig = influxConfig;
     }
+
+    public ArchiveConfig getArchiveConfig() {
+        return archiveConfig;
+    }
+
+    public void setArchiveConfig(ArchiveConfig archiveConfig) {
+        this.archiveConfig = archiveConfig;
+    }
 }
 
 
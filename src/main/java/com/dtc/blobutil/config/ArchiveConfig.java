@@ -0,0 +1,391 @@
+package com.dtc.blobutil.config;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Configuration for archive file processing (BlobArchiveProcessor)
+ */
+public class ArchiveConfig {
+    public static final List<String> PARSER_BACKENDS = Arrays.asList("databind", "streaming", "blackbird", "arrow");
+    public static final List<String> DEFAULT_DATA_DEDUP_KEY = Arrays.asList("Id", "Fullname", "Time");
+    public static final List<String> DEFAULT_EVENTS_DEDUP_KEY = Arrays.asList("Id", "Fullname", "RecordTime", "SeqNo");
+
+    private int concurrency; // Number of concurrent downloads (I/O stage); 0 = derive from CPU count
+    private int parseThreads; // Number of parse threads (CPU stage); 0 = number of available processors
+    private int prefetchQueueSize; // Downloaded files waiting to be parsed; 0 = 2 x parse threads
+    private long rangeDownloadThresholdBytes; // Blobs at least this large are downloaded in parallel ranges to a local file
+    private int rangeDownloadMaxConcurrency; // Maximum parallel range requests per blob
+    private String downloadDirectory; // Local directory for range-downloaded files
+    private String cacheDirectory; // Local directory for the downloaded file cache
+    private long cacheMaxBytes; // Size cap of the downloaded file cache; 0 = cache disabled
+    private boolean skipUnchangedContent; // Skip blobs whose ETag or Content-MD5 matches the processed content
+    private boolean incrementalAppendBlobs; // Count only the bytes appended to NDJSON append blobs since the last count
+    private boolean hedgeDownloads; // Send a second request when the first block of a blob is slower than usual
+    private double hedgePercentile; // Latency percentile of recent first blocks after which a request is hedged
+    private double hedgeBudgetPercent; // Hedged requests as a percentage of all requests, at most
+    private int hedgeMinDelayMillis; // Lower bound of the hedging delay
+    private long maxInFlightBytes; // Heap bytes of downloaded blobs held at once; 0 = a quarter of the maximum heap
+    private long maxDownloadBytesPerSecond; // Download bandwidth cap of the archive stage; 0 = unlimited
+    private int quarantineMaxAttempts; // Failures after which a transiently failing file stays quarantined
+    private int quarantineReprocessDelayMinutes; // Base delay before a quarantined file is reprocessed automatically
+    private String parserBackend; // JSON parser backend for ComplexData documents: databind, streaming, blackbird or arrow
+    private boolean stringDictionary; // Dictionary-encode repeated string fields while parsing (streaming backend; arrow always does)
+    private int stringDictionaryCacheSize; // Values kept in the cross-file string dictionary; 0 = per-file only
+    private boolean crossFileDuplicates; // Estimate records already seen in other files with a per-day Bloom filter index
+    private String duplicateIndexDirectory; // Local directory for the duplicate index files
+    private double duplicateIndexFalsePositiveRate; // Upper bound of the index false positive rate
+    private int duplicateIndexRetentionDays; // Days of records kept in the duplicate index
+    private List<String> dataDedupKey; // Data record fields that identify a distinct record
+    private List<String> eventsDedupKey; // Event record fields that identify a distinct record
+
+    public ArchiveConfig() {
+        this.concurrency = 0; // Default: derived from CPU count (downloads mostly wait on the network)
+        this.parseThreads = 0; // Default: one parse thread per available processor
+        this.prefetchQueueSize = 0; // Default: two buffered files per parse thread
+        this.rangeDownloadThresholdBytes = 32L * 1024 * 1024; // Default: 32 MB
+        this.rangeDownloadMaxConcurrency = 8; // Default: up to 8 range requests per blob
+        this.downloadDirectory = System.getProperty("java.io.tmpdir") + File.separator + "blob-util-archive";
+        this.cacheDirectory = System.getProperty("java.io.tmpdir") + File.separator + "blob-util-cache";
+        this.cacheMaxBytes = 2L * 1024 * 1024 * 1024; // Default: 2 GB
+        this.skipUnchangedContent = true;
+        this.incrementalAppendBlobs = true;
+        this.hedgeDownloads = false;
+        this.hedgePercentile = 95; // Default: hedge the slowest 5% of first blocks
+        this.hedgeBudgetPercent = 5; // Default: at most 5 hedged requests per 100 requests
+        this.hedgeMinDelayMillis = 20; // Default: never hedge before 20 ms
+        this.maxInFlightBytes = 0; // Default: derived from the maximum heap size
+        this.maxDownloadBytesPerSecond = 0; // Default: no bandwidth cap
+        this.quarantineMaxAttempts = 5; // Default: give up automatic reprocessing after 5 failures
+        this.quarantineReprocessDelayMinutes = 15; // Default: 15, 30, 45, ... minutes between reprocessing attempts
+        this.parserBackend = "databind"; // Default: bind the whole document
+        this.stringDictionary = true;
+        this.stringDictionaryCacheSize = 100000; // Default: up to 100,000 distinct values shared across files
+        this.crossFileDuplicates = true;
+        this.duplicateIndexDirectory = System.getProperty("java.io.tmpdir") + File.separator + "blob-util-dedup";
+        this.duplicateIndexFalsePositiveRate = 0.01; // Default: at most 1% of new records reported as duplicates
+        this.duplicateIndexRetentionDays = 30; // Default: records up to 30 days old
+        this.dataDedupKey = DEFAULT_DATA_DEDUP_KEY;
+        this.eventsDedupKey = DEFAULT_EVENTS_DEDUP_KEY;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        if (concurrency < 0) {
+            throw new IllegalArgumentException("archive.concurrency must be >= 0. Got: " + concurrency);
+        }
+        this.concurrency = concurrency;
+    }
+
+    public int getParseThreads() {
+        return parseThreads;
+    }
+
+    public void setParseThreads(int parseThreads) {
+        if (parseThreads < 0) {
+            throw new IllegalArgumentException("archive.parseThreads must be >= 0. Got: " + parseThreads);
+        }
+        this.parseThreads = parseThreads;
+    }
+
+    public int getPrefetchQueueSize() {
+        return prefetchQueueSize;
+    }
+
+    public void setPrefetchQueueSize(int prefetchQueueSize) {
+        if (prefetchQueueSize < 0) {
+            throw new IllegalArgumentException("archive.prefetchQueueSize must be >= 0. Got: " + prefetchQueueSize);
+        }
+        this.prefetchQueueSize = prefetchQueueSize;
+    }
+
+    public long getRangeDownloadThresholdBytes() {
+        return rangeDownloadThresholdBytes;
+    }
+
+    public void setRangeDownloadThresholdBytes(long rangeDownloadThresholdBytes) {
+        if (rangeDownloadThresholdBytes < 0) {
+            throw new IllegalArgumentException("archive.rangeDownloadThresholdBytes must be >= 0. Got: " + rangeDownloadThresholdBytes);
+        }
+        this.rangeDownloadThresholdBytes = rangeDownloadThresholdBytes;
+    }
+
+    public int getRangeDownloadMaxConcurrency() {
+        return rangeDownloadMaxConcurrency;
+    }
+
+    public void setRangeDownloadMaxConcurrency(int rangeDownloadMaxConcurrency) {
+        if (rangeDownloadMaxConcurrency < 1) {
+            throw new IllegalArgumentException("archive.rangeDownloadMaxConcurrency must be >= 1. Got: " + rangeDownloadMaxConcurrency);
+        }
+        this.rangeDownloadMaxConcurrency = rangeDownloadMaxConcurrency;
+    }
+
+    public String getDownloadDirectory() {
+        return downloadDirectory;
+    }
+
+    public void setDownloadDirectory(String downloadDirectory) {
+        this.downloadDirectory = downloadDirectory;
+    }
+
+    public String getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    public void setCacheDirectory(String cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    public long getCacheMaxBytes() {
+        return cacheMaxBytes;
+    }
+
+    public void setCacheMaxBytes(long cacheMaxBytes) {
+        if (cacheMaxBytes < 0) {
+            throw new IllegalArgumentException("archive.cacheMaxBytes must be >= 0. Got: " + cacheMaxBytes);
+        }
+        this.cacheMaxBytes = cacheMaxBytes;
+    }
+
+    public boolean isSkipUnchangedContent() {
+        return skipUnchangedContent;
+    }
+
+    public void setSkipUnchangedContent(boolean skipUnchangedContent) {
+        this.skipUnchangedContent = skipUnchangedContent;
+    }
+
+    public boolean isIncrementalAppendBlobs() {
+        return incrementalAppendBlobs;
+    }
+
+    public void setIncrementalAppendBlobs(boolean incrementalAppendBlobs) {
+        this.incrementalAppendBlobs = incrementalAppendBlobs;
+    }
+
+    public boolean isHedgeDownloads() {
+        return hedgeDownloads;
+    }
+
+    public void setHedgeDownloads(boolean hedgeDownloads) {
+        this.hedgeDownloads = hedgeDownloads;
+    }
+
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public void setHedgePercentile(double hedgePercentile) {
+        if (!(hedgePercentile > 0 && hedgePercentile < 100)) {
+            throw new IllegalArgumentException("archive.hedgePercentile must be between 0 and 100 (exclusive). Got: " + hedgePercentile);
+        }
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    public double getHedgeBudgetPercent() {
+        return hedgeBudgetPercent;
+    }
+
+    public void setHedgeBudgetPercent(double hedgeBudgetPercent) {
+        if (!(hedgeBudgetPercent >= 0 && hedgeBudgetPercent <= 100)) {
+            throw new IllegalArgumentException("archive.hedgeBudgetPercent must be between 0 and 100. Got: " + hedgeBudgetPercent);
+        }
+        this.hedgeBudgetPercent = hedgeBudgetPercent;
+    }
+
+    public int getHedgeMinDelayMillis() {
+        return hedgeMinDelayMillis;
+    }
+
+    public void setHedgeMinDelayMillis(int hedgeMinDelayMillis) {
+        if (hedgeMinDelayMillis < 0) {
+            throw new IllegalArgumentException("archive.hedgeMinDelayMillis must be >= 0. Got: " + hedgeMinDelayMillis);
+        }
+        this.hedgeMinDelayMillis = hedgeMinDelayMillis;
+    }
+
+    public long getMaxInFlightBytes() {
+        return maxInFlightBytes;
+    }
+
+    public void setMaxInFlightBytes(long maxInFlightBytes) {
+        if (maxInFlightBytes < 0) {
+            throw new IllegalArgumentException("archive.maxInFlightBytes must be >= 0. Got: " + maxInFlightBytes);
+        }
+        this.maxInFlightBytes = maxInFlightBytes;
+    }
+
+    public long getMaxDownloadBytesPerSecond() {
+        return maxDownloadBytesPerSecond;
+    }
+
+    public void setMaxDownloadBytesPerSecond(long maxDownloadBytesPerSecond) {
+        if (maxDownloadBytesPerSecond < 0) {
+            throw new IllegalArgumentException("archive.maxDownloadBytesPerSecond must be >= 0. Got: " + maxDownloadBytesPerSecond);
+        }
+        this.maxDownloadBytesPerSecond = maxDownloadBytesPerSecond;
+    }
+
+    public int getQuarantineMaxAttempts() {
+        return quarantineMaxAttempts;
+    }
+
+    public void setQuarantineMaxAttempts(int quarantineMaxAttempts) {
+        if (quarantineMaxAttempts < 1) {
+            throw new IllegalArgumentException("archive.quarantineMaxAttempts must be >= 1. Got: " + quarantineMaxAttempts);
+        }
+        this.quarantineMaxAttempts = quarantineMaxAttempts;
+    }
+
+    public int getQuarantineReprocessDelayMinutes() {
+        return quarantineReprocessDelayMinutes;
+    }
+
+    public void setQuarantineReprocessDelayMinutes(int quarantineReprocessDelayMinutes) {
+        if (quarantineReprocessDelayMinutes < 0) {
+            throw new IllegalArgumentException("archive.quarantineReprocessDelayMinutes must be >= 0. Got: " + quarantineReprocessDelayMinutes);
+        }
+        this.quarantineReprocessDelayMinutes = quarantineReprocessDelayMinutes;
+    }
+
+    public String getParserBackend() {
+        return parserBackend;
+    }
+
+    public void setParserBackend(String parserBackend) {
+        if (parserBackend == null || !PARSER_BACKENDS.contains(parserBackend.trim().toLowerCase(Locale.ROOT))) {
+            throw new IllegalArgumentException("archive.parserBackend must be one of " + PARSER_BACKENDS + ". Got: " + parserBackend);
+        }
+        this.parserBackend = parserBackend.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public boolean isStringDictionary() {
+        return stringDictionary;
+    }
+
+    public void setStringDictionary(boolean stringDictionary) {
+        this.stringDictionary = stringDictionary;
+    }
+
+    public int getStringDictionaryCacheSize() {
+        return stringDictionaryCacheSize;
+    }
+
+    public void setStringDictionaryCacheSize(int stringDictionaryCacheSize) {
+        if (stringDictionaryCacheSize < 0) {
+            throw new IllegalArgumentException("archive.stringDictionaryCacheSize must be >= 0. Got: " + stringDictionaryCacheSize);
+        }
+        this.stringDictionaryCacheSize = stringDictionaryCacheSize;
+    }
+
+    public boolean isCrossFileDuplicates() {
+        return crossFileDuplicates;
+    }
+
+    public void setCrossFileDuplicates(boolean crossFileDuplicates) {
+        this.crossFileDuplicates = crossFileDuplicates;
+    }
+
+    public String getDuplicateIndexDirectory() {
+        return duplicateIndexDirectory;
+    }
+
+    public void setDuplicateIndexDirectory(String duplicateIndexDirectory) {
+        this.duplicateIndexDirectory = duplicateIndexDirectory;
+    }
+
+    public double getDuplicateIndexFalsePositiveRate() {
+        return duplicateIndexFalsePositiveRate;
+    }
+
+    public void setDuplicateIndexFalsePositiveRate(double duplicateIndexFalsePositiveRate) {
+        if (!(duplicateIndexFalsePositiveRate > 0 && duplicateIndexFalsePositiveRate < 1)) {
+            throw new IllegalArgumentException("archive.duplicateIndexFalsePositiveRate must be between 0 and 1 (exclusive). Got: " + duplicateIndexFalsePositiveRate);
+        }
+        this.duplicateIndexFalsePositiveRate = duplicateIndexFalsePositiveRate;
+    }
+
+    public int getDuplicateIndexRetentionDays() {
+        return duplicateIndexRetentionDays;
+    }
+
+    public void setDuplicateIndexRetentionDays(int duplicateIndexRetentionDays) {
+        if (duplicateIndexRetentionDays < 1) {
+            throw new IllegalArgumentException("archive.duplicateIndexRetentionDays must be >= 1. Got: " + duplicateIndexRetentionDays);
+        }
+        this.duplicateIndexRetentionDays = duplicateIndexRetentionDays;
+    }
+
+    public List<String> getDataDedupKey() {
+        return dataDedupKey;
+    }
+
+    public void setDataDedupKey(List<String> dataDedupKey) {
+        this.dataDedupKey = dedupKey("archive.dataDedupKey", dataDedupKey);
+    }
+
+    public List<String> getEventsDedupKey() {
+        return eventsDedupKey;
+    }
+
+    public void setEventsDedupKey(List<String> eventsDedupKey) {
+        this.eventsDedupKey = dedupKey("archive.eventsDedupKey", eventsDedupKey);
+    }
+
+    /**
+     * Field names are checked against the record model when the extractors are compiled at startup
+     */
+    private static List<String> dedupKey(String name, List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            throw new IllegalArgumentException(name + " must name at least one field. Got: " + fields);
+        }
+        List<String> trimmed = new ArrayList<>();
+        for (String field : fields) {
+            if (field != null && !field.trim().isEmpty()) {
+                trimmed.add(field.trim());
+            }
+        }
+        if (trimmed.isEmpty()) {
+            throw new IllegalArgumentException(name + " must name at least one field. Got: " + fields);
+        }
+        return Collections.unmodifiableList(trimmed);
+    }
+
+    /**
+     * Number of download threads to use. Downloads spend most of their time waiting on the
+     * network, so the automatic value oversubscribes the CPUs to keep the NIC busy.
+     */
+    public int getEffectiveConcurrency() {
+        return concurrency > 0 ? concurrency : Runtime.getRuntime().availableProcessors() * 4;
+    }
+
+    /**
+     * Number of parse threads to use. Parsing is CPU bound, so the automatic value is one per processor.
+     */
+    public int getEffectiveParseThreads() {
+        return parseThreads > 0 ? parseThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Capacity of the queue between the download and parse stages
+     */
+    public int getEffectivePrefetchQueueSize() {
+        return prefetchQueueSize > 0 ? prefetchQueueSize : getEffectiveParseThreads() * 2;
+    }
+
+    /**
+     * Heap bytes of downloaded blobs that may be held at once. The automatic value is a quarter of the
+     * maximum heap, which leaves room for parsing the blobs that are held.
+     */
+    public long getEffectiveMaxInFlightBytes() {
+        return maxInFlightBytes > 0 ? maxInFlightBytes : Runtime.getRuntime().maxMemory() / 4;
+    }
+}
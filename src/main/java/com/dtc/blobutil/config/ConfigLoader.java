@@ -6,6 +6,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.Arrays;
 
 /**
  * Loads configuration from application.conf or environment variables
@@ -149,6 +150,161 @@ public class ConfigLoader {
 
         appConfig.setBlobStorageConfig(blobConfig);
 
+        // Load archive processing config
+        ArchiveConfig archiveConfig = new ArchiveConfig();
+        if (config.hasPath("archive.concurrency")) {
+            archiveConfig.setConcurrency(config.getInt("archive.concurrency"));
+        } else if (System.getenv("ARCHIVE_CONCURRENCY") != null) {
+            archiveConfig.setConcurrency(Integer.parseInt(System.getenv("ARCHIVE_CONCURRENCY")));
+        }
+
+        if (config.hasPath("archive.parseThreads")) {
+            archiveConfig.setParseThreads(config.getInt("archive.parseThreads"));
+        } else if (System.getenv("ARCHIVE_PARSE_THREADS") != null) {
+            archiveConfig.setParseThreads(Integer.parseInt(System.getenv("ARCHIVE_PARSE_THREADS")));
+        }
+
+        if (config.hasPath("archive.prefetchQueueSize")) {
+            archiveConfig.setPrefetchQueueSize(config.getInt("archive.prefetchQueueSize"));
+        } else if (System.getenv("ARCHIVE_PREFETCH_QUEUE_SIZE") != null) {
+            archiveConfig.setPrefetchQueueSize(Integer.parseInt(System.getenv("ARCHIVE_PREFETCH_QUEUE_SIZE")));
+        }
+
+        if (config.hasPath("archive.rangeDownloadThresholdBytes")) {
+            archiveConfig.setRangeDownloadThresholdBytes(config.getBytes("archive.rangeDownloadThresholdBytes"));
+        } else if (System.getenv("ARCHIVE_RANGE_DOWNLOAD_THRESHOLD_BYTES") != null) {
+            archiveConfig.setRangeDownloadThresholdBytes(Long.parseLong(System.getenv("ARCHIVE_RANGE_DOWNLOAD_THRESHOLD_BYTES")));
+        }
+
+        if (config.hasPath("archive.rangeDownloadMaxConcurrency")) {
+            archiveConfig.setRangeDownloadMaxConcurrency(config.getInt("archive.rangeDownloadMaxConcurrency"));
+        } else if (System.getenv("ARCHIVE_RANGE_DOWNLOAD_MAX_CONCURRENCY") != null) {
+            archiveConfig.setRangeDownloadMaxConcurrency(Integer.parseInt(System.getenv("ARCHIVE_RANGE_DOWNLOAD_MAX_CONCURRENCY")));
+        }
+
+        if (config.hasPath("archive.downloadDirectory")) {
+            archiveConfig.setDownloadDirectory(config.getString("archive.downloadDirectory"));
+        } else if (System.getenv("ARCHIVE_DOWNLOAD_DIRECTORY") != null) {
+            archiveConfig.setDownloadDirectory(System.getenv("ARCHIVE_DOWNLOAD_DIRECTORY"));
+        }
+
+        if (config.hasPath("archive.cacheDirectory")) {
+            archiveConfig.setCacheDirectory(config.getString("archive.cacheDirectory"));
+        } else if (System.getenv("ARCHIVE_CACHE_DIRECTORY") != null) {
+            archiveConfig.setCacheDirectory(System.getenv("ARCHIVE_CACHE_DIRECTORY"));
+        }
+
+        if (config.hasPath("archive.cacheMaxBytes")) {
+            archiveConfig.setCacheMaxBytes(config.getBytes("archive.cacheMaxBytes"));
+        } else if (System.getenv("ARCHIVE_CACHE_MAX_BYTES") != null) {
+            archiveConfig.setCacheMaxBytes(Long.parseLong(System.getenv("ARCHIVE_CACHE_MAX_BYTES")));
+        }
+
+        if (config.hasPath("archive.skipUnchangedContent")) {
+            archiveConfig.setSkipUnchangedContent(config.getBoolean("archive.skipUnchangedContent"));
+        } else if (System.getenv("ARCHIVE_SKIP_UNCHANGED_CONTENT") != null) {
+            archiveConfig.setSkipUnchangedContent(Boolean.parseBoolean(System.getenv("ARCHIVE_SKIP_UNCHANGED_CONTENT")));
+        }
+
+        if (config.hasPath("archive.incrementalAppendBlobs")) {
+            archiveConfig.setIncrementalAppendBlobs(config.getBoolean("archive.incrementalAppendBlobs"));
+        } else if (System.getenv("ARCHIVE_INCREMENTAL_APPEND_BLOBS") != null) {
+            archiveConfig.setIncrementalAppendBlobs(Boolean.parseBoolean(System.getenv("ARCHIVE_INCREMENTAL_APPEND_BLOBS")));
+        }
+
+        if (config.hasPath("archive.hedgeDownloads")) {
+            archiveConfig.setHedgeDownloads(config.getBoolean("archive.hedgeDownloads"));
+        } else if (System.getenv("ARCHIVE_HEDGE_DOWNLOADS") != null) {
+            archiveConfig.setHedgeDownloads(Boolean.parseBoolean(System.getenv("ARCHIVE_HEDGE_DOWNLOADS")));
+        }
+        if (config.hasPath("archive.hedgePercentile")) {
+            archiveConfig.setHedgePercentile(config.getDouble("archive.hedgePercentile"));
+        } else if (System.getenv("ARCHIVE_HEDGE_PERCENTILE") != null) {
+            archiveConfig.setHedgePercentile(Double.parseDouble(System.getenv("ARCHIVE_HEDGE_PERCENTILE")));
+        }
+        if (config.hasPath("archive.hedgeBudgetPercent")) {
+            archiveConfig.setHedgeBudgetPercent(config.getDouble("archive.hedgeBudgetPercent"));
+        } else if (System.getenv("ARCHIVE_HEDGE_BUDGET_PERCENT") != null) {
+            archiveConfig.setHedgeBudgetPercent(Double.parseDouble(System.getenv("ARCHIVE_HEDGE_BUDGET_PERCENT")));
+        }
+        if (config.hasPath("archive.hedgeMinDelayMillis")) {
+            archiveConfig.setHedgeMinDelayMillis(config.getInt("archive.hedgeMinDelayMillis"));
+        } else if (System.getenv("ARCHIVE_HEDGE_MIN_DELAY_MILLIS") != null) {
+            archiveConfig.setHedgeMinDelayMillis(Integer.parseInt(System.getenv("ARCHIVE_HEDGE_MIN_DELAY_MILLIS")));
+        }
+
+        if (config.hasPath("archive.maxInFlightBytes")) {
+            archiveConfig.setMaxInFlightBytes(config.getBytes("archive.maxInFlightBytes"));
+        } else if (System.getenv("ARCHIVE_MAX_IN_FLIGHT_BYTES") != null) {
+            archiveConfig.setMaxInFlightBytes(Long.parseLong(System.getenv("ARCHIVE_MAX_IN_FLIGHT_BYTES")));
+        }
+        if (config.hasPath("archive.maxDownloadBytesPerSecond")) {
+            archiveConfig.setMaxDownloadBytesPerSecond(config.getBytes("archive.maxDownloadBytesPerSecond"));
+        } else if (System.getenv("ARCHIVE_MAX_DOWNLOAD_BYTES_PER_SECOND") != null) {
+            archiveConfig.setMaxDownloadBytesPerSecond(Long.parseLong(System.getenv("ARCHIVE_MAX_DOWNLOAD_BYTES_PER_SECOND")));
+        }
+
+        if (config.hasPath("archive.quarantineMaxAttempts")) {
+            archiveConfig.setQuarantineMaxAttempts(config.getInt("archive.quarantineMaxAttempts"));
+        } else if (System.getenv("ARCHIVE_QUARANTINE_MAX_ATTEMPTS") != null) {
+            archiveConfig.setQuarantineMaxAttempts(Integer.parseInt(System.getenv("ARCHIVE_QUARANTINE_MAX_ATTEMPTS")));
+        }
+
+        if (config.hasPath("archive.quarantineReprocessDelayMinutes")) {
+            archiveConfig.setQuarantineReprocessDelayMinutes(config.getInt("archive.quarantineReprocessDelayMinutes"));
+        } else if (System.getenv("ARCHIVE_QUARANTINE_REPROCESS_DELAY_MINUTES") != null) {
+            archiveConfig.setQuarantineReprocessDelayMinutes(Integer.parseInt(System.getenv("ARCHIVE_QUARANTINE_REPROCESS_DELAY_MINUTES")));
+        }
+        if (config.hasPath("archive.parserBackend")) {
+            archiveConfig.setParserBackend(config.getString("archive.parserBackend"));
+        } else if (System.getenv("ARCHIVE_PARSER_BACKEND") != null) {
+            archiveConfig.setParserBackend(System.getenv("ARCHIVE_PARSER_BACKEND"));
+        }
+        if (config.hasPath("archive.stringDictionary")) {
+            archiveConfig.setStringDictionary(config.getBoolean("archive.stringDictionary"));
+        } else if (System.getenv("ARCHIVE_STRING_DICTIONARY") != null) {
+            archiveConfig.setStringDictionary(Boolean.parseBoolean(System.getenv("ARCHIVE_STRING_DICTIONARY")));
+        }
+        if (config.hasPath("archive.stringDictionaryCacheSize")) {
+            archiveConfig.setStringDictionaryCacheSize(config.getInt("archive.stringDictionaryCacheSize"));
+        } else if (System.getenv("ARCHIVE_STRING_DICTIONARY_CACHE_SIZE") != null) {
+            archiveConfig.setStringDictionaryCacheSize(Integer.parseInt(System.getenv("ARCHIVE_STRING_DICTIONARY_CACHE_SIZE")));
+        }
+
+        if (config.hasPath("archive.crossFileDuplicates")) {
+            archiveConfig.setCrossFileDuplicates(config.getBoolean("archive.crossFileDuplicates"));
+        } else if (System.getenv("ARCHIVE_CROSS_FILE_DUPLICATES") != null) {
+            archiveConfig.setCrossFileDuplicates(Boolean.parseBoolean(System.getenv("ARCHIVE_CROSS_FILE_DUPLICATES")));
+        }
+        if (config.hasPath("archive.duplicateIndexDirectory")) {
+            archiveConfig.setDuplicateIndexDirectory(config.getString("archive.duplicateIndexDirectory"));
+        } else if (System.getenv("ARCHIVE_DUPLICATE_INDEX_DIRECTORY") != null) {
+            archiveConfig.setDuplicateIndexDirectory(System.getenv("ARCHIVE_DUPLICATE_INDEX_DIRECTORY"));
+        }
+        if (config.hasPath("archive.duplicateIndexFalsePositiveRate")) {
+            archiveConfig.setDuplicateIndexFalsePositiveRate(config.getDouble("archive.duplicateIndexFalsePositiveRate"));
+        } else if (System.getenv("ARCHIVE_DUPLICATE_INDEX_FALSE_POSITIVE_RATE") != null) {
+            archiveConfig.setDuplicateIndexFalsePositiveRate(Double.parseDouble(System.getenv("ARCHIVE_DUPLICATE_INDEX_FALSE_POSITIVE_RATE")));
+        }
+        if (config.hasPath("archive.duplicateIndexRetentionDays")) {
+            archiveConfig.setDuplicateIndexRetentionDays(config.getInt("archive.duplicateIndexRetentionDays"));
+        } else if (System.getenv("ARCHIVE_DUPLICATE_INDEX_RETENTION_DAYS") != null) {
+            archiveConfig.setDuplicateIndexRetentionDays(Integer.parseInt(System.getenv("ARCHIVE_DUPLICATE_INDEX_RETENTION_DAYS")));
+        }
+
+        if (config.hasPath("archive.dataDedupKey")) {
+            archiveConfig.setDataDedupKey(config.getStringList("archive.dataDedupKey"));
+        } else if (System.getenv("ARCHIVE_DATA_DEDUP_KEY") != null) {
+            archiveConfig.setDataDedupKey(Arrays.asList(System.getenv("ARCHIVE_DATA_DEDUP_KEY").split(",")));
+        }
+        if (config.hasPath("archive.eventsDedupKey")) {
+            archiveConfig.setEventsDedupKey(config.getStringList("archive.eventsDedupKey"));
+        } else if (System.getenv("ARCHIVE_EVENTS_DEDUP_KEY") != null) {
+            archiveConfig.setEventsDedupKey(Arrays.asList(System.getenv("ARCHIVE_EVENTS_DEDUP_KEY").split(",")));
+        }
+
+        appConfig.setArchiveConfig(archiveConfig);
+
         // Load InfluxDB / FlightSQL config
         InfluxConfig influxConfig = new InfluxConfig();
         if (config.hasPath("influx.host")) {
@@ -197,6 +353,43 @@ public class ConfigLoader {
             influxConfig.setQueryTemplate(oldTemplate); // This sets both templates if not already set
         }
 
+        // Batched verification: grouped templates and the number of blobs per query
+        if (config.hasPath("influx.queryDataBatchTemplate")) {
+            influxConfig.setQueryDataBatchTemplate(config.getString("influx.queryDataBatchTemplate"));
+        } else if (System.getenv("INFLUX_QUERY_DATA_BATCH_TEMPLATE") != null) {
+            influxConfig.setQueryDataBatchTemplate(System.getenv("INFLUX_QUERY_DATA_BATCH_TEMPLATE"));
+        }
+
+        if (config.hasPath("influx.queryEventsBatchTemplate")) {
+            influxConfig.setQueryEventsBatchTemplate(config.getString("influx.queryEventsBatchTemplate"));
+        } else if (System.getenv("INFLUX_QUERY_EVENTS_BATCH_TEMPLATE") != null) {
+            influxConfig.setQueryEventsBatchTemplate(System.getenv("INFLUX_QUERY_EVENTS_BATCH_TEMPLATE"));
+        }
+
+        if (config.hasPath("influx.verificationBatchSize")) {
+            influxConfig.setVerificationBatchSize(config.getInt("influx.verificationBatchSize"));
+        } else if (System.getenv("INFLUX_VERIFICATION_BATCH_SIZE") != null) {
+            influxConfig.setVerificationBatchSize(Integer.parseInt(System.getenv("INFLUX_VERIFICATION_BATCH_SIZE")));
+        }
+
+        if (config.hasPath("influx.maxVerificationConcurrency")) {
+            influxConfig.setMaxVerificationConcurrency(config.getInt("influx.maxVerificationConcurrency"));
+        } else if (System.getenv("INFLUX_MAX_VERIFICATION_CONCURRENCY") != null) {
+            influxConfig.setMaxVerificationConcurrency(Integer.parseInt(System.getenv("INFLUX_MAX_VERIFICATION_CONCURRENCY")));
+        }
+
+        if (config.hasPath("influx.arrowFlightClient")) {
+            influxConfig.setArrowFlightClient(config.getBoolean("influx.arrowFlightClient"));
+        } else if (System.getenv("INFLUX_ARROW_FLIGHT_CLIENT") != null) {
+            influxConfig.setArrowFlightClient(Boolean.parseBoolean(System.getenv("INFLUX_ARROW_FLIGHT_CLIENT")));
+        }
+
+        if (config.hasPath("influx.flightChannels")) {
+            influxConfig.setFlightChannels(config.getInt("influx.flightChannels"));
+        } else if (System.getenv("INFLUX_FLIGHT_CHANNELS") != null) {
+            influxConfig.setFlightChannels(Integer.parseInt(System.getenv("INFLUX_FLIGHT_CHANNELS")));
+        }
+
         if (config.hasPath("influx.skipTlsValidation")) {
             influxConfig.setSkipTlsValidation(config.getBoolean("influx.skipTlsValidation"));
         } else if (System.getenv("INFLUX_SKIP_TLS_VALIDATION") != null) {
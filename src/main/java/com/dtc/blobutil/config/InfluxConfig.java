@@ -11,6 +11,12 @@ public class InfluxConfig {
     private String queryDataTemplate; // Template for data files (IRIS_Data_*)
     private String queryEventsTemplate; // Template for events files (IRIS_Events_*)
     private String queryTemplate; // Deprecated: kept for backward compatibility
+    private String queryDataBatchTemplate; // Grouped template for batches of data files
+    private String queryEventsBatchTemplate; // Grouped template for batches of events files
+    private int verificationBatchSize; // Blobs verified per batched query, 1 = one query per blob
+    private int maxVerificationConcurrency; // Upper bound of the adaptive verification concurrency
+    private boolean arrowFlightClient; // Use the Arrow Flight client instead of the official client for grpc
+    private int flightChannels; // gRPC channels of the Arrow Flight client
     private boolean skipTlsValidation;
     private String protocol; // "grpc", "http", or "https"
     private boolean useHttps; // Deprecated: use protocol instead
@@ -18,6 +24,10 @@ public class InfluxConfig {
     public InfluxConfig() {
         this.protocol = "grpc"; // Default to gRPC (FlightSQL)
         this.skipTlsValidation = false;
+        this.verificationBatchSize = 1; // Default: one query per blob
+        this.maxVerificationConcurrency = 16; // Default: up to 16 concurrent verification queries
+        this.arrowFlightClient = false; // Default: official InfluxDB 3 client
+        this.flightChannels = 4; // Default: 4 channels
     }
 
     public String getHost() {
@@ -112,6 +122,96 @@ public class InfluxConfig {
         }
     }
 
+    /**
+     * Grouped SQL query template for batches of data files (IRIS_Data_*).
+     * The single %s placeholder is replaced with the comma-separated, quoted file names, and the
+     * query must return one row per file name with the file name and its count.
+     * For example:
+     * SELECT file_name, count(*) FROM iris_data
+     *   WHERE time >= NOW() - INTERVAL '1 day'
+     *     AND file_name IN (%s)
+     *   GROUP BY file_name
+     */
+    public String getQueryDataBatchTemplate() {
+        return queryDataBatchTemplate;
+    }
+
+    public void setQueryDataBatchTemplate(String queryDataBatchTemplate) {
+        this.queryDataBatchTemplate = queryDataBatchTemplate;
+    }
+
+    /**
+     * Grouped SQL query template for batches of events files (IRIS_Events_*).
+     * Same form as {@link #getQueryDataBatchTemplate()}.
+     */
+    public String getQueryEventsBatchTemplate() {
+        return queryEventsBatchTemplate;
+    }
+
+    public void setQueryEventsBatchTemplate(String queryEventsBatchTemplate) {
+        this.queryEventsBatchTemplate = queryEventsBatchTemplate;
+    }
+
+    /**
+     * Maximum number of blobs verified by one batched query.
+     * Blobs of a type without a batch template are still verified one query per blob.
+     * Default: 1 (batching disabled)
+     */
+    public int getVerificationBatchSize() {
+        return verificationBatchSize;
+    }
+
+    public void setVerificationBatchSize(int verificationBatchSize) {
+        if (verificationBatchSize < 1) {
+            throw new IllegalArgumentException("influx.verificationBatchSize must be >= 1. Got: " + verificationBatchSize);
+        }
+        this.verificationBatchSize = verificationBatchSize;
+    }
+
+    /**
+     * Maximum number of verification queries run at once. The actual concurrency adapts to the
+     * latency and errors of the Influx queries, starting at 1 and never exceeding this value.
+     * Default: 16 (1 = one query at a time)
+     */
+    public int getMaxVerificationConcurrency() {
+        return maxVerificationConcurrency;
+    }
+
+    public void setMaxVerificationConcurrency(int maxVerificationConcurrency) {
+        if (maxVerificationConcurrency < 1) {
+            throw new IllegalArgumentException("influx.maxVerificationConcurrency must be >= 1. Got: " + maxVerificationConcurrency);
+        }
+        this.maxVerificationConcurrency = maxVerificationConcurrency;
+    }
+
+    /**
+     * If true, protocol "grpc" uses the Arrow Flight client, which reads result vectors directly,
+     * binds file names as query parameters and spreads queries over several channels.
+     * Default: false (official InfluxDB 3 client)
+     */
+    public boolean isArrowFlightClient() {
+        return arrowFlightClient;
+    }
+
+    public void setArrowFlightClient(boolean arrowFlightClient) {
+        this.arrowFlightClient = arrowFlightClient;
+    }
+
+    /**
+     * Number of gRPC channels the Arrow Flight client spreads its queries over.
+     * Default: 4
+     */
+    public int getFlightChannels() {
+        return flightChannels;
+    }
+
+    public void setFlightChannels(int flightChannels) {
+        if (flightChannels < 1) {
+            throw new IllegalArgumentException("influx.flightChannels must be >= 1. Got: " + flightChannels);
+        }
+        this.flightChannels = flightChannels;
+    }
+
     /**
      * If true, connect without TLS (insecure). Only use in non-production environments.
      */
@@ -0,0 +1,203 @@
+package com.dtc.blobutil.dao;
+
+import com.dtc.blobutil.model.AppendBlobState;
+import com.dtc.blobutil.model.FileSummary;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.nio.ByteBuffer;
+import java.sql.*;
+
+/**
+ * Data Access Object for the counting state of append blobs.
+ *
+ * One row per append blob holds the byte offset counted so far, the hashes of the distinct record
+ * keys (BYTEA, 8 bytes each) and the summary of the counted records (JSONB). When the blob is
+ * updated, only the bytes after the offset are downloaded and counted on top of this state.
+ */
+public class AppendStateDao {
+    private static final Logger logger = LoggerFactory.getLogger(AppendStateDao.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final DataSource dataSource;
+    private final String tableName;
+    private final String schema;
+
+    public AppendStateDao(DataSource dataSource, String schema, String tableName) {
+        this.dataSource = dataSource;
+        this.schema = schema;
+        this.tableName = tableName;
+    }
+
+    /**
+     * Initialize the append state table if it doesn't exist
+     */
+    public void initializeTable() throws SQLException {
+        String createTableSql = String.format(
+            "CREATE TABLE IF NOT EXISTS %s.%s (" +
+            "blob_name VARCHAR(1024) PRIMARY KEY, " +
+            "record_type VARCHAR(10) NOT NULL, " +
+            "committed_offset BIGINT NOT NULL, " +
+            "tail_length INTEGER NOT NULL, " +
+            "tail_md5 VARCHAR(32), " +
+            "total_records INTEGER NOT NULL, " +
+            "distinct_records INTEGER NOT NULL, " +
+            "key_hashes BYTEA NOT NULL, " +
+            "summary JSONB, " +
+            "etag VARCHAR(255), " +
+            "key_hash_version INTEGER, " +
+            "updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP" +
+            ");",
+            schema, tableName
+        );
+        String addKeyHashVersionSql = String.format(
+            "ALTER TABLE %s.%s ADD COLUMN IF NOT EXISTS key_hash_version INTEGER;",
+            schema, tableName
+        );
+
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            stmt.execute(createTableSql);
+            stmt.execute(addKeyHashVersionSql);
+            logger.info("Table {} initialized successfully", tableName);
+        }
+    }
+
+    /**
+     * Get the saved state of an append blob
+     * @param blobName The blob name
+     * @return The state, or null if the blob has not been counted incrementally or its key hashes
+     *         were computed by another version of the key hashing (the blob is then counted in full)
+     */
+    public AppendBlobState get(String blobName) throws SQLException {
+        String sql = String.format(
+            "SELECT record_type, committed_offset, tail_length, tail_md5, total_records, key_hashes, summary, etag, " +
+            "key_hash_version " +
+            "FROM %s.%s WHERE blob_name = ?",
+            schema, tableName
+        );
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, blobName);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                int keyHashVersion = rs.getInt("key_hash_version"); // 0 for states saved before the column existed
+                if (keyHashVersion != AppendBlobState.KEY_HASH_VERSION) {
+                    logger.info("Append state of blob {} has key hash version {}, current is {}. Counting it in full",
+                        blobName, keyHashVersion, AppendBlobState.KEY_HASH_VERSION);
+                    return null;
+                }
+                AppendBlobState state = new AppendBlobState();
+                state.setRecordType(rs.getString("record_type"));
+                state.setCommittedOffset(rs.getLong("committed_offset"));
+                state.setTailLength(rs.getInt("tail_length"));
+                state.setTailMd5(rs.getString("tail_md5"));
+                state.setTotalRecords(rs.getInt("total_records"));
+                state.setKeyHashes(decodeHashes(rs.getBytes("key_hashes")));
+                String summary = rs.getString("summary");
+                if (summary != null) {
+                    try {
+                        state.setSummary(objectMapper.readValue(summary, FileSummary.class));
+                    } catch (JsonProcessingException e) {
+                        throw new SQLException("Failed to read the saved summary of append blob: " + blobName, e);
+                    }
+                }
+                state.setEtag(rs.getString("etag"));
+                return state;
+            }
+        }
+    }
+
+    /**
+     * Save the state of an append blob, replacing the previous state
+     * @param blobName The blob name
+     * @param state The state after the latest count
+     */
+    public void upsert(String blobName, AppendBlobState state) throws SQLException {
+        String sql = String.format(
+            "INSERT INTO %s.%s (blob_name, record_type, committed_offset, tail_length, tail_md5, " +
+            "total_records, distinct_records, key_hashes, summary, etag, key_hash_version, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?::jsonb, ?, ?, NOW()) " +
+            "ON CONFLICT (blob_name) DO UPDATE SET " +
+            "record_type = EXCLUDED.record_type, " +
+            "committed_offset = EXCLUDED.committed_offset, " +
+            "tail_length = EXCLUDED.tail_length, " +
+            "tail_md5 = EXCLUDED.tail_md5, " +
+            "total_records = EXCLUDED.total_records, " +
+            "distinct_records = EXCLUDED.distinct_records, " +
+            "key_hashes = EXCLUDED.key_hashes, " +
+            "summary = EXCLUDED.summary, " +
+            "etag = EXCLUDED.etag, " +
+            "key_hash_version = EXCLUDED.key_hash_version, " +
+            "updated_at = NOW()",
+            schema, tableName
+        );
+
+        String summaryJson;
+        try {
+            summaryJson = state.getSummary() != null ? objectMapper.writeValueAsString(state.getSummary()) : null;
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Failed to serialize the summary of append blob: " + blobName, e);
+        }
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, blobName);
+            pstmt.setString(2, state.getRecordType());
+            pstmt.setLong(3, state.getCommittedOffset());
+            pstmt.setInt(4, state.getTailLength());
+            pstmt.setString(5, state.getTailMd5());
+            pstmt.setInt(6, state.getTotalRecords());
+            pstmt.setInt(7, state.getDistinctRecords());
+            pstmt.setBytes(8, encodeHashes(state.getKeyHashes()));
+            pstmt.setString(9, summaryJson);
+            pstmt.setString(10, state.getEtag());
+            pstmt.setInt(11, state.getKeyHashVersion());
+
+            pstmt.executeUpdate();
+            logger.debug("Saved append state for blob: {} (offset {})", blobName, state.getCommittedOffset());
+        }
+    }
+
+    /**
+     * Remove the state of a blob that is no longer counted incrementally
+     * @param blobName The blob name
+     */
+    public void delete(String blobName) throws SQLException {
+        String sql = String.format("DELETE FROM %s.%s WHERE blob_name = ?", schema, tableName);
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, blobName);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static byte[] encodeHashes(long[] hashes) {
+        if (hashes == null) {
+            return new byte[0];
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(hashes.length * Long.BYTES);
+        buffer.asLongBuffer().put(hashes);
+        return buffer.array();
+    }
+
+    private static long[] decodeHashes(byte[] bytes) {
+        long[] hashes = new long[bytes.length / Long.BYTES];
+        ByteBuffer.wrap(bytes).asLongBuffer().get(hashes);
+        return hashes;
+    }
+}
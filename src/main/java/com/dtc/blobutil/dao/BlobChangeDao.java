@@ -1,6 +1,7 @@
 package com.dtc.blobutil.dao;
 
 import com.dtc.blobutil.model.BlobChangeEvent;
+import com.dtc.blobutil.model.ProcessedContent;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.slf4j.Logger;
@@ -86,6 +87,26 @@ public class BlobChangeDao {
             schema, tableName
         );
 
+        String alterTableSql5 = String.format(
+            "ALTER TABLE %s.%s ADD COLUMN IF NOT EXISTS content_etag VARCHAR(255);",
+            schema, tableName
+        );
+
+        String alterTableSql6 = String.format(
+            "ALTER TABLE %s.%s ADD COLUMN IF NOT EXISTS content_md5 VARCHAR(64);",
+            schema, tableName
+        );
+
+        String alterTableSql7 = String.format(
+            "ALTER TABLE %s.%s ADD COLUMN IF NOT EXISTS retry_count INTEGER;",
+            schema, tableName
+        );
+
+        String alterTableSql8 = String.format(
+            "ALTER TABLE %s.%s ADD COLUMN IF NOT EXISTS next_attempt_at TIMESTAMP WITH TIME ZONE;",
+            schema, tableName
+        );
+
         try (Connection conn = dataSource.getConnection();
              Statement stmt = conn.createStatement()) {
             
@@ -96,6 +117,10 @@ public class BlobChangeDao {
             stmt.execute(alterTableSql2);
             stmt.execute(alterTableSql3);
             stmt.execute(alterTableSql4);
+            stmt.execute(alterTableSql5);
+            stmt.execute(alterTableSql6);
+            stmt.execute(alterTableSql7);
+            stmt.execute(alterTableSql8);
             logger.info("Table {} initialized successfully", tableName);
         }
     }
@@ -189,55 +214,57 @@ public class BlobChangeDao {
     }
 
     /**
-     * Get blob names that are older than the specified minutes and need processing
-     * Excludes files that are already completed or permanently failed
+     * Get blob names that are older than the specified minutes and need processing, with the retries
+     * already made for each (retry_count, 0 if none), so the retry limit holds across cycles and restarts.
+     * Excludes files that are already completed, permanently failed or missing from the archive container,
+     * and files whose retry backoff (next_attempt_at) has not elapsed yet
      * @param minutesOld Minimum age in minutes
-     * @return List of blob names
+     * @return Retry count per blob name, ordered by blob name
      */
-    public java.util.List<String> getBlobNamesOlderThan(int minutesOld) throws SQLException {
+    public Map<String, Integer> getBlobRetryCountsOlderThan(int minutesOld) throws SQLException {
         String sql = String.format(
-            "SELECT DISTINCT blob_name FROM %s.%s " +
+            "SELECT blob_name, MAX(COALESCE(retry_count, 0)) AS retry_count FROM %s.%s " +
             "WHERE last_modified < NOW() - INTERVAL '%d minutes' " +
             "AND (total_records IS NULL OR distinct_records IS NULL) " +
-            "AND (processing_status IS NULL OR processing_status NOT IN ('COMPLETED', 'FAILED')) " +
+            "AND (processing_status IS NULL OR processing_status NOT IN ('COMPLETED', 'FAILED', 'MISSING')) " +
+            "AND (next_attempt_at IS NULL OR next_attempt_at <= NOW()) " +
+            "GROUP BY blob_name " +
             "ORDER BY blob_name",
             schema, tableName, minutesOld
         );
-
-        java.util.List<String> blobNames = new java.util.ArrayList<>();
-        try (Connection conn = dataSource.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            while (rs.next()) {
-                blobNames.add(rs.getString("blob_name"));
-            }
-        }
-        return blobNames;
+        return queryRetryCounts(sql);
     }
 
     /**
-     * Get blob names that have completed archive processing and are ready for Influx verification.
-     * We consider blobs with processing_status = 'COMPLETED' or 'VERIFIED_FAILED' as candidates.
+     * Get blob names that have completed archive processing and are ready for Influx verification,
+     * with the verification retries already made for each (retry_count, 0 if none).
+     * We consider blobs with processing_status = 'COMPLETED', 'VERIFIED_FAILED' or 'VERIFY_RETRY' as candidates,
+     * skipping blobs whose retry backoff (next_attempt_at) has not elapsed yet.
+     * @return Retry count per blob name, ordered by blob name
      */
-    public java.util.List<String> getBlobNamesForInfluxVerification() throws SQLException {
+    public Map<String, Integer> getBlobRetryCountsForInfluxVerification() throws SQLException {
         String sql = String.format(
-            "SELECT DISTINCT blob_name FROM %s.%s " +
-            "WHERE processing_status IN ('COMPLETED', 'VERIFIED_FAILED') " +
+            "SELECT blob_name, MAX(COALESCE(retry_count, 0)) AS retry_count FROM %s.%s " +
+            "WHERE processing_status IN ('COMPLETED', 'VERIFIED_FAILED', 'VERIFY_RETRY') " +
+            "AND (next_attempt_at IS NULL OR next_attempt_at <= NOW()) " +
+            "GROUP BY blob_name " +
             "ORDER BY blob_name",
             schema, tableName
         );
+        return queryRetryCounts(sql);
+    }
 
-        java.util.List<String> blobNames = new java.util.ArrayList<>();
+    private Map<String, Integer> queryRetryCounts(String sql) throws SQLException {
+        Map<String, Integer> retryCounts = new java.util.LinkedHashMap<>();
         try (Connection conn = dataSource.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                blobNames.add(rs.getString("blob_name"));
+                retryCounts.put(rs.getString("blob_name"), rs.getInt("retry_count"));
             }
         }
-        return blobNames;
+        return retryCounts;
     }
 
     /**
@@ -275,7 +302,7 @@ public class BlobChangeDao {
     /**
      * Update processing status for a blob
      * @param blobName The blob name
-     * @param status The processing status (e.g., 'PROCESSING', 'COMPLETED', 'FAILED')
+     * @param status The processing status (e.g., 'PROCESSING', 'COMPLETED', 'FAILED', 'MISSING')
      */
     public void updateProcessingStatus(String blobName, String status) throws SQLException {
         String sql = String.format(
@@ -301,6 +328,39 @@ public class BlobChangeDao {
         }
     }
 
+    /**
+     * Record a scheduled retry for a blob so the backoff is respected across polling cycles and restarts
+     * @param blobName The blob name
+     * @param status The processing status while the retry is pending (e.g., 'RETRY', 'VERIFY_RETRY')
+     * @param retryCount The retry attempt number that is scheduled
+     * @param nextAttemptAt Time at which the retry becomes due
+     */
+    public void scheduleRetry(String blobName, String status, int retryCount, OffsetDateTime nextAttemptAt) throws SQLException {
+        String sql = String.format(
+            "UPDATE %s.%s " +
+            "SET processing_status = ?, retry_count = ?, next_attempt_at = ? " +
+            "WHERE blob_name = ? " +
+            "AND event_type IN ('BlobCreated', 'BlobPropertiesUpdated', 'BlobMetadataUpdated')",
+            schema, tableName
+        );
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, status);
+            pstmt.setInt(2, retryCount);
+            pstmt.setObject(3, nextAttemptAt, Types.TIMESTAMP_WITH_TIMEZONE);
+            pstmt.setString(4, blobName);
+
+            int updated = pstmt.executeUpdate();
+            if (updated > 0) {
+                logger.debug("Scheduled retry {} for blob: {} at {} (status: {})", retryCount, blobName, nextAttemptAt, status);
+            } else {
+                logger.warn("No rows updated for blob: {}", blobName);
+            }
+        }
+    }
+
     /**
      * Update record counts and status for a blob (atomic operation)
      * @param blobName The blob name
@@ -335,6 +395,81 @@ public class BlobChangeDao {
         }
     }
 
+    /**
+     * Update record counts and status for a blob together with the fingerprint of the content
+     * that produced them (atomic operation)
+     * @param blobName The blob name
+     * @param totalRecords Total number of records
+     * @param distinctRecords Number of distinct records
+     * @param status The processing status
+     * @param contentEtag ETag of the processed blob version
+     * @param contentMd5 Base64 MD5 of the processed content
+     */
+    public void updateRecordCountsAndStatus(String blobName, int totalRecords, int distinctRecords, String status,
+                                            String contentEtag, String contentMd5) throws SQLException {
+        String sql = String.format(
+            "UPDATE %s.%s " +
+            "SET total_records = ?, distinct_records = ?, processing_status = ?, content_etag = ?, content_md5 = ?, " +
+            "retry_count = NULL, next_attempt_at = NULL " +
+            "WHERE blob_name = ? " +
+            "AND event_type IN ('BlobCreated', 'BlobPropertiesUpdated', 'BlobMetadataUpdated')",
+            schema, tableName
+        );
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, totalRecords);
+            pstmt.setInt(2, distinctRecords);
+            pstmt.setString(3, status);
+            pstmt.setString(4, contentEtag);
+            pstmt.setString(5, contentMd5);
+            pstmt.setString(6, blobName);
+
+            int updated = pstmt.executeUpdate();
+            if (updated > 0) {
+                logger.debug("Updated record counts and status for blob: {} (total: {}, distinct: {}, status: {}, etag: {}, md5: {})",
+                    blobName, totalRecords, distinctRecords, status, contentEtag, contentMd5);
+            } else {
+                logger.warn("No rows updated for blob: {}", blobName);
+            }
+        }
+    }
+
+    /**
+     * Get the fingerprint and record counts of the content last processed for a blob
+     * @param blobName The blob name
+     * @return ProcessedContent, or null if the blob has never been processed with a content fingerprint
+     */
+    public ProcessedContent getProcessedContent(String blobName) throws SQLException {
+        String sql = String.format(
+            "SELECT content_etag, content_md5, total_records, distinct_records FROM %s.%s " +
+            "WHERE blob_name = ? " +
+            "AND total_records IS NOT NULL AND distinct_records IS NOT NULL " +
+            "AND (content_etag IS NOT NULL OR content_md5 IS NOT NULL) " +
+            "ORDER BY last_modified DESC NULLS LAST " +
+            "LIMIT 1",
+            schema, tableName
+        );
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, blobName);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                ProcessedContent content = new ProcessedContent();
+                content.setEtag(rs.getString("content_etag"));
+                content.setContentMd5(rs.getString("content_md5"));
+                content.setTotalRecords(rs.getInt("total_records"));
+                content.setDistinctRecords(rs.getInt("distinct_records"));
+                return content;
+            }
+        }
+    }
+
     /**
      * Update InfluxDB count for a blob
      * @param blobName The blob name
@@ -373,7 +508,7 @@ public class BlobChangeDao {
     public void updateInfluxCountAndStatus(String blobName, long influxCount, String status) throws SQLException {
         String sql = String.format(
             "UPDATE %s.%s " +
-            "SET influx_count = ?, processing_status = ? " +
+            "SET influx_count = ?, processing_status = ?, retry_count = NULL, next_attempt_at = NULL " +
             "WHERE blob_name = ? " +
             "AND event_type IN ('BlobCreated', 'BlobPropertiesUpdated', 'BlobMetadataUpdated')",
             schema, tableName
@@ -396,6 +531,69 @@ public class BlobChangeDao {
         }
     }
 
+    /**
+     * Update processing status for several blobs with one statement
+     * @param blobNames The blob names
+     * @param status The processing status
+     */
+    public void updateProcessingStatus(java.util.Collection<String> blobNames, String status) throws SQLException {
+        String sql = String.format(
+            "UPDATE %s.%s " +
+            "SET processing_status = ? " +
+            "WHERE blob_name = ANY(?) " +
+            "AND event_type IN ('BlobCreated', 'BlobPropertiesUpdated', 'BlobMetadataUpdated')",
+            schema, tableName
+        );
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, status);
+            pstmt.setArray(2, conn.createArrayOf("varchar", blobNames.toArray()));
+
+            int updated = pstmt.executeUpdate();
+            logger.debug("Updated processing status of {} rows for {} blobs to {}", updated, blobNames.size(), status);
+        }
+    }
+
+    /**
+     * Update InfluxDB counts and processing status for several blobs in one JDBC batch
+     * @param influxCounts The count from InfluxDB per blob name
+     * @param status The processing status
+     */
+    public void updateInfluxCountsAndStatus(Map<String, Long> influxCounts, String status) throws SQLException {
+        String sql = String.format(
+            "UPDATE %s.%s " +
+            "SET influx_count = ?, processing_status = ?, retry_count = NULL, next_attempt_at = NULL " +
+            "WHERE blob_name = ? " +
+            "AND event_type IN ('BlobCreated', 'BlobPropertiesUpdated', 'BlobMetadataUpdated')",
+            schema, tableName
+        );
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            for (Map.Entry<String, Long> entry : influxCounts.entrySet()) {
+                pstmt.setLong(1, entry.getValue());
+                pstmt.setString(2, status);
+                pstmt.setString(3, entry.getKey());
+                pstmt.addBatch();
+            }
+
+            int[] updated = pstmt.executeBatch();
+            int blobsWithoutRows = 0;
+            for (int count : updated) {
+                if (count == 0) {
+                    blobsWithoutRows++;
+                }
+            }
+            if (blobsWithoutRows > 0) {
+                logger.warn("No rows updated for {} of {} blobs", blobsWithoutRows, influxCounts.size());
+            }
+            logger.debug("Updated InfluxDB count and status for {} blobs (status: {})", influxCounts.size(), status);
+        }
+    }
+
     /**
      * Create a HikariCP DataSource
      */
@@ -0,0 +1,225 @@
+package com.dtc.blobutil.dao;
+
+import com.dtc.blobutil.model.FileSummary;
+import com.dtc.blobutil.model.ValueStatistics;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.Map;
+
+/**
+ * Data Access Object for the per-file summary of processed archive files.
+ *
+ * One row per blob holds the record type, the Header of the file, the time range of its records
+ * and the record count per Fullname (JSONB), so investigations can query Postgres instead of
+ * downloading the archive file again. Data files also store the statistics of their Value field,
+ * for the whole file in columns and per Fullname as JSONB. The row is replaced each time the file
+ * is counted, except for the cross-file duplicate estimate: a recount finds the file's own records
+ * in the duplicate index, so the estimate from the first count is kept. When an append blob is
+ * counted incrementally, the estimate for the appended records is added to it instead.
+ */
+public class FileSummaryDao {
+    private static final Logger logger = LoggerFactory.getLogger(FileSummaryDao.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private final DataSource dataSource;
+    private final String tableName;
+    private final String schema;
+
+    public FileSummaryDao(DataSource dataSource, String schema, String tableName) {
+        this.dataSource = dataSource;
+        this.schema = schema;
+        this.tableName = tableName;
+    }
+
+    /**
+     * Initialize the summary table if it doesn't exist
+     */
+    public void initializeTable() throws SQLException {
+        String createTableSql = String.format(
+            "CREATE TABLE IF NOT EXISTS %s.%s (" +
+            "blob_name VARCHAR(1024) PRIMARY KEY, " +
+            "record_type VARCHAR(10) NOT NULL, " +
+            "system_name VARCHAR(255), " +
+            "header_start_date VARCHAR(100), " +
+            "header_end_date VARCHAR(100), " +
+            "min_time TIMESTAMP WITH TIME ZONE, " +
+            "max_time TIMESTAMP WITH TIME ZONE, " +
+            "fullname_count INTEGER NOT NULL DEFAULT 0, " +
+            "fullname_counts JSONB, " +
+            "value_count BIGINT, " +
+            "value_nan_count BIGINT, " +
+            "value_min DOUBLE PRECISION, " +
+            "value_max DOUBLE PRECISION, " +
+            "value_mean DOUBLE PRECISION, " +
+            "value_stddev DOUBLE PRECISION, " +
+            "value_statistics JSONB, " +
+            "cross_file_duplicates INTEGER, " +
+            "updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP" +
+            ");",
+            schema, tableName
+        );
+
+        String createIndexSql = String.format(
+            "CREATE INDEX IF NOT EXISTS idx_%s_time_range ON %s.%s(min_time, max_time);",
+            tableName, schema, tableName
+        );
+
+        // Add columns if they don't exist (for existing tables)
+        String[] alterTableSql = {
+            "value_count BIGINT",
+            "value_nan_count BIGINT",
+            "value_min DOUBLE PRECISION",
+            "value_max DOUBLE PRECISION",
+            "value_mean DOUBLE PRECISION",
+            "value_stddev DOUBLE PRECISION",
+            "value_statistics JSONB",
+            "cross_file_duplicates INTEGER"
+        };
+
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            stmt.execute(createTableSql);
+            for (String column : alterTableSql) {
+                stmt.execute(String.format("ALTER TABLE %s.%s ADD COLUMN IF NOT EXISTS %s;", schema, tableName, column));
+            }
+            stmt.execute(createIndexSql);
+            logger.info("Table {} initialized successfully", tableName);
+        }
+    }
+
+    /**
+     * Store the summary of a file, replacing the summary of a previously counted version
+     * @param blobName The blob name
+     * @param summary The summary computed while counting the file
+     */
+    public void upsert(String blobName, FileSummary summary) throws SQLException {
+        upsert(blobName, summary, false);
+    }
+
+    /**
+     * Store the summary of a file, replacing the summary of a previously counted version
+     * @param blobName The blob name
+     * @param summary The summary computed while counting the file
+     * @param appended true if the summary continues the stored one and its duplicate estimate covers only appended records
+     */
+    public void upsert(String blobName, FileSummary summary, boolean appended) throws SQLException {
+        String crossFileDuplicates = appended
+            ? "COALESCE(s.cross_file_duplicates + EXCLUDED.cross_file_duplicates, s.cross_file_duplicates, EXCLUDED.cross_file_duplicates)"
+            : "COALESCE(s.cross_file_duplicates, EXCLUDED.cross_file_duplicates)";
+        String sql = String.format(
+            "INSERT INTO %s.%s AS s (blob_name, record_type, system_name, header_start_date, header_end_date, " +
+            "min_time, max_time, fullname_count, fullname_counts, value_count, value_nan_count, " +
+            "value_min, value_max, value_mean, value_stddev, value_statistics, cross_file_duplicates, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?::jsonb, ?, ?, ?, ?, ?, ?, ?::jsonb, ?, NOW()) " +
+            "ON CONFLICT (blob_name) DO UPDATE SET " +
+            "record_type = EXCLUDED.record_type, " +
+            "system_name = EXCLUDED.system_name, " +
+            "header_start_date = EXCLUDED.header_start_date, " +
+            "header_end_date = EXCLUDED.header_end_date, " +
+            "min_time = EXCLUDED.min_time, " +
+            "max_time = EXCLUDED.max_time, " +
+            "fullname_count = EXCLUDED.fullname_count, " +
+            "fullname_counts = EXCLUDED.fullname_counts, " +
+            "value_count = EXCLUDED.value_count, " +
+            "value_nan_count = EXCLUDED.value_nan_count, " +
+            "value_min = EXCLUDED.value_min, " +
+            "value_max = EXCLUDED.value_max, " +
+            "value_mean = EXCLUDED.value_mean, " +
+            "value_stddev = EXCLUDED.value_stddev, " +
+            "value_statistics = EXCLUDED.value_statistics, " +
+            "cross_file_duplicates = %s, " +
+            "updated_at = NOW()",
+            schema, tableName, crossFileDuplicates
+        );
+
+        String fullnameCountsJson;
+        String valueStatisticsJson;
+        try {
+            fullnameCountsJson = objectMapper.writeValueAsString(summary.getFullnameCounts());
+            valueStatisticsJson = summary.getFullnameValueStatistics() != null
+                ? objectMapper.writeValueAsString(toJson(summary.getFullnameValueStatistics()))
+                : null;
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Failed to serialize Fullname counts for blob: " + blobName, e);
+        }
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, blobName);
+            pstmt.setString(2, summary.getRecordType());
+            pstmt.setString(3, summary.getSystemName());
+            pstmt.setString(4, summary.getHeaderStartDate());
+            pstmt.setString(5, summary.getHeaderEndDate());
+            pstmt.setObject(6, summary.getMinTime(), Types.TIMESTAMP_WITH_TIMEZONE);
+            pstmt.setObject(7, summary.getMaxTime(), Types.TIMESTAMP_WITH_TIMEZONE);
+            pstmt.setInt(8, summary.getFullnameCounts() != null ? summary.getFullnameCounts().size() : 0);
+            pstmt.setString(9, fullnameCountsJson);
+
+            ValueStatistics values = summary.getValueStatistics();
+            if (values != null) {
+                pstmt.setLong(10, values.getCount());
+                pstmt.setLong(11, values.getNanCount());
+            } else {
+                pstmt.setNull(10, Types.BIGINT);
+                pstmt.setNull(11, Types.BIGINT);
+            }
+            setStatistic(pstmt, 12, values != null ? values.getMin() : Double.NaN);
+            setStatistic(pstmt, 13, values != null ? values.getMax() : Double.NaN);
+            setStatistic(pstmt, 14, values != null ? values.getMean() : Double.NaN);
+            setStatistic(pstmt, 15, values != null ? values.getStddev() : Double.NaN);
+            pstmt.setString(16, valueStatisticsJson);
+            if (summary.getCrossFileDuplicates() != null) {
+                pstmt.setInt(17, summary.getCrossFileDuplicates());
+            } else {
+                pstmt.setNull(17, Types.INTEGER);
+            }
+
+            pstmt.executeUpdate();
+            logger.debug("Stored summary for blob: {}", blobName);
+        }
+    }
+
+    /**
+     * Store a statistic, or NULL if it is undefined (no values in the file)
+     */
+    private static void setStatistic(PreparedStatement pstmt, int index, double value) throws SQLException {
+        if (Double.isNaN(value)) {
+            pstmt.setNull(index, Types.DOUBLE);
+        } else {
+            pstmt.setDouble(index, value);
+        }
+    }
+
+    /**
+     * Per-Fullname statistics as a JSON object, with undefined statistics as null instead of "NaN"
+     */
+    private static ObjectNode toJson(Map<String, ValueStatistics> statistics) {
+        ObjectNode json = objectMapper.createObjectNode();
+        for (Map.Entry<String, ValueStatistics> entry : statistics.entrySet()) {
+            ValueStatistics values = entry.getValue();
+            ObjectNode node = json.putObject(entry.getKey());
+            node.put("count", values.getCount());
+            node.put("nanCount", values.getNanCount());
+            putStatistic(node, "min", values.getMin());
+            putStatistic(node, "max", values.getMax());
+            putStatistic(node, "mean", values.getMean());
+            putStatistic(node, "stddev", values.getStddev());
+        }
+        return json;
+    }
+
+    private static void putStatistic(ObjectNode node, String name, double value) {
+        if (Double.isNaN(value)) {
+            node.putNull(name);
+        } else {
+            node.put(name, value);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.dtc.blobutil.dao;
+
+import com.dtc.blobutil.model.FailureCategory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object for the quarantine of archive files that failed processing.
+ *
+ * A file has at most one quarantine row holding its failure category, the number of failures
+ * and the last error. Files in a transient category get a next_reprocess_at time that grows with
+ * each failure, so they are retried a bounded number of times; other files stay until they are
+ * replayed manually or processed successfully (which releases them).
+ */
+public class QuarantineDao {
+    private static final Logger logger = LoggerFactory.getLogger(QuarantineDao.class);
+    private static final int MAX_ERROR_LENGTH = 4000;
+    private final DataSource dataSource;
+    private final String tableName;
+    private final String schema;
+
+    public QuarantineDao(DataSource dataSource, String schema, String tableName) {
+        this.dataSource = dataSource;
+        this.schema = schema;
+        this.tableName = tableName;
+    }
+
+    /**
+     * Initialize the quarantine table if it doesn't exist
+     */
+    public void initializeTable() throws SQLException {
+        String createTableSql = String.format(
+            "CREATE TABLE IF NOT EXISTS %s.%s (" +
+            "blob_name VARCHAR(1024) PRIMARY KEY, " +
+            "failure_category VARCHAR(20) NOT NULL, " +
+            "attempt_count INTEGER NOT NULL DEFAULT 1, " +
+            "last_error TEXT, " +
+            "first_failed_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP, " +
+            "last_failed_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP, " +
+            "next_reprocess_at TIMESTAMP WITH TIME ZONE" +
+            ");",
+            schema, tableName
+        );
+
+        String createIndexSql = String.format(
+            "CREATE INDEX IF NOT EXISTS idx_%s_next_reprocess_at ON %s.%s(next_reprocess_at);",
+            tableName, schema, tableName
+        );
+
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            stmt.execute(createTableSql);
+            stmt.execute(createIndexSql);
+            logger.info("Table {} initialized successfully", tableName);
+        }
+    }
+
+    /**
+     * Quarantine a file, or record another failure for a file that is already quarantined
+     * @param blobName The blob name
+     * @param category The failure category
+     * @param error The error that caused the failure
+     * @param reprocessDelayMinutes Base reprocessing delay; multiplied by the attempt count for transient categories
+     * @return The number of failures recorded for the file
+     */
+    public int quarantine(String blobName, FailureCategory category, Throwable error, int reprocessDelayMinutes)
+            throws SQLException {
+        String sql = String.format(
+            "INSERT INTO %1$s.%2$s AS q (blob_name, failure_category, attempt_count, last_error, " +
+            "first_failed_at, last_failed_at, next_reprocess_at) " +
+            "VALUES (?, ?, 1, ?, NOW(), NOW(), CASE WHEN ? THEN NOW() + make_interval(mins => ?) END) " +
+            "ON CONFLICT (blob_name) DO UPDATE SET " +
+            "failure_category = EXCLUDED.failure_category, " +
+            "attempt_count = q.attempt_count + 1, " +
+            "last_error = EXCLUDED.last_error, " +
+            "last_failed_at = NOW(), " +
+            "next_reprocess_at = CASE WHEN ? THEN NOW() + make_interval(mins => ? * (q.attempt_count + 1)) END " +
+            "RETURNING attempt_count",
+            schema, tableName
+        );
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, blobName);
+            pstmt.setString(2, category.name());
+            pstmt.setString(3, describe(error));
+            pstmt.setBoolean(4, category.isTransient());
+            pstmt.setInt(5, reprocessDelayMinutes);
+            pstmt.setBoolean(6, category.isTransient());
+            pstmt.setInt(7, reprocessDelayMinutes);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int attempts = rs.next() ? rs.getInt(1) : 1;
+                logger.debug("Quarantined blob: {} (category: {}, attempts: {})", blobName, category, attempts);
+                return attempts;
+            }
+        }
+    }
+
+    /**
+     * Get quarantined files in a transient category whose reprocessing delay has elapsed
+     * @param maxAttempts Files that have failed this many times are no longer reprocessed automatically
+     * @return List of blob names
+     */
+    public List<String> getBlobNamesDueForReprocessing(int maxAttempts) throws SQLException {
+        String sql = String.format(
+            "SELECT blob_name FROM %s.%s " +
+            "WHERE next_reprocess_at IS NOT NULL AND next_reprocess_at <= NOW() " +
+            "AND attempt_count < ? " +
+            "ORDER BY next_reprocess_at",
+            schema, tableName
+        );
+
+        List<String> blobNames = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, maxAttempts);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    blobNames.add(rs.getString("blob_name"));
+                }
+            }
+        }
+        return blobNames;
+    }
+
+    /**
+     * Get all quarantined files, optionally restricted to one failure category (for bulk replay)
+     * @param category The failure category, or null for all categories
+     * @return List of blob names
+     */
+    public List<String> getQuarantinedBlobNames(FailureCategory category) throws SQLException {
+        String sql = String.format(
+            "SELECT blob_name FROM %s.%s " +
+            "WHERE (CAST(? AS VARCHAR) IS NULL OR failure_category = ?) " +
+            "ORDER BY blob_name",
+            schema, tableName
+        );
+
+        List<String> blobNames = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            String categoryName = category != null ? category.name() : null;
+            pstmt.setString(1, categoryName);
+            pstmt.setString(2, categoryName);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    blobNames.add(rs.getString("blob_name"));
+                }
+            }
+        }
+        return blobNames;
+    }
+
+    /**
+     * Remove a file from quarantine after it was processed successfully
+     * @param blobName The blob name
+     */
+    public void release(String blobName) throws SQLException {
+        String sql = String.format(
+            "DELETE FROM %s.%s WHERE blob_name = ?",
+            schema, tableName
+        );
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, blobName);
+            if (pstmt.executeUpdate() > 0) {
+                logger.info("Released blob from quarantine: {}", blobName);
+            }
+        }
+    }
+
+    /**
+     * Error description for the last_error column: the exception and its root cause, truncated
+     */
+    private static String describe(Throwable error) {
+        if (error == null) {
+            return null;
+        }
+        Throwable root = error;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        String description = error.getClass().getSimpleName() + ": " + error.getMessage();
+        if (root != error) {
+            description += " (caused by " + root.getClass().getSimpleName() + ": " + root.getMessage() + ")";
+        }
+        return description.length() > MAX_ERROR_LENGTH ? description.substring(0, MAX_ERROR_LENGTH) : description;
+    }
+}
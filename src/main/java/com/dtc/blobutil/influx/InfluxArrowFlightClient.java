@@ -0,0 +1,268 @@
+package com.dtc.blobutil.influx;
+
+import com.dtc.blobutil.config.InfluxConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.arrow.flight.CallOption;
+import org.apache.arrow.flight.CallOptions;
+import org.apache.arrow.flight.FlightCallHeaders;
+import org.apache.arrow.flight.FlightClient;
+import org.apache.arrow.flight.FlightStream;
+import org.apache.arrow.flight.HeaderCallOption;
+import org.apache.arrow.flight.Location;
+import org.apache.arrow.flight.Ticket;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BaseIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.LargeVarCharVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ViewVarCharVector;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryProvider;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * InfluxDB 3 client on Arrow Flight directly, without the official client library.
+ *
+ * Queries are sent as the JSON ticket InfluxDB 3 accepts on DoGet (database, sql_query, query_type and
+ * params), the same protocol the official client uses. Compared to {@link InfluxFlightClient}:
+ *  - Result batches are read from their vectors (BIGINT counts, UTF-8 or dictionary-encoded file names)
+ *    instead of being boxed into an Object[] per row.
+ *  - File names are bound as query parameters ($file_name, or $file_name_0, $file_name_1, ... for a
+ *    batch) instead of being quoted into the SQL, when the template allows it.
+ *  - Queries are spread round-robin over a pool of clients, each with its own gRPC channel, so that
+ *    concurrent verification queries are not all multiplexed over one HTTP/2 connection.
+ */
+public class InfluxArrowFlightClient implements InfluxClient {
+    private static final Logger logger = LoggerFactory.getLogger(InfluxArrowFlightClient.class);
+    private static final String FILE_NAME_COLUMN = "file_name";
+    private static final String QUOTED_PLACEHOLDER = "'%s'"; // Single-file template placeholder that becomes $file_name
+    private static final long QUERY_TIMEOUT_SECONDS = 60;
+    private static final int MAX_INBOUND_MESSAGE_SIZE = 64 * 1024 * 1024;
+
+    private final InfluxConfig config;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BufferAllocator allocator;
+    private final FlightClient[] channels;
+    private final AtomicInteger nextChannel = new AtomicInteger();
+    private final CallOption[] callOptions;
+
+    public InfluxArrowFlightClient(InfluxConfig cfg) {
+        this.config = cfg;
+
+        // Same mapping as InfluxFlightClient: skipTlsValidation connects without TLS
+        Location location = cfg.isSkipTlsValidation()
+            ? Location.forGrpcInsecure(cfg.getHost(), cfg.getPort())
+            : Location.forGrpcTls(cfg.getHost(), cfg.getPort());
+        int channelCount = cfg.getFlightChannels();
+
+        logger.info("Initializing InfluxDB 3 Arrow Flight client:");
+        logger.info("  Location: {}", location.getUri());
+        logger.info("  Database: {}", cfg.getDatabase());
+        logger.info("  Channels: {}", channelCount);
+        if (cfg.isSkipTlsValidation()) {
+            logger.warn("Influx Arrow Flight: skipTlsValidation=true, using insecure connection (not recommended for production)");
+        }
+
+        this.allocator = new RootAllocator(Long.MAX_VALUE);
+        this.channels = new FlightClient[channelCount];
+        for (int i = 0; i < channelCount; i++) {
+            channels[i] = FlightClient.builder(allocator, location)
+                .maxInboundMessageSize(MAX_INBOUND_MESSAGE_SIZE)
+                .build();
+        }
+
+        FlightCallHeaders headers = new FlightCallHeaders();
+        headers.insert("authorization", "Bearer " + cfg.getToken());
+        this.callOptions = new CallOption[]{
+            new HeaderCallOption(headers),
+            CallOptions.timeout(QUERY_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+        };
+    }
+
+    /**
+     * Execute a SQL query expected to return a single row whose first integer column is the count
+     */
+    @Override
+    public long queryCount(String sql) throws Exception {
+        return executeCount(sql, null);
+    }
+
+    /**
+     * Execute the count query of one file, bound as $file_name when the template quotes its placeholder
+     */
+    @Override
+    public long queryCount(String queryTemplate, String fileName) throws Exception {
+        if (!queryTemplate.contains(QUOTED_PLACEHOLDER)) {
+            return queryCount(String.format(queryTemplate, fileName));
+        }
+        Map<String, Object> params = new HashMap<>(2);
+        params.put(FILE_NAME_COLUMN, fileName);
+        // Still formatted like the unbound query, so escapes such as %% in the template are resolved
+        String sql = String.format(queryTemplate.replace(QUOTED_PLACEHOLDER, "%s"), "$" + FILE_NAME_COLUMN);
+        return executeCount(sql, params);
+    }
+
+    private long executeCount(String sql, Map<String, Object> params) throws Exception {
+        logger.debug("Executing InfluxDB Arrow Flight query: {}", sql);
+        try (FlightStream stream = nextChannel().getStream(ticket(sql, params), callOptions)) {
+            while (stream.next()) {
+                VectorSchemaRoot root = stream.getRoot();
+                if (root.getRowCount() == 0) {
+                    continue;
+                }
+                BaseIntVector counts = countVector(root, -1);
+                long count = counts.isNull(0) ? 0 : counts.getValueAsLong(0);
+                logger.debug("Influx Arrow Flight count(*) result: {}", count);
+                return count;
+            }
+        }
+        throw new IllegalStateException("No rows returned for count(*) query");
+    }
+
+    /**
+     * Execute a grouped SQL query returning the file name and its count per row
+     */
+    @Override
+    public Map<String, Long> queryCountsByFileName(String sql) throws Exception {
+        return executeCountsByFileName(sql, null);
+    }
+
+    /**
+     * Execute the grouped count query of a batch of files, bound as $file_name_0, $file_name_1, ...
+     */
+    @Override
+    public Map<String, Long> queryCountsByFileName(String queryTemplate, List<String> fileNames) throws Exception {
+        StringBuilder placeholders = new StringBuilder();
+        Map<String, Object> params = new LinkedHashMap<>(fileNames.size() * 2);
+        for (int i = 0; i < fileNames.size(); i++) {
+            String name = FILE_NAME_COLUMN + "_" + i;
+            if (i > 0) {
+                placeholders.append(", ");
+            }
+            placeholders.append('$').append(name);
+            params.put(name, fileNames.get(i));
+        }
+        return executeCountsByFileName(String.format(queryTemplate, placeholders), params);
+    }
+
+    private Map<String, Long> executeCountsByFileName(String sql, Map<String, Object> params) throws Exception {
+        logger.debug("Executing InfluxDB Arrow Flight grouped query: {}", sql);
+        Map<String, Long> counts = new HashMap<>();
+        try (FlightStream stream = nextChannel().getStream(ticket(sql, params), callOptions)) {
+            DictionaryProvider dictionaries = stream.getDictionaryProvider();
+            while (stream.next()) {
+                VectorSchemaRoot root = stream.getRoot();
+                int rows = root.getRowCount();
+                if (rows == 0) {
+                    continue;
+                }
+                int fileNameIndex = fileNameIndex(root);
+                FieldVector fileNames = root.getVector(fileNameIndex);
+                BaseIntVector dictionaryIndices = null;
+                DictionaryEncoding encoding = fileNames.getField().getDictionary();
+                if (encoding != null) {
+                    // Tags arrive dictionary-encoded: the column holds indices into the dictionary of names
+                    dictionaryIndices = (BaseIntVector) fileNames;
+                    Dictionary dictionary = dictionaries.lookup(encoding.getId());
+                    fileNames = dictionary.getVector();
+                }
+                BaseIntVector countValues = countVector(root, fileNameIndex);
+
+                for (int row = 0; row < rows; row++) {
+                    int nameRow = dictionaryIndices != null ? (int) dictionaryIndices.getValueAsLong(row) : row;
+                    String fileName = readString(fileNames, nameRow);
+                    long count = countValues.isNull(row) ? 0 : countValues.getValueAsLong(row);
+                    counts.merge(fileName, count, Long::sum);
+                }
+            }
+        }
+        logger.debug("Influx Arrow Flight grouped query returned {} file names", counts.size());
+        return counts;
+    }
+
+    private FlightClient nextChannel() {
+        return channels[Math.floorMod(nextChannel.getAndIncrement(), channels.length)];
+    }
+
+    private Ticket ticket(String sql, Map<String, Object> params) throws Exception {
+        Map<String, Object> ticket = new LinkedHashMap<>();
+        ticket.put("database", config.getDatabase());
+        ticket.put("sql_query", sql);
+        ticket.put("query_type", "sql");
+        if (params != null && !params.isEmpty()) {
+            ticket.put("params", params);
+        }
+        return new Ticket(objectMapper.writeValueAsBytes(ticket));
+    }
+
+    /**
+     * The file_name column, else the first column
+     */
+    private static int fileNameIndex(VectorSchemaRoot root) {
+        List<Field> fields = root.getSchema().getFields();
+        for (int i = 0; i < fields.size(); i++) {
+            if (FILE_NAME_COLUMN.equals(fields.get(i).getName())) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * The first integer column other than the file name
+     */
+    private static BaseIntVector countVector(VectorSchemaRoot root, int fileNameIndex) {
+        List<FieldVector> vectors = root.getFieldVectors();
+        for (int i = 0; i < vectors.size(); i++) {
+            FieldVector vector = vectors.get(i);
+            if (i != fileNameIndex && vector instanceof BaseIntVector && vector.getField().getDictionary() == null) {
+                return (BaseIntVector) vector;
+            }
+        }
+        throw new IllegalStateException("Expected an integer count column, got schema: " + root.getSchema());
+    }
+
+    private static String readString(FieldVector vector, int row) {
+        byte[] bytes;
+        if (vector instanceof VarCharVector) {
+            bytes = ((VarCharVector) vector).get(row);
+        } else if (vector instanceof ViewVarCharVector) {
+            bytes = ((ViewVarCharVector) vector).get(row);
+        } else if (vector instanceof LargeVarCharVector) {
+            bytes = ((LargeVarCharVector) vector).get(row);
+        } else {
+            Object value = vector.getObject(row);
+            return value != null ? value.toString() : null;
+        }
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+
+    @Override
+    public void close() {
+        for (FlightClient channel : channels) {
+            try {
+                channel.close();
+            } catch (Exception e) {
+                logger.warn("Error closing InfluxDB Arrow Flight channel", e);
+            }
+        }
+        try {
+            allocator.close();
+        } catch (Exception e) {
+            logger.warn("Error closing Arrow allocator", e);
+        }
+    }
+}
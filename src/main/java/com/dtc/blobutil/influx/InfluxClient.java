@@ -1,5 +1,8 @@
 package com.dtc.blobutil.influx;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * Interface for InfluxDB clients (both FlightSQL and HTTP)
  */
@@ -8,6 +11,36 @@ public interface InfluxClient extends AutoCloseable {
      * Execute a SQL query and return count result
      */
     long queryCount(String sql) throws Exception;
+
+    /**
+     * Execute a grouped SQL query returning one row per file name with the file name and its count
+     * @return count per file name; file names without a row are absent
+     */
+    Map<String, Long> queryCountsByFileName(String sql) throws Exception;
+
+    /**
+     * Execute the count query of one file
+     * @param queryTemplate Template with a single %s placeholder for the file name
+     */
+    default long queryCount(String queryTemplate, String fileName) throws Exception {
+        return queryCount(String.format(queryTemplate, fileName));
+    }
+
+    /**
+     * Execute the grouped count query of a batch of files
+     * @param queryTemplate Template with a single %s placeholder for the comma-separated, quoted file names
+     * @return count per file name; file names without a row are absent
+     */
+    default Map<String, Long> queryCountsByFileName(String queryTemplate, List<String> fileNames) throws Exception {
+        StringBuilder list = new StringBuilder();
+        for (String fileName : fileNames) {
+            if (list.length() > 0) {
+                list.append(", ");
+            }
+            list.append('\'').append(fileName.replace("'", "''")).append('\'');
+        }
+        return queryCountsByFileName(String.format(queryTemplate, list));
+    }
 }
 
 
@@ -26,7 +26,11 @@ public class InfluxClientFactory {
         String protocolLower = protocol.toLowerCase().trim();
         logger.debug("Normalized protocol: '{}'", protocolLower);
         
-        if ("grpc".equals(protocolLower)) {
+        if ("grpc".equals(protocolLower) && config.isArrowFlightClient()) {
+            logger.info("Using InfluxArrowFlightClient (Arrow Flight/gRPC, {} channels) for protocol: {}",
+                config.getFlightChannels(), protocol);
+            return new InfluxArrowFlightClient(config);
+        } else if ("grpc".equals(protocolLower)) {
             logger.info("Using InfluxFlightClient (FlightSQL/gRPC) for protocol: {}", protocol);
             return new InfluxFlightClient(config);
         } else if ("http".equals(protocolLower) || "https".equals(protocolLower)) {
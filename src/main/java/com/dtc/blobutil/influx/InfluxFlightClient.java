@@ -5,6 +5,8 @@ import com.influxdb.v3.client.InfluxDBClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.stream.Stream;
 
 /**
@@ -103,28 +105,69 @@ public class InfluxFlightClient implements InfluxClient {
                 return count;
             }
         } catch (Exception e) {
-            // Provide helpful error messages for common issues
-            Throwable cause = e.getCause();
-            if (cause != null && cause.getMessage() != null) {
-                String message = cause.getMessage();
-                if (message.contains("First received frame was not SETTINGS") || 
-                    message.contains("HTTP/") || 
-                    message.contains("http2")) {
-                    throw new RuntimeException(
-                        "FlightSQL (gRPC/HTTP2) connection failed. The server appears to be responding with HTTP/1.1 instead of HTTP/2. " +
-                        "This usually means:\n" +
-                        "1. You're trying to connect to an HTTP REST API endpoint instead of a FlightSQL endpoint\n" +
-                        "2. Your configuration has protocol='http' or 'https' but FlightSQL client is being used\n" +
-                        "3. The port you're using is for HTTP REST API, not FlightSQL\n\n" +
-                        "Solution: Check your configuration file and ensure:\n" +
-                        "- For HTTP REST API: set influx.protocol = \"http\" or \"https\"\n" +
-                        "- For FlightSQL: set influx.protocol = \"grpc\" and use the correct FlightSQL port (typically 443 for TLS, 8082 for insecure)\n" +
-                        "If you see this error, verify that InfluxClientFactory is correctly selecting the client type based on your protocol setting.",
-                        e);
+            throw explainConnectionFailure(e);
+        }
+    }
+
+    /**
+     * Execute a grouped SQL query whose rows start with the file name followed by its count,
+     * e.g. SELECT file_name, count(*) ... GROUP BY file_name
+     */
+    public Map<String, Long> queryCountsByFileName(String sql) throws Exception {
+        logger.info("Executing InfluxDB FlightSQL grouped query: {}", sql);
+
+        try (Stream<Object[]> stream = client.query(sql)) {
+            Map<String, Long> counts = new HashMap<>();
+            stream.forEach(row -> {
+                if (row.length < 2 || row[0] == null) {
+                    throw new IllegalStateException("Expected rows of (file_name, count), got " + row.length + " columns");
                 }
+                counts.merge(row[0].toString(), toCount(row[1]), Long::sum);
+            });
+            logger.debug("Influx FlightSQL grouped query returned {} file names", counts.size());
+            return counts;
+        } catch (Exception e) {
+            throw explainConnectionFailure(e);
+        }
+    }
+
+    private static long toCount(Object countValue) {
+        if (countValue instanceof Number) {
+            return ((Number) countValue).longValue();
+        }
+        if (countValue instanceof String) {
+            return Long.parseLong((String) countValue);
+        }
+        throw new IllegalStateException(
+            "Expected numeric value for count(*), got: " +
+            (countValue != null ? countValue.getClass().getName() : "null"));
+    }
+
+    /**
+     * Replace a failure caused by an HTTP/1.1 endpoint with an explanation of the likely misconfiguration
+     */
+    private static Exception explainConnectionFailure(Exception e) {
+        // Provide helpful error messages for common issues
+        Throwable cause = e.getCause();
+        if (cause != null && cause.getMessage() != null) {
+            String message = cause.getMessage();
+            if (message.contains("First received frame was not SETTINGS") || 
+                message.contains("HTTP/") || 
+                message.contains("http2")) {
+                return new RuntimeException(
+                    "FlightSQL (gRPC/HTTP2) connection failed. The server appears to be responding with HTTP/1.1 instead of HTTP/2. " +
+                    "This usually means:\n" +
+                    "1. You're trying to connect to an HTTP REST API endpoint instead of a FlightSQL endpoint\n" +
+                    "2. Your configuration has protocol='http' or 'https' but FlightSQL client is being used\n" +
+                    "3. The port you're using is for HTTP REST API, not FlightSQL\n\n" +
+                    "Solution: Check your configuration file and ensure:\n" +
+                    "- For HTTP REST API: set influx.protocol = \"http\" or \"https\"\n" +
+                    "- For FlightSQL: set influx.protocol = \"grpc\" and use the correct FlightSQL port (typically 443 for TLS, 8082 for insecure)\n" +
+                    "If you see this error, verify that InfluxClientFactory is correctly selecting the client type based on your protocol setting.",
+                    e);
             }
-            throw e;
         }
+        return e;
     }
 
     @Override
@@ -0,0 +1,290 @@
+package com.dtc.blobutil.influx;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming extraction of counts from InfluxDB query responses, without building a tree of the response.
+ *
+ * Two response formats are understood:
+ *  - InfluxQL (v1 compatibility API): {"results": [{"series": [{"tags": {...}, "columns": [...],
+ *    "values": [[...], ...]}]}]}, where the count is the last column and only the first result is read.
+ *  - Direct array: [{"count(*)": n}, ...] or [n], where the count is the "count(*)" field, else the
+ *    "count" field, else the first numeric field of a row.
+ *
+ * A grouped query names each row by its file_name column, or by the file_name tag of its series.
+ */
+final class InfluxResponseParser {
+    private static final String FILE_NAME_COLUMN = "file_name";
+
+    private InfluxResponseParser() {
+    }
+
+    /**
+     * Read the count of a count(*) query: the first row of the response
+     */
+    static long parseCount(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_OBJECT) {
+            Long count = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("results".equals(field) && value == JsonToken.START_ARRAY) {
+                    List<Long> counts = new ArrayList<>(1);
+                    readFirstResult(parser, (fileName, rowCount) -> counts.add(rowCount), true);
+                    // An empty result has no series: nothing matched the query
+                    return counts.isEmpty() ? 0L : counts.get(0);
+                } else if ("count".equals(field) && value.isNumeric()) {
+                    count = parser.getLongValue();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (count != null) {
+                return count;
+            }
+            throw new IllegalStateException("Could not extract count from InfluxDB response: object without results or count");
+        }
+
+        if (token == JsonToken.START_ARRAY) {
+            JsonToken first = parser.nextToken();
+            if (first == JsonToken.END_ARRAY) {
+                return 0L;
+            }
+            if (first.isNumeric()) {
+                return parser.getLongValue();
+            }
+            if (first == JsonToken.START_OBJECT) {
+                Row row = readRowObject(parser);
+                if (row.count == null) {
+                    throw new IllegalStateException("Could not extract count from array response. " +
+                        "Expected count(*) to return a count value, got a row without numeric fields");
+                }
+                return row.count;
+            }
+            throw new IllegalStateException("Could not extract count from array response. First item type: " + first);
+        }
+
+        throw new IllegalStateException("Could not extract count from InfluxDB response starting with " + token);
+    }
+
+    /**
+     * Read the counts of a grouped query, one per file name
+     */
+    static Map<String, Long> parseCountsByFileName(JsonParser parser) throws IOException {
+        Map<String, Long> counts = new HashMap<>();
+        RowConsumer consumer = (fileName, count) -> {
+            if (fileName == null) {
+                throw new IllegalStateException("Grouped count query returned a row without " + FILE_NAME_COLUMN);
+            }
+            counts.merge(fileName, count, Long::sum);
+        };
+
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                if ("results".equals(field) && parser.nextToken() == JsonToken.START_ARRAY) {
+                    readFirstResult(parser, consumer, false);
+                    return counts;
+                }
+                parser.skipChildren();
+            }
+            throw new IllegalStateException("Could not extract counts from InfluxDB response: object without results");
+        }
+
+        if (token == JsonToken.START_ARRAY) {
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                Row row = readRowObject(parser);
+                if (row.count == null) {
+                    throw new IllegalStateException("Grouped count query returned a row without a count for " + row.fileName);
+                }
+                consumer.accept(row.fileName, row.count);
+            }
+            return counts;
+        }
+
+        throw new IllegalStateException("Could not extract counts from InfluxDB response starting with " + token);
+    }
+
+    /**
+     * Receiver of (file name, count) rows; the file name is null when the response does not carry one
+     */
+    private interface RowConsumer {
+        void accept(String fileName, long count);
+    }
+
+    /**
+     * Read the first element of the results array, positioned at its START_ARRAY, and skip the others
+     * @param firstRowOnly Stop at the first row of the first series
+     */
+    private static void readFirstResult(JsonParser parser, RowConsumer consumer, boolean firstRowOnly) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        boolean done = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("error".equals(field)) {
+                throw new IllegalStateException("InfluxDB query error: " + parser.getValueAsString());
+            } else if ("series".equals(field) && value == JsonToken.START_ARRAY && !done) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    if (done) {
+                        parser.skipChildren();
+                    } else {
+                        done = readSeries(parser, consumer, firstRowOnly) && firstRowOnly;
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        // Remaining results
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            parser.skipChildren();
+        }
+    }
+
+    /**
+     * Read one series object, positioned at its START_OBJECT
+     * @return true if the series had a row
+     */
+    private static boolean readSeries(JsonParser parser, RowConsumer consumer, boolean firstRowOnly) throws IOException {
+        String tagFileName = null;
+        int fileNameIndex = -1;
+        boolean columnsSeen = false;
+        JsonNode earlyValues = null; // Values that arrived before the columns, rare
+        boolean hadRow = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("tags".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String tag = parser.getCurrentName();
+                    parser.nextToken();
+                    if (FILE_NAME_COLUMN.equals(tag)) {
+                        tagFileName = parser.getValueAsString();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if ("columns".equals(field) && value == JsonToken.START_ARRAY) {
+                columnsSeen = true;
+                int index = 0;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (FILE_NAME_COLUMN.equals(parser.getValueAsString())) {
+                        fileNameIndex = index;
+                    }
+                    index++;
+                }
+            } else if ("values".equals(field) && value == JsonToken.START_ARRAY) {
+                if (!columnsSeen) {
+                    earlyValues = parser.readValueAsTree();
+                    continue;
+                }
+                hadRow |= readValues(parser, fileNameIndex, tagFileName, consumer, firstRowOnly);
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (earlyValues != null) {
+            for (JsonNode row : earlyValues) {
+                if (row.size() == 0) {
+                    continue;
+                }
+                int countIndex = fileNameIndex == row.size() - 1 ? row.size() - 2 : row.size() - 1;
+                String fileName = fileNameIndex >= 0 ? row.get(fileNameIndex).asText() : tagFileName;
+                consumer.accept(fileName, row.get(countIndex).asLong());
+                hadRow = true;
+                if (firstRowOnly) {
+                    break;
+                }
+            }
+        }
+        return hadRow;
+    }
+
+    /**
+     * Stream the rows of a values array, positioned at its START_ARRAY. The count is the last column,
+     * or the one before it when the file name is last.
+     */
+    private static boolean readValues(JsonParser parser, int fileNameIndex, String tagFileName, RowConsumer consumer,
+                                      boolean firstRowOnly) throws IOException {
+        boolean hadRow = false;
+        while (parser.nextToken() == JsonToken.START_ARRAY) {
+            if (hadRow && firstRowOnly) {
+                parser.skipChildren();
+                continue;
+            }
+            String fileName = tagFileName;
+            long last = 0;
+            long beforeLast = 0;
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (index == fileNameIndex) {
+                    fileName = parser.getValueAsString();
+                }
+                beforeLast = last;
+                last = parser.getValueAsLong();
+                parser.skipChildren();
+                index++;
+            }
+            if (index == 0) {
+                continue;
+            }
+            consumer.accept(fileName, fileNameIndex == index - 1 ? beforeLast : last);
+            hadRow = true;
+        }
+        return hadRow;
+    }
+
+    /**
+     * Count and file name of a row object of the direct array format
+     */
+    private static final class Row {
+        String fileName;
+        Long count;
+    }
+
+    /**
+     * Read a row object, positioned at its START_OBJECT
+     */
+    private static Row readRowObject(JsonParser parser) throws IOException {
+        Row row = new Row();
+        Long countStar = null;
+        Long count = null;
+        Long firstNumeric = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (FILE_NAME_COLUMN.equals(field)) {
+                row.fileName = parser.getValueAsString();
+            } else if (value.isNumeric()) {
+                long number = parser.getLongValue();
+                if ("count(*)".equals(field)) {
+                    countStar = number;
+                } else if ("count".equals(field)) {
+                    count = number;
+                } else if (firstNumeric == null) {
+                    firstNumeric = number;
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        row.count = countStar != null ? countStar : count != null ? count : firstNumeric;
+        return row;
+    }
+}
@@ -0,0 +1,104 @@
+package com.dtc.blobutil.model;
+
+/**
+ * Counting state of an append blob, saved after each count so the next update of the blob only
+ * reads the bytes appended since. The committed offset is the end of the last complete line
+ * counted; a partially written last line is counted by the next update.
+ */
+public class AppendBlobState {
+    /**
+     * Version of the key hashing behind keyHashes. A state saved with another version is not
+     * comparable with new hashes, and its blob is counted in full again.
+     * 2: the record time is hashed as its parsed instant rather than as written.
+     */
+    public static final int KEY_HASH_VERSION = 2;
+
+    private String recordType; // DATA or EVENTS
+    private long committedOffset; // Bytes of the blob counted so far (ends at a line break)
+    private int tailLength; // Bytes before the committed offset covered by tailMd5
+    private String tailMd5; // Base64 MD5 of the tail bytes, to detect a blob that was rewritten instead of appended
+    private int totalRecords;
+    private long[] keyHashes; // Sorted 64-bit hashes of the dedup keys of the distinct records
+    private FileSummary summary; // Summary of the records counted so far
+    private String etag; // ETag of the blob version the state was computed from
+    private int keyHashVersion = KEY_HASH_VERSION; // Key hashing of keyHashes
+
+    public String getRecordType() {
+        return recordType;
+    }
+
+    public void setRecordType(String recordType) {
+        this.recordType = recordType;
+    }
+
+    public long getCommittedOffset() {
+        return committedOffset;
+    }
+
+    public void setCommittedOffset(long committedOffset) {
+        this.committedOffset = committedOffset;
+    }
+
+    public int getTailLength() {
+        return tailLength;
+    }
+
+    public void setTailLength(int tailLength) {
+        this.tailLength = tailLength;
+    }
+
+    public String getTailMd5() {
+        return tailMd5;
+    }
+
+    public void setTailMd5(String tailMd5) {
+        this.tailMd5 = tailMd5;
+    }
+
+    public int getTotalRecords() {
+        return totalRecords;
+    }
+
+    public void setTotalRecords(int totalRecords) {
+        this.totalRecords = totalRecords;
+    }
+
+    public long[] getKeyHashes() {
+        return keyHashes;
+    }
+
+    public void setKeyHashes(long[] keyHashes) {
+        this.keyHashes = keyHashes;
+    }
+
+    /**
+     * @return the number of distinct records counted so far
+     */
+    public int getDistinctRecords() {
+        return keyHashes != null ? keyHashes.length : 0;
+    }
+
+    public FileSummary getSummary() {
+        return summary;
+    }
+
+    public void setSummary(FileSummary summary) {
+        this.summary = summary;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    public int getKeyHashVersion() {
+        return keyHashVersion;
+    }
+
+    public void setKeyHashVersion(int keyHashVersion) {
+        this.keyHashVersion = keyHashVersion;
+    }
+}
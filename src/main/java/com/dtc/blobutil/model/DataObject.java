@@ -97,7 +97,8 @@ public class DataObject {
     }
 
     /**
-     * Equals and hashCode based on Id, Fullname, and Time (unique record identifier)
+     * Equals and hashCode based on Id, Fullname, and Time as written. Not used as the dedup key
+     * (archive.dataDedupKey), which compares Time by the instant it denotes: see DedupKey
      */
     @Override
     public boolean equals(Object o) {
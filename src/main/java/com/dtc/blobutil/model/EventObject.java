@@ -141,7 +141,8 @@ public class EventObject {
     }
 
     /**
-     * Equals and hashCode based on Id, Fullname, RecordTime, and SeqNo (unique record identifier for events)
+     * Equals and hashCode based on Id, Fullname, RecordTime, and SeqNo as written. Not used as the dedup
+     * key (archive.eventsDedupKey), which compares RecordTime by the instant it denotes: see DedupKey
      */
     @Override
     public boolean equals(Object o) {
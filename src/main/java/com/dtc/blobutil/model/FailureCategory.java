@@ -0,0 +1,26 @@
+package com.dtc.blobutil.model;
+
+/**
+ * Why an archive file ended up in quarantine
+ */
+public enum FailureCategory {
+    /** Content could not be parsed. Reprocessing the same bytes fails again, so only a manual replay retries it. */
+    PARSE(false),
+    /** Storage, network or database error. Usually transient, so the file is reprocessed automatically. */
+    IO(true),
+    /** Blob does not exist in the archive container. Only a manual replay retries it. */
+    MISSING(false);
+
+    private final boolean transientFailure;
+
+    FailureCategory(boolean transientFailure) {
+        this.transientFailure = transientFailure;
+    }
+
+    /**
+     * @return true if files in this category are reprocessed automatically (a bounded number of times)
+     */
+    public boolean isTransient() {
+        return transientFailure;
+    }
+}
@@ -0,0 +1,100 @@
+package com.dtc.blobutil.model;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+/**
+ * Summary of the records of one archive file, computed while the file is counted
+ */
+public class FileSummary {
+    private String recordType; // DATA or EVENTS
+    private String systemName; // Header SystemName, null if the file has no header
+    private String headerStartDate; // Header StartDate as written in the file
+    private String headerEndDate; // Header EndDate as written in the file
+    private OffsetDateTime minTime; // Earliest Time / RecordTime (UTC), null if none could be parsed
+    private OffsetDateTime maxTime; // Latest Time / RecordTime (UTC), null if none could be parsed
+    private Map<String, Integer> fullnameCounts; // Records per Fullname, in first-seen order
+    private ValueStatistics valueStatistics; // Value statistics of the whole file, null for events files
+    private Map<String, ValueStatistics> fullnameValueStatistics; // Value statistics per Fullname, null for events files
+    private Integer crossFileDuplicates; // Distinct records already seen in earlier files (estimate), null if not checked
+
+    public String getRecordType() {
+        return recordType;
+    }
+
+    public void setRecordType(String recordType) {
+        this.recordType = recordType;
+    }
+
+    public String getSystemName() {
+        return systemName;
+    }
+
+    public void setSystemName(String systemName) {
+        this.systemName = systemName;
+    }
+
+    public String getHeaderStartDate() {
+        return headerStartDate;
+    }
+
+    public void setHeaderStartDate(String headerStartDate) {
+        this.headerStartDate = headerStartDate;
+    }
+
+    public String getHeaderEndDate() {
+        return headerEndDate;
+    }
+
+    public void setHeaderEndDate(String headerEndDate) {
+        this.headerEndDate = headerEndDate;
+    }
+
+    public OffsetDateTime getMinTime() {
+        return minTime;
+    }
+
+    public void setMinTime(OffsetDateTime minTime) {
+        this.minTime = minTime;
+    }
+
+    public OffsetDateTime getMaxTime() {
+        return maxTime;
+    }
+
+    public void setMaxTime(OffsetDateTime maxTime) {
+        this.maxTime = maxTime;
+    }
+
+    public Map<String, Integer> getFullnameCounts() {
+        return fullnameCounts;
+    }
+
+    public void setFullnameCounts(Map<String, Integer> fullnameCounts) {
+        this.fullnameCounts = fullnameCounts;
+    }
+
+    public ValueStatistics getValueStatistics() {
+        return valueStatistics;
+    }
+
+    public void setValueStatistics(ValueStatistics valueStatistics) {
+        this.valueStatistics = valueStatistics;
+    }
+
+    public Map<String, ValueStatistics> getFullnameValueStatistics() {
+        return fullnameValueStatistics;
+    }
+
+    public void setFullnameValueStatistics(Map<String, ValueStatistics> fullnameValueStatistics) {
+        this.fullnameValueStatistics = fullnameValueStatistics;
+    }
+
+    public Integer getCrossFileDuplicates() {
+        return crossFileDuplicates;
+    }
+
+    public void setCrossFileDuplicates(Integer crossFileDuplicates) {
+        this.crossFileDuplicates = crossFileDuplicates;
+    }
+}
@@ -0,0 +1,58 @@
+package com.dtc.blobutil.model;
+
+/**
+ * Fingerprint of the blob content that produced the stored record counts.
+ * Used to skip re-parsing blobs whose content has not changed (e.g. metadata-only updates).
+ */
+public class ProcessedContent {
+    private String etag;
+    private String contentMd5; // Base64-encoded MD5 of the blob content
+    private int totalRecords;
+    private int distinctRecords;
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    public String getContentMd5() {
+        return contentMd5;
+    }
+
+    public void setContentMd5(String contentMd5) {
+        this.contentMd5 = contentMd5;
+    }
+
+    public int getTotalRecords() {
+        return totalRecords;
+    }
+
+    public void setTotalRecords(int totalRecords) {
+        this.totalRecords = totalRecords;
+    }
+
+    public int getDistinctRecords() {
+        return distinctRecords;
+    }
+
+    public void setDistinctRecords(int distinctRecords) {
+        this.distinctRecords = distinctRecords;
+    }
+
+    /**
+     * Check whether the current blob version has the same content as the processed one.
+     * A matching ETag means the blob is untouched; a matching Content-MD5 means only
+     * properties or metadata changed.
+     * @param currentEtag ETag of the current blob version
+     * @param currentContentMd5 Base64 Content-MD5 reported by the service, or null if not available
+     */
+    public boolean matches(String currentEtag, String currentContentMd5) {
+        if (etag != null && etag.equals(currentEtag)) {
+            return true;
+        }
+        return contentMd5 != null && contentMd5.equals(currentContentMd5);
+    }
+}
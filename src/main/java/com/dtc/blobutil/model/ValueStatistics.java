@@ -0,0 +1,86 @@
+package com.dtc.blobutil.model;
+
+/**
+ * Statistics of the Value field of ExportedData records. NaN values are counted separately and
+ * left out of the other statistics; null values are not counted at all.
+ */
+public class ValueStatistics {
+    private long count; // Values other than NaN
+    private long nanCount;
+    private double min;
+    private double max;
+    private double mean;
+    private double stddev; // Population standard deviation
+
+    public ValueStatistics() {
+    }
+
+    public ValueStatistics(long count, long nanCount, double min, double max, double mean, double stddev) {
+        this.count = count;
+        this.nanCount = nanCount;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.stddev = stddev;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getNanCount() {
+        return nanCount;
+    }
+
+    public void setNanCount(long nanCount) {
+        this.nanCount = nanCount;
+    }
+
+    /**
+     * @return the smallest value, NaN if there are no values
+     */
+    public double getMin() {
+        return min;
+    }
+
+    public void setMin(double min) {
+        this.min = min;
+    }
+
+    /**
+     * @return the largest value, NaN if there are no values
+     */
+    public double getMax() {
+        return max;
+    }
+
+    public void setMax(double max) {
+        this.max = max;
+    }
+
+    /**
+     * @return the mean value, NaN if there are no values
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    public void setMean(double mean) {
+        this.mean = mean;
+    }
+
+    /**
+     * @return the population standard deviation, NaN if there are no values
+     */
+    public double getStddev() {
+        return stddev;
+    }
+
+    public void setStddev(double stddev) {
+        this.stddev = stddev;
+    }
+}
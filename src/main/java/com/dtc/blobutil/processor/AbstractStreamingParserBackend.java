@@ -0,0 +1,87 @@
+package com.dtc.blobutil.processor;
+
+import com.dtc.blobutil.model.DataObject;
+import com.dtc.blobutil.model.EventObject;
+import com.dtc.blobutil.model.Header;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Base for backends that walk the ComplexData document with a token stream and only
+ * materialize one record at a time. Navigation to the Objects arrays is shared; subclasses
+ * decide how a single record object is read.
+ */
+public abstract class AbstractStreamingParserBackend implements JsonParserBackend {
+    private final JsonFactory jsonFactory;
+
+    protected AbstractStreamingParserBackend(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    @Override
+    public ParsedDocument parse(InputStream content, ArchiveRecordVisitor visitor) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(content)) {
+            return parseDocument(parser, visitor);
+        }
+    }
+
+    @Override
+    public ParsedDocument parse(byte[] content, ArchiveRecordVisitor visitor) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(content)) {
+            return parseDocument(parser, visitor);
+        }
+    }
+
+    /**
+     * Dictionary for the repeated string values of one document
+     * @return A new dictionary, or null if this backend does not dictionary-encode
+     */
+    protected StringDictionary newDictionary() {
+        return null;
+    }
+
+    /**
+     * Read a data record. The parser is positioned on the START_OBJECT of the record and must be
+     * left on its END_OBJECT.
+     * @param dictionary The document dictionary from {@link #newDictionary()}
+     */
+    protected abstract DataObject readData(JsonParser parser, StringDictionary dictionary) throws IOException;
+
+    /**
+     * Read an event record. The parser is positioned on the START_OBJECT of the record and must be
+     * left on its END_OBJECT.
+     * @param dictionary The document dictionary from {@link #newDictionary()}
+     */
+    protected abstract EventObject readEvent(JsonParser parser, StringDictionary dictionary) throws IOException;
+
+    private ParsedDocument parseDocument(JsonParser parser, ArchiveRecordVisitor visitor) throws IOException {
+        StringDictionary dictionary = newDictionary();
+        return ComplexDataReader.read(parser, dictionary, new ComplexDataReader.RecordHandler() {
+            @Override
+            public void record(JsonParser recordParser, boolean events) throws IOException {
+                if (events) {
+                    visitor.event(readEvent(recordParser, dictionary));
+                } else {
+                    visitor.data(readData(recordParser, dictionary));
+                }
+            }
+
+            @Override
+            public void nullRecord(boolean events) {
+                if (events) {
+                    visitor.event(null);
+                } else {
+                    visitor.data(null);
+                }
+            }
+
+            @Override
+            public void header(boolean events, Header header) {
+                visitor.header(events, header);
+            }
+        });
+    }
+}
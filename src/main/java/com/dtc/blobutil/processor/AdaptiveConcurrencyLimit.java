@@ -0,0 +1,165 @@
+package com.dtc.blobutil.processor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrency limit for requests to a shared service, adapted to how the service responds (AIMD).
+ *
+ * Each request holds a permit while it runs. A request that succeeds in usual time raises the limit
+ * by 1 / limit, so a fully used limit grows by about one per round of requests (additive increase).
+ * A request that fails, or takes more than LATENCY_TOLERANCE times the baseline latency, multiplies
+ * the limit by BACKOFF_RATIO (multiplicative decrease). Only requests started after the previous
+ * decrease can decrease it again, so one slow period costs one decrease however many requests it
+ * affected. The limit does not grow while less than half of it is in use.
+ *
+ * The baseline is the lowest latency of the last one to two windows of BASELINE_WINDOW successes,
+ * so a service that has become slower for good gets a new baseline once the faster samples age out.
+ */
+public final class AdaptiveConcurrencyLimit {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimit.class);
+    private static final double BACKOFF_RATIO = 0.7; // Factor applied to the limit on overload
+    private static final double LATENCY_TOLERANCE = 2.0; // Latency over baseline that counts as overload
+    private static final int BASELINE_WINDOW = 500; // Successes per window of the baseline minimum
+    private static final int REPORT_INTERVAL = 1000; // Requests between limit statistics in the log
+
+    private final String name;
+    private final int maxLimit;
+
+    // Guarded by this
+    private double limit;
+    private int inFlight;
+    private long baselineNanos; // 0 until the first success
+    private long previousWindowMinNanos = Long.MAX_VALUE;
+    private long windowMinNanos = Long.MAX_VALUE;
+    private int windowSamples;
+    private long lastDecreaseNanos;
+    private long requests;
+    private long decreases;
+
+    /**
+     * @param name Name of the requests, for logging
+     * @param initialLimit Limit before any request has completed
+     * @param maxLimit Upper bound of the limit
+     */
+    public AdaptiveConcurrencyLimit(String name, int initialLimit, int maxLimit) {
+        this.name = name;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(1, Math.min(initialLimit, maxLimit));
+        this.lastDecreaseNanos = System.nanoTime();
+    }
+
+    /**
+     * @return the current limit, rounded down
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Wait until a request fits in the limit
+     * @return the permit, to be released exactly once when the request completes
+     */
+    public Permit acquire() throws InterruptedException {
+        synchronized (this) {
+            while (inFlight >= (int) limit) {
+                wait();
+            }
+            inFlight++;
+            requests++;
+            if (requests % REPORT_INTERVAL == 0) {
+                logger.info("Concurrency of {} requests: limit {} of {}, {} decreases in {} requests, baseline latency {} ms",
+                    name, (int) limit, maxLimit, decreases, requests, TimeUnit.NANOSECONDS.toMillis(baselineNanos));
+            }
+        }
+        return new Permit(System.nanoTime());
+    }
+
+    private synchronized void abandon() {
+        inFlight--;
+        notifyAll();
+    }
+
+    private synchronized void complete(long startNanos, boolean failed) {
+        long now = System.nanoTime();
+        long latencyNanos = now - startNanos;
+        boolean overloaded = failed || (baselineNanos > 0 && latencyNanos > baselineNanos * LATENCY_TOLERANCE);
+
+        if (!failed) {
+            windowMinNanos = Math.min(windowMinNanos, latencyNanos);
+            if (++windowSamples == BASELINE_WINDOW) {
+                previousWindowMinNanos = windowMinNanos;
+                windowMinNanos = Long.MAX_VALUE;
+                windowSamples = 0;
+            }
+            baselineNanos = Math.min(previousWindowMinNanos, windowMinNanos);
+        }
+
+        if (overloaded) {
+            if (startNanos - lastDecreaseNanos >= 0) {
+                double previous = limit;
+                limit = Math.max(1, limit * BACKOFF_RATIO);
+                lastDecreaseNanos = now;
+                decreases++;
+                logger.debug("Decreased concurrency of {} requests from {} to {} ({}, {} ms)", name, (int) previous,
+                    (int) limit, failed ? "failed" : "slow", TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+            }
+        } else if (inFlight * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * Permission for one request to run
+     */
+    public final class Permit {
+        private volatile long startNanos;
+        private boolean released;
+
+        private Permit(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * Mark the request as sent; its latency is measured from here rather than from the acquisition
+         */
+        public void start() {
+            startNanos = System.nanoTime();
+        }
+
+        /**
+         * Return the permit and adapt the limit to the outcome of the request
+         * @param failed true if the request failed
+         */
+        public void release(boolean failed) {
+            if (markReleased()) {
+                complete(startNanos, failed);
+            }
+        }
+
+        /**
+         * Return the permit of a request that was not sent, leaving the limit as it is.
+         * Does nothing if the permit was already released.
+         */
+        public void abandon() {
+            if (markReleased()) {
+                AdaptiveConcurrencyLimit.this.abandon();
+            }
+        }
+
+        private boolean markReleased() {
+            synchronized (AdaptiveConcurrencyLimit.this) {
+                if (released) {
+                    return false;
+                }
+                released = true;
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.dtc.blobutil.processor;
+
+import com.dtc.blobutil.model.Header;
+
+/**
+ * Receives the records of an archive document as Arrow batches while it is parsed
+ */
+public interface ArchiveBatchVisitor {
+
+    /**
+     * The Header of a section, reported before or after its batches depending on the field order
+     * @param events true for the ExportedEvents section
+     */
+    default void header(boolean events, Header header) {
+    }
+
+    /**
+     * A full (or the final) batch of one section. Only valid during the call.
+     */
+    void batch(ArchiveRecordBatch batch);
+
+    /**
+     * A JSON null element of an Objects array, which has no row in the batches
+     * @param events true for the ExportedEvents section
+     */
+    void nullRecord(boolean events);
+}
@@ -0,0 +1,132 @@
+package com.dtc.blobutil.processor;
+
+import com.github.luben.zstd.ZstdInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compression of an archive file and streaming decoding of its content.
+ *
+ * The exporter can write gzip or zstd files. Compression is detected from the magic bytes at the
+ * start of the content, which cannot be wrong; Content-Encoding and Content-Type are only used to
+ * warn when the blob properties disagree with the bytes. Decompression is streamed straight into
+ * the parser, so the decompressed document is never buffered.
+ */
+public enum ArchiveCompression {
+    NONE,
+    GZIP,
+    ZSTD;
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveCompression.class);
+    private static final int MAGIC_LENGTH = 4;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Compression declared by the blob properties
+     * @param contentEncoding Content-Encoding of the blob, may be null
+     * @param contentType Content-Type of the blob, may be null
+     */
+    public static ArchiveCompression fromHeaders(String contentEncoding, String contentType) {
+        ArchiveCompression compression = fromName(contentEncoding);
+        if (compression != NONE) {
+            return compression;
+        }
+        if (contentType != null) {
+            String type = contentType.toLowerCase(Locale.ROOT);
+            if (type.contains("gzip")) {
+                return GZIP;
+            }
+            if (type.contains("zstd")) {
+                return ZSTD;
+            }
+        }
+        return NONE;
+    }
+
+    private static ArchiveCompression fromName(String contentEncoding) {
+        if (contentEncoding == null) {
+            return NONE;
+        }
+        String encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        if (encoding.equals("gzip") || encoding.equals("x-gzip")) {
+            return GZIP;
+        }
+        if (encoding.equals("zstd")) {
+            return ZSTD;
+        }
+        return NONE;
+    }
+
+    /**
+     * Compression detected from the first bytes of the content
+     * @param header Buffer holding the start of the content
+     * @param length Number of valid bytes in the buffer
+     */
+    public static ArchiveCompression fromMagic(byte[] header, int length) {
+        // gzip: 1F 8B
+        if (length >= 2 && (header[0] & 0xFF) == 0x1F && (header[1] & 0xFF) == 0x8B) {
+            return GZIP;
+        }
+        // zstd frame: 28 B5 2F FD (little-endian 0xFD2FB528)
+        if (length >= 4 && (header[0] & 0xFF) == 0x28 && (header[1] & 0xFF) == 0xB5
+                && (header[2] & 0xFF) == 0x2F && (header[3] & 0xFF) == 0xFD) {
+            return ZSTD;
+        }
+        return NONE;
+    }
+
+    /**
+     * Resolve the effective compression, warning when the blob properties disagree with the content
+     */
+    public static ArchiveCompression resolve(ArchiveCompression declared, ArchiveCompression detected, String blobName) {
+        if (declared != NONE && declared != detected) {
+            logger.warn("Blob {} is declared as {} but its content is {}; using the content", blobName, declared, detected);
+        }
+        return detected;
+    }
+
+    /**
+     * Open a decoding stream over raw archive content, detecting the compression from its magic bytes
+     * @param raw The raw (possibly compressed) content
+     * @param declared The compression declared by the blob properties
+     * @param blobName The blob name (for logging)
+     * @return A stream of the decompressed content
+     */
+    public static InputStream decode(InputStream raw, ArchiveCompression declared, String blobName) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(raw, BUFFER_SIZE);
+        byte[] header = new byte[MAGIC_LENGTH];
+        buffered.mark(MAGIC_LENGTH);
+        int length = buffered.readNBytes(header, 0, MAGIC_LENGTH);
+        buffered.reset();
+
+        ArchiveCompression compression = resolve(declared, fromMagic(header, length), blobName);
+        if (compression != NONE) {
+            logger.debug("Decoding {} content of blob {}", compression, blobName);
+        }
+        return compression.wrap(buffered);
+    }
+
+    /**
+     * Wrap a stream of content in this compression format with a decompressing stream
+     */
+    public InputStream wrap(InputStream in) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            case ZSTD:
+                try {
+                    return new ZstdInputStream(in);
+                } catch (LinkageError e) {
+                    throw new IOException("zstd decompression is not available on this platform: " + e.getMessage(), e);
+                }
+            default:
+                return in;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package com.dtc.blobutil.processor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Content-addressed on-disk LRU cache of downloaded archive files.
+ *
+ * Entries are keyed by (blob name, ETag), so a changed blob never hits a stale entry. The cache
+ * is capped at a configured number of bytes and evicts least recently used entries; entries that
+ * are currently being parsed are pinned and never evicted underneath a reader. The index is
+ * rebuilt from the directory on startup (ordered by file modification time), so the cache
+ * survives restarts.
+ *
+ * Each entry has a sidecar file with the blob name and the properties of the cached version, so the
+ * downloader can ask the service whether the cached version is still current (If-None-Match) before
+ * transferring any content.
+ */
+public class ArchiveFileCache {
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveFileCache.class);
+    private static final String ENTRY_SUFFIX = ".blob";
+    private static final String VERSION_SUFFIX = ".version";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // access order
+    private final Map<String, CachedVersion> latestVersions = new HashMap<>(); // Most recently cached version per blob name
+    private long totalBytes;
+
+    public ArchiveFileCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        loadExistingEntries();
+        logger.info("Archive file cache: directory={}, entries={}, size={} bytes, max={} bytes",
+            directory, entries.size(), totalBytes, maxBytes);
+    }
+
+    /**
+     * @return the most recently cached version of a blob, or null if no version is cached
+     */
+    public synchronized CachedVersion latestVersion(String blobName) {
+        return latestVersions.get(blobName);
+    }
+
+    /**
+     * Look up a cached copy of a blob
+     * @param blobName The blob name
+     * @param etag The current ETag of the blob
+     * @return The cached content (pinned until closed), or null on a cache miss
+     */
+    public DownloadedBlob get(String blobName, String etag) {
+        if (etag == null) {
+            return null;
+        }
+        String key = cacheKey(blobName, etag);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (!Files.exists(entry.path)) {
+                // Removed from disk behind our back
+                entries.remove(key);
+                forget(key, entry);
+                totalBytes -= entry.size;
+                return null;
+            }
+            entry.pins++;
+            touch(entry.path);
+            logger.debug("Cache hit for blob {} (etag {})", blobName, etag);
+            return DownloadedBlob.cachedFile(blobName, entry.path, entry.size, () -> unpin(entry));
+        }
+    }
+
+    /**
+     * Store downloaded content in the cache. File-backed content is moved into the cache and the
+     * returned blob reads from the cache entry; heap content is written through and returned as-is.
+     * @param blob The freshly downloaded content
+     * @param version The ETag and properties of the downloaded version
+     * @return The blob to hand to the parse stage
+     */
+    public DownloadedBlob put(DownloadedBlob blob, CachedVersion version) {
+        String blobName = blob.getBlobName();
+        String etag = version.getEtag();
+        if (etag == null || blob.getSize() > maxBytes) {
+            return blob;
+        }
+
+        String key = cacheKey(blobName, etag);
+        Path target = directory.resolve(key + ENTRY_SUFFIX);
+        Path staging = null;
+        try {
+            staging = Files.createTempFile(directory, key, ".tmp");
+            if (blob.isInMemory()) {
+                Files.write(staging, blob.getContent());
+            } else {
+                Files.move(blob.getFile(), staging, StandardCopyOption.REPLACE_EXISTING);
+            }
+            moveIntoPlace(staging, target);
+        } catch (IOException e) {
+            logger.warn("Failed to cache blob {} (etag {}): {}", blobName, etag, e.getMessage());
+            if (!blob.isInMemory() && staging != null && Files.exists(staging) && !Files.exists(blob.getFile())) {
+                // The content was already moved out of the download directory; read it from the staging file
+                return DownloadedBlob.mappedFile(blobName, staging, blob.getSize());
+            }
+            return blob;
+        }
+        boolean versionSaved = writeVersion(directory.resolve(key + VERSION_SUFFIX), blobName, version);
+
+        synchronized (this) {
+            Entry previous = entries.remove(key);
+            if (previous != null) {
+                totalBytes -= previous.size;
+            }
+            Entry entry = new Entry(target, blob.getSize());
+            if (versionSaved) {
+                entry.blobName = blobName;
+                latestVersions.put(blobName, version);
+            }
+            entries.put(key, entry);
+            totalBytes += entry.size;
+
+            DownloadedBlob result = blob;
+            if (!blob.isInMemory()) {
+                entry.pins++;
+                result = DownloadedBlob.cachedFile(blobName, target, entry.size, () -> unpin(entry));
+            }
+            evict();
+            logger.debug("Cached blob {} (etag {}, {} bytes). Cache size: {} bytes", blobName, etag, entry.size, totalBytes);
+            return result;
+        }
+    }
+
+    private synchronized void unpin(Entry entry) {
+        if (entry.pins > 0) {
+            entry.pins--;
+        }
+        evict();
+    }
+
+    /**
+     * Evict least recently used, unpinned entries until the cache fits within its size cap
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> next = iterator.next();
+            Entry entry = next.getValue();
+            if (entry.pins > 0) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(entry.path);
+            } catch (IOException e) {
+                logger.warn("Failed to delete evicted cache entry {}: {}", entry.path, e.getMessage());
+                continue;
+            }
+            iterator.remove();
+            forget(next.getKey(), entry);
+            totalBytes -= entry.size;
+            logger.debug("Evicted cache entry {} ({} bytes)", entry.path, entry.size);
+        }
+    }
+
+    /**
+     * Drop the version record of a removed entry
+     */
+    private void forget(String key, Entry entry) {
+        if (entry.blobName != null) {
+            CachedVersion latest = latestVersions.get(entry.blobName);
+            if (latest != null && key.equals(cacheKey(entry.blobName, latest.getEtag()))) {
+                latestVersions.remove(entry.blobName);
+            }
+        }
+        try {
+            Files.deleteIfExists(directory.resolve(key + VERSION_SUFFIX));
+        } catch (IOException e) {
+            logger.debug("Failed to delete version file of cache entry {}: {}", entry.path, e.getMessage());
+        }
+    }
+
+    private void loadExistingEntries() throws IOException {
+        List<Path> files = new ArrayList<>();
+        List<Path> versionFiles = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                String fileName = file.getFileName().toString();
+                if (fileName.endsWith(ENTRY_SUFFIX)) {
+                    files.add(file);
+                } else if (fileName.endsWith(VERSION_SUFFIX)) {
+                    versionFiles.add(file);
+                } else if (fileName.endsWith(".tmp")) {
+                    // Leftover from an interrupted write
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        // Oldest first, so the most recently used entries end up at the tail of the LRU order
+        files.sort(Comparator.comparing(ArchiveFileCache::lastModified));
+        for (Path file : files) {
+            String fileName = file.getFileName().toString();
+            String key = fileName.substring(0, fileName.length() - ENTRY_SUFFIX.length());
+            long size = Files.size(file);
+            Entry entry = new Entry(file, size);
+            Path versionFile = directory.resolve(key + VERSION_SUFFIX);
+            if (Files.exists(versionFile)) {
+                readVersion(versionFile, entry);
+            }
+            entries.put(key, entry);
+            totalBytes += size;
+        }
+        for (Path versionFile : versionFiles) {
+            String fileName = versionFile.getFileName().toString();
+            if (!entries.containsKey(fileName.substring(0, fileName.length() - VERSION_SUFFIX.length()))) {
+                Files.deleteIfExists(versionFile); // Entry removed behind our back
+            }
+        }
+        evict();
+    }
+
+    private static boolean writeVersion(Path file, String blobName, CachedVersion version) {
+        Properties properties = new Properties();
+        properties.setProperty("blobName", blobName);
+        properties.setProperty("etag", version.getEtag());
+        setIfPresent(properties, "contentMd5", version.getContentMd5());
+        setIfPresent(properties, "contentType", version.getContentType());
+        setIfPresent(properties, "contentEncoding", version.getContentEncoding());
+        properties.setProperty("appendBlob", Boolean.toString(version.isAppendBlob()));
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            properties.store(writer, null);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Failed to write version file {} of cached blob {}: {}", file, blobName, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Read the version file of an entry found on startup. Entries are read oldest first, so the
+     * latest version of a blob is the last one read.
+     */
+    private void readVersion(Path file, Entry entry) {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            logger.debug("Failed to read version file {}: {}", file, e.getMessage());
+            return;
+        }
+        String blobName = properties.getProperty("blobName");
+        String etag = properties.getProperty("etag");
+        if (blobName == null || etag == null) {
+            return;
+        }
+        entry.blobName = blobName;
+        latestVersions.put(blobName, new CachedVersion(etag, properties.getProperty("contentMd5"),
+            properties.getProperty("contentType"), properties.getProperty("contentEncoding"),
+            Boolean.parseBoolean(properties.getProperty("appendBlob"))));
+    }
+
+    private static void setIfPresent(Properties properties, String key, String value) {
+        if (value != null) {
+            properties.setProperty(key, value);
+        }
+    }
+
+    private static void moveIntoPlace(Path staging, Path target) throws IOException {
+        try {
+            Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(staging, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void touch(Path path) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            logger.debug("Failed to update access time of cache entry {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * Cache key: SHA-256 of blob name and ETag, safe to use as a file name
+     */
+    private static String cacheKey(String blobName, String etag) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((blobName + "\n" + etag).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * ETag and properties of a cached version of a blob, as returned by the service when it was downloaded
+     */
+    public static final class CachedVersion {
+        private final String etag;
+        private final String contentMd5; // Base64, null if not available
+        private final String contentType;
+        private final String contentEncoding;
+        private final boolean appendBlob;
+
+        public CachedVersion(String etag, String contentMd5, String contentType, String contentEncoding,
+                             boolean appendBlob) {
+            this.etag = etag;
+            this.contentMd5 = contentMd5;
+            this.contentType = contentType;
+            this.contentEncoding = contentEncoding;
+            this.appendBlob = appendBlob;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getContentMd5() {
+            return contentMd5;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getContentEncoding() {
+            return contentEncoding;
+        }
+
+        public boolean isAppendBlob() {
+            return appendBlob;
+        }
+    }
+
+    private static class Entry {
+        private final Path path;
+        private final long size;
+        private int pins; // Readers currently using this entry
+        private String blobName; // Null when the entry has no version file
+
+        Entry(Path path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+    }
+}
@@ -1,43 +1,137 @@
 package com.dtc.blobutil.processor;
 
 import com.azure.core.credential.TokenCredential;
+import com.azure.core.util.Context;
 import com.azure.identity.ClientSecretCredentialBuilder;
 import com.azure.identity.DefaultAzureCredentialBuilder;
 import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobServiceClient;
 import com.azure.storage.blob.BlobServiceClientBuilder;
+import com.azure.storage.blob.models.BlobErrorCode;
+import com.azure.storage.blob.models.BlobProperties;
+import com.azure.storage.blob.models.BlobRange;
+import com.azure.storage.blob.models.BlobRequestConditions;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.models.BlobType;
+import com.azure.storage.blob.models.DownloadRetryOptions;
+import com.azure.storage.blob.options.BlobDownloadToFileOptions;
+import com.azure.storage.blob.options.BlobInputStreamOptions;
+import com.azure.storage.blob.specialized.BlobInputStream;
+import com.azure.storage.common.ParallelTransferOptions;
+import com.dtc.blobutil.config.ArchiveConfig;
 import com.dtc.blobutil.config.BlobStorageConfig;
-import com.dtc.blobutil.model.ComplexData;
-import com.dtc.blobutil.model.DataObject;
-import com.dtc.blobutil.model.EventObject;
+import com.dtc.blobutil.model.AppendBlobState;
+import com.dtc.blobutil.model.FileSummary;
+import com.dtc.blobutil.model.ProcessedContent;
+import com.dtc.blobutil.processor.ArchiveFileCache.CachedVersion;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
 
 /**
  * Processor for reading and parsing files from archive container
  */
 public class ArchiveFileProcessor {
     private static final Logger logger = LoggerFactory.getLogger(ArchiveFileProcessor.class);
+    private static final long MAX_IN_MEMORY_BLOB_SIZE = Integer.MAX_VALUE - 8; // Largest byte[] the JVM can allocate
+    private static final long MIN_RANGE_BLOCK_SIZE = 4L * 1024 * 1024; // 4 MB
+    private static final long MAX_RANGE_BLOCK_SIZE = 100L * 1024 * 1024; // 100 MB
+    private static final int RANGE_MAX_RETRY_REQUESTS = 5; // Resume attempts per range stream
+    private static final int MAX_INITIAL_BLOCK_SIZE = 4 * 1024 * 1024; // First GET fetches at most 4 MB
+    private static final int STREAM_COPY_BUFFER_SIZE = 64 * 1024;
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static final int HTTP_NOT_FOUND = 404;
     private final BlobContainerClient archiveContainerClient;
     private final ObjectMapper objectMapper;
+    private final ArchiveFormatFactory formatFactory;
+    private final long rangeDownloadThresholdBytes;
+    private final int rangeDownloadMaxConcurrency;
+    private final int initialBlockSize; // Size of the first GET, which also returns the blob properties
+    private final Path downloadDirectory;
+    private final ArchiveFileCache cache; // Null when the local cache is disabled
+    private final boolean incrementalAppendBlobs;
+    private final HedgedRequests hedgedOpens; // Hedging of the first GET of a download, null when disabled
+    private final DownloadGovernor governor; // In-flight byte budget and bandwidth cap of all downloads
 
     public ArchiveFileProcessor(BlobStorageConfig config) {
+        this(config, new ArchiveConfig());
+    }
+
+    public ArchiveFileProcessor(BlobStorageConfig config, ArchiveConfig archiveConfig) {
         this.archiveContainerClient = createArchiveContainerClient(config);
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.registerModule(new JavaTimeModule());
+        // Blobs that cannot fit in a byte[] always go through the local file path
+        this.rangeDownloadThresholdBytes = Math.min(archiveConfig.getRangeDownloadThresholdBytes(), MAX_IN_MEMORY_BLOB_SIZE);
+        this.rangeDownloadMaxConcurrency = archiveConfig.getRangeDownloadMaxConcurrency();
+        // Blobs below the range threshold that fit in the first block are downloaded with a single request
+        this.initialBlockSize = (int) Math.max(1, Math.min(MAX_INITIAL_BLOCK_SIZE, rangeDownloadThresholdBytes));
+        this.downloadDirectory = Paths.get(archiveConfig.getDownloadDirectory());
+        this.cache = createCache(archiveConfig);
+        this.incrementalAppendBlobs = archiveConfig.isIncrementalAppendBlobs();
+        this.hedgedOpens = archiveConfig.isHedgeDownloads()
+            ? new HedgedRequests("archive-open", archiveConfig.getHedgePercentile(),
+                archiveConfig.getHedgeBudgetPercent(), archiveConfig.getHedgeMinDelayMillis())
+            : null;
+        this.governor = new DownloadGovernor(archiveConfig.getEffectiveMaxInFlightBytes(), archiveConfig.getMaxDownloadBytesPerSecond());
+        logger.info("Archive downloads limited to {} bytes in flight and {}", governor.getMaxInFlightBytes(),
+            governor.getBytesPerSecond() > 0 ? governor.getBytesPerSecond() + " bytes/s" : "unlimited bandwidth");
+        if (hedgedOpens != null) {
+            logger.info("Hedging archive downloads after the p{} first-block latency (budget {}% of requests, at least {} ms)",
+                archiveConfig.getHedgePercentile(), archiveConfig.getHedgeBudgetPercent(), archiveConfig.getHedgeMinDelayMillis());
+        }
+        this.objectMapper = createObjectMapper();
+        DedupKeys dedupKeys = DedupKeys.from(archiveConfig);
+        JsonParserBackend parserBackend = JsonParserBackendFactory.create(archiveConfig, objectMapper, dedupKeys);
+        logger.info("Using JSON parser backend: {}, dedup keys: {}", parserBackend.getName(), dedupKeys);
+        this.formatFactory = new ArchiveFormatFactory(objectMapper, parserBackend, dedupKeys);
+    }
+
+    /**
+     * Create the ObjectMapper used to read archive documents
+     */
+    public static ObjectMapper createObjectMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        // Streams are closed by their owners (try-with-resources), which may still need them after parsing
+        objectMapper.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
         // Configure Jackson to be more lenient with JSON parsing
-        this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        this.objectMapper.configure(DeserializationFeature.FAIL_ON_NULL_FOR_PRIMITIVES, false);
-        this.objectMapper.configure(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT, true);
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        objectMapper.configure(DeserializationFeature.FAIL_ON_NULL_FOR_PRIMITIVES, false);
+        objectMapper.configure(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT, true);
+        return objectMapper;
+    }
+
+    /**
+     * Create the local archive file cache, or null if it is disabled or cannot be initialized
+     */
+    private ArchiveFileCache createCache(ArchiveConfig archiveConfig) {
+        if (archiveConfig.getCacheMaxBytes() <= 0) {
+            logger.info("Archive file cache disabled");
+            return null;
+        }
+        try {
+            return new ArchiveFileCache(Paths.get(archiveConfig.getCacheDirectory()), archiveConfig.getCacheMaxBytes());
+        } catch (IOException e) {
+            logger.warn("Failed to initialize archive file cache in {}. Continuing without cache: {}",
+                archiveConfig.getCacheDirectory(), e.getMessage());
+            return null;
+        }
     }
 
     /**
@@ -86,170 +180,603 @@ public class ArchiveFileProcessor {
     }
 
     /**
-     * Read and parse a file from the archive container with retry logic
+     * Read and parse a file from the archive container
      * @param blobName The name of the blob to read
-     * @param maxRetries Maximum number of retry attempts (default: 3)
      * @return RecordCounts containing total and distinct record counts
-     * @throws FileProcessingException if all retries are exhausted
+     * @throws FileProcessingException if file cannot be read or parsed
      */
-    public RecordCounts parseFileWithRetry(String blobName, int maxRetries) throws FileProcessingException {
-        int attempt = 0;
-        FileProcessingException lastException = null;
-        
-        while (attempt <= maxRetries) {
-            try {
-                if (attempt > 0) {
-                    logger.info("Retry attempt {} of {} for blob: {}", attempt, maxRetries, blobName);
-                    // Wait before retry (exponential backoff: 1s, 2s, 4s)
-                    Thread.sleep((long) Math.pow(2, attempt - 1) * 1000);
-                }
-                
-                return parseFile(blobName);
-            } catch (FileProcessingException e) {
-                lastException = e;
-                attempt++;
-                if (attempt <= maxRetries) {
-                    logger.warn("Attempt {} failed for blob: {}. Will retry...", attempt, blobName, e);
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new FileProcessingException("Interrupted while retrying for blob: " + blobName, e);
+    public RecordCounts parseFile(String blobName) throws FileProcessingException {
+        try (DownloadedBlob blob = downloadFile(blobName)) {
+            return parseContent(blob);
+        }
+    }
+
+    /**
+     * Download a file from the archive container (I/O stage)
+     * @param blobName The name of the blob to download
+     * @return DownloadedBlob holding the full blob content
+     * @throws FileProcessingException if the blob does not exist or cannot be read
+     */
+    public DownloadedBlob downloadFile(String blobName) throws FileProcessingException {
+        return downloadFile(blobName, null);
+    }
+
+    /**
+     * Download a file from the archive container (I/O stage), skipping the download when the
+     * blob content matches the previously processed version (same ETag or same Content-MD5).
+     * Served from the local cache when it holds the current ETag of the blob; the cached ETag is
+     * checked with a conditional request, so a cache hit transfers no content.
+     * @param blobName The name of the blob to download
+     * @param previous Fingerprint of the previously processed content, or null to always download
+     * @return DownloadedBlob holding the full blob content, or an unchanged marker
+     * @throws FileProcessingException if the blob does not exist or cannot be read
+     */
+    public DownloadedBlob downloadFile(String blobName, ProcessedContent previous) throws FileProcessingException {
+        return downloadFile(blobName, previous, null);
+    }
+
+    /**
+     * Download a file from the archive container (I/O stage). When an NDJSON append blob was counted
+     * incrementally before, only the bytes appended since are downloaded, preceded by the tail of the
+     * counted content to check that the blob was appended to rather than rewritten. The full blob is
+     * downloaded when that check fails, the blob is no longer an append blob, or the appended range
+     * is too large to hold in memory.
+     * @param blobName The name of the blob to download
+     * @param previous Fingerprint of the previously processed content, or null to always download
+     * @param appendState State of the previous incremental count, or null to download the full blob
+     * @return DownloadedBlob holding the full blob content or the appended range, or an unchanged marker
+     * @throws FileProcessingException if the blob does not exist or cannot be read
+     */
+    public DownloadedBlob downloadFile(String blobName, ProcessedContent previous, AppendBlobState appendState)
+            throws FileProcessingException {
+        BlobClient blobClient = archiveContainerClient.getBlobClient(blobName);
+        if (incrementalAppendBlobs && appendState != null) {
+            DownloadedBlob appended = downloadAppendedRange(blobClient, blobName, previous, appendState);
+            if (appended != null) {
+                return appended;
             }
         }
-        
-        // All retries exhausted
-        if (lastException != null) {
-            logger.error("All {} retry attempts exhausted for blob: {}", maxRetries, blobName, lastException);
-            throw new FileProcessingException("Failed to parse file after " + maxRetries + " retries: " + blobName, lastException);
-        } else {
-            // This should never happen, but handle it just in case
-            throw new FileProcessingException("Failed to parse file after " + maxRetries + " retries: " + blobName);
+
+        // The open buffers the first block on the heap: reserve it in the in-flight budget beforehand
+        DownloadGovernor.Admission reservation;
+        try {
+            reservation = governor.admit(initialBlockSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileProcessingException("Interrupted while waiting for the download budget: " + blobName, e);
+        }
+        try {
+            return openAndDownload(blobClient, blobName, previous, reservation);
+        } finally {
+            // Nothing left to return when the bytes were moved to the blob
+            reservation.run();
         }
     }
 
     /**
-     * Read and parse a file from the archive container
-     * @param blobName The name of the blob to read
-     * @return RecordCounts containing total and distinct record counts
-     * @throws FileProcessingException if file cannot be read or parsed
+     * Open the blob and download its content, holding the reservation of the first block
      */
-    public RecordCounts parseFile(String blobName) throws FileProcessingException {
+    private DownloadedBlob openAndDownload(BlobClient blobClient, String blobName, ProcessedContent previous,
+                                           DownloadGovernor.Admission reservation) throws FileProcessingException {
+        // Open the download directly: the first GET returns the blob properties along with the first block.
+        // When the processed ETag, or else the ETag of a cached copy, is known, the request is conditional:
+        // an unchanged blob or a current cached copy costs no body bytes.
+        CachedVersion cached = cache != null ? cache.latestVersion(blobName) : null;
+        String knownEtag = previous != null && previous.getEtag() != null ? previous.getEtag()
+            : cached != null ? cached.getEtag() : null;
+
+        BlobInputStream inputStream;
         try {
-            BlobClient blobClient = archiveContainerClient.getBlobClient(blobName);
-            
-            if (!blobClient.exists()) {
-                logger.warn("Blob does not exist in archive container: {}", blobName);
-                throw new FileProcessingException("Blob does not exist in archive container: " + blobName);
+            try {
+                inputStream = openDownload(blobClient, knownEtag);
+            } catch (BlobStorageException e) {
+                if (e.getStatusCode() != HTTP_NOT_MODIFIED || knownEtag == null) {
+                    throw e;
+                }
+                if (previous != null && knownEtag.equals(previous.getEtag())) {
+                    return unchanged(blobName, previous);
+                }
+                DownloadedBlob hit = fromCache(blobName, cached, previous);
+                if (hit != null) {
+                    return hit;
+                }
+                // Evicted since the lookup: download the content
+                inputStream = openDownload(blobClient, new BlobRequestConditions());
             }
+        } catch (BlobStorageException e) {
+            throw classifyStorageException(blobName, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileProcessingException("Interrupted while opening blob: " + blobName, e);
+        } catch (Exception e) {
+            logger.error("Error opening blob from archive container: {}", blobName, e);
+            throw new FileProcessingException("Failed to open blob: " + blobName + ". Error: " + e.getMessage(), e);
+        }
 
-            logger.debug("Reading blob from archive container: {}", blobName);
-            
-            try (InputStream inputStream = blobClient.openInputStream()) {
-                ComplexData complexData;
+        try (BlobInputStream stream = inputStream) {
+            // Reuse the properties returned by the open request instead of a separate HEAD
+            BlobProperties properties = stream.getProperties();
+            String etag = properties.getETag();
+            String contentMd5 = properties.getContentMd5() != null
+                ? Base64.getEncoder().encodeToString(properties.getContentMd5())
+                : null;
+            if (previous != null && previous.matches(etag, contentMd5)) {
+                logger.info("Content of blob {} is unchanged (etag: {}, md5: {}). Skipping download", blobName, etag, contentMd5);
+                DownloadedBlob unchanged = DownloadedBlob.unchanged(blobName);
+                unchanged.setEtag(etag);
+                unchanged.setContentMd5(contentMd5 != null ? contentMd5 : previous.getContentMd5());
+                return unchanged;
+            }
+
+            DownloadedBlob blob = cache != null ? cache.get(blobName, etag) : null;
+            if (blob == null) {
+                // Blobs buffered on the heap hold their size in the in-flight budget until they are parsed and
+                // closed. Blobs downloaded to a local file only hold the first block until the download ends.
+                long blobSize = properties.getBlobSize();
+                DownloadGovernor.Admission release = null;
+                BlobInputStream reopened = null;
+                if (blobSize < rangeDownloadThresholdBytes) {
+                    // While the content is read, the stream also buffers up to one block of it
+                    long downloadBytes = blobSize + Math.min(blobSize, initialBlockSize);
+                    if (reservation.tryGrowTo(downloadBytes)) {
+                        release = reservation.transfer();
+                    } else {
+                        // Close the stream, and its buffered first block, before waiting for the budget.
+                        // Once admitted, reopen it on condition that the blob is still the same version.
+                        stream.close();
+                        reservation.run();
+                        release = governor.admit(downloadBytes);
+                        try {
+                            reopened = openDownload(blobClient, new BlobRequestConditions().setIfMatch(etag));
+                        } catch (Throwable e) {
+                            release.run();
+                            throw e;
+                        }
+                    }
+                }
+                DownloadedBlob downloaded;
                 try {
-                    complexData = objectMapper.readValue(inputStream, ComplexData.class);
-                } catch (com.fasterxml.jackson.core.JsonParseException e) {
-                    logger.error("JSON parse error for blob {} at line {}, column {}: {}", 
-                        blobName, e.getLocation().getLineNr(), e.getLocation().getColumnNr(), e.getMessage(), e);
-                    throw new FileProcessingException("JSON parse error for blob: " + blobName + 
-                        " at line " + e.getLocation().getLineNr() + ", column " + e.getLocation().getColumnNr() + 
-                        ". Error: " + e.getMessage(), e);
-                } catch (com.fasterxml.jackson.databind.JsonMappingException e) {
-                    logger.error("JSON mapping error for blob {}: {}", blobName, e.getMessage(), e);
-                    if (e.getPath() != null && !e.getPath().isEmpty()) {
-                        logger.error("Error path in JSON: {}", e.getPath());
+                    downloaded = downloadContent(blobClient, reopened != null ? reopened : stream, blobName, properties);
+                } catch (Throwable e) {
+                    if (release != null) {
+                        release.run();
+                    }
+                    throw e;
+                } finally {
+                    if (reopened != null) {
+                        reopened.close();
                     }
-                    throw new FileProcessingException("JSON mapping error for blob: " + blobName + 
-                        ". Path: " + (e.getPath() != null ? e.getPath().toString() : "unknown") + 
-                        ". Error: " + e.getMessage(), e);
-                } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
-                    logger.error("JSON processing error for blob {}: {}", blobName, e.getMessage(), e);
-                    throw new FileProcessingException("JSON processing failed for blob: " + blobName + ". Error: " + e.getMessage(), e);
-                } catch (java.io.IOException e) {
-                    logger.error("IO error reading blob {}: {}", blobName, e.getMessage(), e);
-                    throw new FileProcessingException("IO error reading blob: " + blobName + ". Error: " + e.getMessage(), e);
-                } catch (Exception e) {
-                    logger.error("Unexpected error during JSON parsing for blob {}: {}", blobName, e.getMessage(), e);
-                    throw new FileProcessingException("Failed to parse JSON for blob: " + blobName + ". Error: " + e.getMessage(), e);
                 }
-                
-                if (complexData == null) {
-                    logger.warn("Invalid file structure for blob: {} - ComplexData is null", blobName);
-                    throw new FileProcessingException("Invalid file structure for blob: " + blobName + " - ComplexData is null");
+                if (release != null) {
+                    // The stream buffer is no longer needed once the content is read
+                    release.shrinkTo(blobSize);
                 }
-                
-                // Check if this is an events file or data file
-                if (complexData.isEventsFile()) {
-                    return processEventsFile(complexData, blobName);
-                } else if (complexData.isDataFile()) {
-                    return processDataFile(complexData, blobName);
-                } else {
-                    logger.warn("Invalid file structure for blob: {} - Neither ExportedData nor ExportedEvents found", blobName);
-                    throw new FileProcessingException("Invalid file structure for blob: " + blobName + " - Neither ExportedData nor ExportedEvents found");
+                blob = cache != null
+                    ? cache.put(downloaded, new CachedVersion(etag, contentMd5, properties.getContentType(),
+                        properties.getContentEncoding(), properties.getBlobType() == BlobType.APPEND_BLOB))
+                    : downloaded;
+                if (release != null) {
+                    blob.onClose(release);
                 }
             }
+            blob.setEtag(etag);
+            blob.setContentMd5(contentMd5);
+            blob.setContentType(properties.getContentType());
+            blob.setDeclaredCompression(ArchiveCompression.fromHeaders(properties.getContentEncoding(), properties.getContentType()));
+            blob.setAppendBlob(properties.getBlobType() == BlobType.APPEND_BLOB);
+            return blob;
         } catch (FileProcessingException e) {
             throw e; // Re-throw FileProcessingException as-is
+        } catch (BlobStorageException e) {
+            throw classifyStorageException(blobName, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileProcessingException("Interrupted while downloading blob: " + blobName, e);
         } catch (Exception e) {
-            logger.error("Error parsing file from archive container: {}", blobName, e);
-            throw new FileProcessingException("Failed to parse file: " + blobName, e);
+            BlobStorageException storageException = findStorageException(e);
+            if (storageException != null) {
+                throw classifyStorageException(blobName, storageException);
+            }
+            logger.error("Error downloading file from archive container: {}", blobName, e);
+            throw new FileProcessingException("Failed to download file: " + blobName + ". Error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Open a download stream, conditional on the blob not matching the given ETag
+     * @param ifNoneMatch ETag of a version already held, or null for an unconditional request
+     * @throws BlobStorageException with status 304 when the blob still has that ETag
+     */
+    private BlobInputStream openDownload(BlobClient blobClient, String ifNoneMatch) throws Exception {
+        BlobRequestConditions conditions = new BlobRequestConditions();
+        if (ifNoneMatch != null) {
+            conditions.setIfNoneMatch(ifNoneMatch);
+        }
+        return openDownload(blobClient, conditions);
+    }
+
+    /**
+     * Open a download stream under the given request conditions
+     */
+    private BlobInputStream openDownload(BlobClient blobClient, BlobRequestConditions conditions) throws Exception {
+        BlobInputStreamOptions streamOptions = new BlobInputStreamOptions()
+            .setBlockSize(initialBlockSize)
+            .setRequestConditions(conditions);
+        // The first GET carries the tail latency of a download: hedge it when it is slower than usual
+        return hedgedOpens != null
+            ? hedgedOpens.call(() -> blobClient.openInputStream(streamOptions))
+            : blobClient.openInputStream(streamOptions);
+    }
+
+    /**
+     * Serve a blob whose cached version answered a conditional request with 304 Not Modified
+     * @return the cached copy, an unchanged marker, or null if the entry was evicted since the lookup
+     */
+    private DownloadedBlob fromCache(String blobName, CachedVersion cached, ProcessedContent previous) {
+        String etag = cached.getEtag();
+        String contentMd5 = cached.getContentMd5();
+        if (previous != null && previous.matches(etag, contentMd5)) {
+            logger.info("Content of blob {} is unchanged (etag: {}, md5: {}). Skipping download", blobName, etag, contentMd5);
+            DownloadedBlob unchanged = DownloadedBlob.unchanged(blobName);
+            unchanged.setEtag(etag);
+            unchanged.setContentMd5(contentMd5 != null ? contentMd5 : previous.getContentMd5());
+            return unchanged;
         }
+        DownloadedBlob blob = cache.get(blobName, etag);
+        if (blob == null) {
+            return null;
+        }
+        logger.debug("Blob {} served from the local cache (etag {} not modified)", blobName, etag);
+        blob.setEtag(etag);
+        blob.setContentMd5(contentMd5);
+        blob.setContentType(cached.getContentType());
+        blob.setDeclaredCompression(ArchiveCompression.fromHeaders(cached.getContentEncoding(), cached.getContentType()));
+        blob.setAppendBlob(cached.isAppendBlob());
+        return blob;
     }
 
     /**
-     * Process data file (iris_data format) with ExportedData
+     * Marker for a blob that answered a conditional request with 304 Not Modified
      */
-    private RecordCounts processDataFile(ComplexData complexData, String blobName) throws FileProcessingException {
-        if (complexData.getExportedData() == null) {
-            logger.warn("Invalid file structure for blob: {} - ExportedData is null", blobName);
-            throw new FileProcessingException("Invalid file structure for blob: " + blobName + " - ExportedData is null");
+    private static DownloadedBlob unchanged(String blobName, ProcessedContent previous) {
+        logger.info("Content of blob {} is unchanged (etag: {}). Skipping download", blobName, previous.getEtag());
+        DownloadedBlob unchanged = DownloadedBlob.unchanged(blobName);
+        unchanged.setEtag(previous.getEtag());
+        unchanged.setContentMd5(previous.getContentMd5());
+        return unchanged;
+    }
+
+    /**
+     * Download the range of an append blob written since its last incremental count, starting with the
+     * tail of the counted content. One properties request decides whether the range applies.
+     * @return the range, an unchanged marker, or null to download the full blob
+     */
+    private DownloadedBlob downloadAppendedRange(BlobClient blobClient, String blobName, ProcessedContent previous,
+                                                 AppendBlobState state) throws FileProcessingException {
+        BlobRequestConditions conditions = new BlobRequestConditions();
+        if (previous != null && previous.getEtag() != null) {
+            conditions.setIfNoneMatch(previous.getEtag());
+        }
+        try {
+            BlobProperties properties;
+            try {
+                properties = blobClient.getPropertiesWithResponse(conditions, null, Context.NONE).getValue();
+            } catch (BlobStorageException e) {
+                if (e.getStatusCode() == HTTP_NOT_MODIFIED && previous != null) {
+                    return unchanged(blobName, previous);
+                }
+                throw e;
+            }
+
+            long blobSize = properties.getBlobSize();
+            long start = state.getCommittedOffset() - state.getTailLength();
+            long length = blobSize - start;
+            ArchiveCompression compression = ArchiveCompression.fromHeaders(properties.getContentEncoding(), properties.getContentType());
+            if (properties.getBlobType() != BlobType.APPEND_BLOB || compression != ArchiveCompression.NONE
+                    || !(formatFactory.select(blobName, properties.getContentType()) instanceof NdjsonFormat)) {
+                logger.info("Blob {} is no longer an uncompressed NDJSON append blob. Counting it in full", blobName);
+                return null;
+            }
+            if (blobSize < state.getCommittedOffset() || start < 0) {
+                logger.info("Blob {} is shorter ({} bytes) than its counted content ({} bytes). Counting it in full",
+                    blobName, blobSize, state.getCommittedOffset());
+                return null;
+            }
+            if (length >= rangeDownloadThresholdBytes) {
+                logger.debug("Range appended to blob {} ({} bytes) is above the in-memory limit. Counting it in full", blobName, length);
+                return null;
+            }
+
+            byte[] content = new byte[(int) length];
+            Runnable release = governor.admit(length);
+            try {
+                if (length > 0) {
+                    BlobInputStreamOptions streamOptions = new BlobInputStreamOptions()
+                        .setRange(new BlobRange(start, length))
+                        .setBlockSize(initialBlockSize)
+                        .setRequestConditions(new BlobRequestConditions().setIfMatch(properties.getETag()));
+                    try (BlobInputStream stream = blobClient.openInputStream(streamOptions)) {
+                        readFully(stream, content, blobName);
+                    }
+                }
+            } catch (Throwable e) {
+                release.run();
+                throw e;
+            }
+            if (state.getTailLength() > 0
+                    && !NdjsonFormat.md5(Arrays.copyOf(content, state.getTailLength())).equals(state.getTailMd5())) {
+                release.run();
+                logger.info("Blob {} was rewritten rather than appended to since its last count. Counting it in full", blobName);
+                return null;
+            }
+
+            logger.debug("Downloaded {} bytes appended to blob {} after offset {}", length - state.getTailLength(),
+                blobName, state.getCommittedOffset());
+            DownloadedBlob blob = DownloadedBlob.inMemory(blobName, content);
+            blob.onClose(release);
+            blob.setAppendBlob(true);
+            blob.setAppendBase(state, start);
+            blob.setEtag(properties.getETag());
+            blob.setContentMd5(properties.getContentMd5() != null
+                ? Base64.getEncoder().encodeToString(properties.getContentMd5())
+                : null);
+            blob.setContentType(properties.getContentType());
+            blob.setDeclaredCompression(compression);
+            return blob;
+        } catch (FileProcessingException e) {
+            throw e;
+        } catch (BlobStorageException e) {
+            throw classifyStorageException(blobName, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileProcessingException("Interrupted while downloading appended range of blob: " + blobName, e);
+        } catch (Exception e) {
+            BlobStorageException storageException = findStorageException(e);
+            if (storageException != null) {
+                throw classifyStorageException(blobName, storageException);
+            }
+            logger.error("Error downloading appended range of blob: {}", blobName, e);
+            throw new FileProcessingException("Failed to download appended range of blob: " + blobName +
+                ". Error: " + e.getMessage(), e);
         }
+    }
 
-        List<DataObject> objects = complexData.getExportedData().getObjects();
-        
-        if (objects == null || objects.isEmpty()) {
-            logger.debug("No objects found in data file: {}", blobName);
-            return new RecordCounts(0, 0);
+    /**
+     * Download blob content from the network, into memory or a local file depending on its size.
+     * Small blobs are read from the already opened stream; large blobs switch to parallel range requests,
+     * or keep reading the opened stream into a local file when a bandwidth cap is set.
+     */
+    private DownloadedBlob downloadContent(BlobClient blobClient, BlobInputStream stream, String blobName,
+                                           BlobProperties properties)
+            throws FileProcessingException, IOException, InterruptedException {
+        long blobSize = properties.getBlobSize();
+        if (blobSize >= rangeDownloadThresholdBytes) {
+            if (governor.getBytesPerSecond() > 0) {
+                // Parallel ranges would run at full link speed: keep reading the paced stream instead
+                return downloadStreamToMappedFile(stream, blobName, blobSize);
+            }
+            return downloadToMappedFile(blobClient, blobName, properties);
         }
 
-        int totalRecords = objects.size();
-        
-        // Count distinct records (based on Id, Fullname, Time)
-        Set<DataObject> distinctObjects = new HashSet<>(objects);
-        int distinctRecords = distinctObjects.size();
+        logger.debug("Reading blob from archive container: {}", blobName);
+
+        // Buffer is sized exactly from the blob properties, so memory per download is bounded by the blob size
+        byte[] content = new byte[(int) blobSize];
+        readFully(stream, content, blobName);
+
+        logger.debug("Downloaded blob {} ({} bytes)", blobName, blobSize);
+        return DownloadedBlob.inMemory(blobName, content);
+    }
 
-        logger.debug("Parsed data file {}: total records={}, distinct records={}", 
-            blobName, totalRecords, distinctRecords);
+    /**
+     * Fill a buffer from a download stream, paying the bandwidth cap for each read
+     */
+    private void readFully(InputStream stream, byte[] content, String blobName)
+            throws FileProcessingException, IOException, InterruptedException {
+        int offset = 0;
+        while (offset < content.length) {
+            int read = stream.read(content, offset, content.length - offset);
+            if (read < 0) {
+                throw new FileProcessingException("Unexpected end of stream for blob: " + blobName +
+                    " after " + offset + " of " + content.length + " bytes");
+            }
+            offset += read;
+            governor.throttle(read);
+        }
+    }
+
+    /**
+     * Map a storage error to a processing exception. A missing blob or container is not retryable.
+     */
+    private FileProcessingException classifyStorageException(String blobName, BlobStorageException e) {
+        if (e.getStatusCode() == HTTP_NOT_FOUND
+                || BlobErrorCode.BLOB_NOT_FOUND.equals(e.getErrorCode())
+                || BlobErrorCode.CONTAINER_NOT_FOUND.equals(e.getErrorCode())) {
+            logger.warn("Blob does not exist in archive container: {}", blobName);
+            return new BlobMissingException("Blob does not exist in archive container: " + blobName, e);
+        }
+        logger.error("Storage error downloading blob {}: status {}, error code {}", blobName, e.getStatusCode(), e.getErrorCode(), e);
+        return new FileProcessingException("Storage error downloading blob: " + blobName +
+            " (status " + e.getStatusCode() + "). Error: " + e.getMessage(), e);
+    }
 
-        return new RecordCounts(totalRecords, distinctRecords);
+    /**
+     * Find a BlobStorageException in the cause chain (the blob input stream wraps them in IOExceptions)
+     */
+    private static BlobStorageException findStorageException(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BlobStorageException) {
+                return (BlobStorageException) cause;
+            }
+        }
+        return null;
     }
-    
+
     /**
-     * Process events file (ExportedEvents format) with deduplication based on Id, Fullname, RecordTime, SeqNo
+     * Download a large blob into a local file by reading the already opened stream to its end, paying
+     * the bandwidth cap for each read. The stream requests the following blocks with the ETag of the
+     * first one, so all of them come from the same version of the blob.
      */
-    private RecordCounts processEventsFile(ComplexData complexData, String blobName) throws FileProcessingException {
-        if (complexData.getExportedEvents() == null) {
-            logger.warn("Invalid file structure for blob: {} - ExportedEvents is null", blobName);
-            throw new FileProcessingException("Invalid file structure for blob: " + blobName + " - ExportedEvents is null");
+    private DownloadedBlob downloadStreamToMappedFile(InputStream stream, String blobName, long blobSize)
+            throws FileProcessingException, IOException, InterruptedException {
+        Path file = createDownloadFile(blobName);
+        logger.debug("Downloading blob {} ({} bytes) to {} through the bandwidth-capped stream", blobName, blobSize, file);
+        try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            byte[] buffer = new byte[STREAM_COPY_BUFFER_SIZE];
+            long written = 0;
+            while (written < blobSize) {
+                int read = stream.read(buffer, 0, (int) Math.min(buffer.length, blobSize - written));
+                if (read < 0) {
+                    throw new FileProcessingException("Unexpected end of stream for blob: " + blobName +
+                        " after " + written + " of " + blobSize + " bytes");
+                }
+                out.write(buffer, 0, read);
+                written += read;
+                governor.throttle(read);
+            }
+        } catch (Exception e) {
+            DownloadedBlob.mappedFile(blobName, file, 0).close();
+            throw e;
+        }
+
+        logger.debug("Downloaded blob {} ({} bytes) to local file {}", blobName, blobSize, file);
+        return DownloadedBlob.mappedFile(blobName, file, blobSize);
+    }
+
+    private Path createDownloadFile(String blobName) throws FileProcessingException {
+        try {
+            Files.createDirectories(downloadDirectory);
+            return Files.createTempFile(downloadDirectory, "archive-", ".tmp");
+        } catch (IOException e) {
+            throw new FileProcessingException("Failed to create local download file in " + downloadDirectory +
+                " for blob: " + blobName, e);
         }
+    }
 
-        List<EventObject> events = complexData.getExportedEvents().getObjects();
-        
-        if (events == null || events.isEmpty()) {
-            logger.debug("No events found in events file: {}", blobName);
-            return new RecordCounts(0, 0);
+    /**
+     * Download a large blob into a local file using parallel range requests. Only used without a
+     * bandwidth cap: the ranges are not paced.
+     * Block size and concurrency are derived from the blob size; each range stream resumes from
+     * its last received byte on transient failures (DownloadRetryOptions), and the ETag condition
+     * guarantees all ranges come from the same version of the blob.
+     */
+    private DownloadedBlob downloadToMappedFile(BlobClient blobClient, String blobName, BlobProperties properties)
+            throws FileProcessingException {
+        long blobSize = properties.getBlobSize();
+        long blockSize = Math.max(MIN_RANGE_BLOCK_SIZE,
+            Math.min(MAX_RANGE_BLOCK_SIZE, (blobSize + rangeDownloadMaxConcurrency - 1) / rangeDownloadMaxConcurrency));
+        int blockCount = (int) ((blobSize + blockSize - 1) / blockSize);
+        int concurrency = Math.max(1, Math.min(rangeDownloadMaxConcurrency, blockCount));
+
+        Path file = createDownloadFile(blobName);
+
+        logger.debug("Downloading blob {} ({} bytes) to {} in {} ranges of {} bytes with concurrency {}",
+            blobName, blobSize, file, blockCount, blockSize, concurrency);
+
+        BlobDownloadToFileOptions options = new BlobDownloadToFileOptions(file.toString())
+            .setParallelTransferOptions(new ParallelTransferOptions()
+                .setBlockSizeLong(blockSize)
+                .setMaxConcurrency(concurrency))
+            .setDownloadRetryOptions(new DownloadRetryOptions().setMaxRetryRequests(RANGE_MAX_RETRY_REQUESTS))
+            .setRequestConditions(new BlobRequestConditions().setIfMatch(properties.getETag()))
+            .setOpenOptions(new HashSet<>(Arrays.asList(
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)));
+        try {
+            blobClient.downloadToFileWithResponse(options, null, Context.NONE);
+        } catch (Exception e) {
+            DownloadedBlob.mappedFile(blobName, file, 0).close();
+            BlobStorageException storageException = findStorageException(e);
+            if (storageException != null) {
+                throw classifyStorageException(blobName, storageException);
+            }
+            throw new FileProcessingException("Failed to download blob to local file: " + blobName +
+                ". Error: " + e.getMessage(), e);
         }
 
-        int totalRecords = events.size();
-        
-        // Count distinct records (based on Id, Fullname, RecordTime, SeqNo)
-        Set<EventObject> distinctEvents = new HashSet<>(events);
-        int distinctRecords = distinctEvents.size();
+        logger.debug("Downloaded blob {} ({} bytes) to local file {}", blobName, blobSize, file);
+        return DownloadedBlob.mappedFile(blobName, file, blobSize);
+    }
+
+    /**
+     * Parse a downloaded file and count its records (CPU stage)
+     * @param blob The downloaded blob content
+     * @return RecordCounts containing total and distinct record counts
+     * @throws FileProcessingException if the content cannot be parsed
+     */
+    public RecordCounts parseContent(DownloadedBlob blob) throws FileProcessingException {
+        String blobName = blob.getBlobName();
+        RecordCounts counts;
+        String contentMd5 = blob.getContentMd5();
+        try {
+            ArchiveFormat format = formatFactory.select(blob);
+            logger.debug("Reading blob {} as {}", blobName, format.getName());
+            if (blob.getAppendBase() != null || isIncrementalAppendBlob(blob, format)) {
+                // Counted from the saved state or into a new one; an MD5 over a range would not describe the blob
+                counts = ((NdjsonFormat) format).countAppendBlob(blob);
+            } else if (!format.isStreaming()) {
+                // Columnar formats read only the footer and the key columns; no MD5 is computed over a partial read
+                counts = format.count(blob);
+            } else if (contentMd5 == null) {
+                // The service did not provide a Content-MD5: compute it over the stored (compressed) bytes in the same pass as parsing
+                MessageDigest md5 = MessageDigest.getInstance("MD5");
+                try (DigestInputStream digestStream = new DigestInputStream(blob.openStream(), md5);
+                     InputStream inputStream = ArchiveCompression.decode(digestStream, blob.getDeclaredCompression(), blobName)) {
+                    counts = format.count(inputStream, blobName);
+                    // Digest any trailing bytes the parser did not need to read
+                    digestStream.transferTo(OutputStream.nullOutputStream());
+                }
+                contentMd5 = Base64.getEncoder().encodeToString(md5.digest());
+            } else if (format instanceof JsonDocumentFormat && blob.isInMemory()
+                    && ArchiveCompression.fromMagic(blob.getContent(), blob.getContent().length) == ArchiveCompression.NONE) {
+                ArchiveCompression.resolve(blob.getDeclaredCompression(), ArchiveCompression.NONE, blobName);
+                counts = ((JsonDocumentFormat) format).count(blob.getContent(), blobName);
+            } else {
+                try (InputStream inputStream = ArchiveCompression.decode(blob.openStream(), blob.getDeclaredCompression(), blobName)) {
+                    counts = format.count(inputStream, blobName);
+                }
+            }
+        } catch (FileProcessingException e) {
+            throw e; // Structural errors reported by the format reader
+        } catch (com.fasterxml.jackson.core.JsonParseException e) {
+            logger.error("JSON parse error for blob {} at line {}, column {}: {}", 
+                blobName, e.getLocation().getLineNr(), e.getLocation().getColumnNr(), e.getMessage(), e);
+            throw new FileProcessingException("JSON parse error for blob: " + blobName + 
+                " at line " + e.getLocation().getLineNr() + ", column " + e.getLocation().getColumnNr() + 
+                ". Error: " + e.getMessage(), e);
+        } catch (com.fasterxml.jackson.databind.JsonMappingException e) {
+            logger.error("JSON mapping error for blob {}: {}", blobName, e.getMessage(), e);
+            if (e.getPath() != null && !e.getPath().isEmpty()) {
+                logger.error("Error path in JSON: {}", e.getPath());
+            }
+            throw new FileProcessingException("JSON mapping error for blob: " + blobName + 
+                ". Path: " + (e.getPath() != null ? e.getPath().toString() : "unknown") + 
+                ". Error: " + e.getMessage(), e);
+        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+            logger.error("JSON processing error for blob {}: {}", blobName, e.getMessage(), e);
+            throw new FileProcessingException("JSON processing failed for blob: " + blobName + ". Error: " + e.getMessage(), e);
+        } catch (java.io.IOException e) {
+            logger.error("IO error reading blob {}: {}", blobName, e.getMessage(), e);
+            throw new FileProcessingException("IO error reading blob: " + blobName + ". Error: " + e.getMessage(), e);
+        } catch (Exception e) {
+            logger.error("Unexpected error during JSON parsing for blob {}: {}", blobName, e.getMessage(), e);
+            throw new FileProcessingException("Failed to parse JSON for blob: " + blobName + ". Error: " + e.getMessage(), e);
+        }
 
-        logger.debug("Parsed events file {}: total records={}, distinct records={}", 
-            blobName, totalRecords, distinctRecords);
+        counts.setContentEtag(blob.getEtag());
+        counts.setContentMd5(contentMd5);
+        return counts;
+    }
 
-        return new RecordCounts(totalRecords, distinctRecords);
+    /**
+     * @return true if the blob is an uncompressed NDJSON append blob whose count can be continued later
+     */
+    private boolean isIncrementalAppendBlob(DownloadedBlob blob, ArchiveFormat format) throws IOException {
+        if (!incrementalAppendBlobs || !blob.isAppendBlob() || !(format instanceof NdjsonFormat)
+                || blob.getDeclaredCompression() != ArchiveCompression.NONE) {
+            return false;
+        }
+        byte[] header = blob.read(0, (int) Math.min(4, blob.getSize()));
+        return ArchiveCompression.fromMagic(header, header.length) == ArchiveCompression.NONE;
     }
 
     /**
@@ -265,12 +792,27 @@ public class ArchiveFileProcessor {
         }
     }
 
+    /**
+     * Exception for blobs that no longer exist in the archive container. Not retryable.
+     */
+    public static class BlobMissingException extends FileProcessingException {
+        public BlobMissingException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
     /**
      * Inner class to hold record count results
      */
     public static class RecordCounts {
         private final int totalRecords;
         private final int distinctRecords;
+        private String contentEtag; // ETag of the blob version that was counted
+        private String contentMd5; // Base64 MD5 of the content that was counted
+        private FileSummary summary; // Time range, Header and per-Fullname counts, null if the format has none
+        private RecordFingerprints fingerprints; // Record key fingerprints for the cross-file duplicate index, null if not collected
+        private AppendBlobState appendState; // State the next count of an append blob continues from, null if not counted incrementally
+        private boolean appended; // Counted on top of the state of an earlier count; the fingerprints cover only the new records
 
         public RecordCounts(int totalRecords, int distinctRecords) {
             this.totalRecords = totalRecords;
@@ -284,6 +826,54 @@ public class ArchiveFileProcessor {
         public int getDistinctRecords() {
             return distinctRecords;
         }
+
+        public String getContentEtag() {
+            return contentEtag;
+        }
+
+        public void setContentEtag(String contentEtag) {
+            this.contentEtag = contentEtag;
+        }
+
+        public String getContentMd5() {
+            return contentMd5;
+        }
+
+        public void setContentMd5(String contentMd5) {
+            this.contentMd5 = contentMd5;
+        }
+
+        public FileSummary getSummary() {
+            return summary;
+        }
+
+        public void setSummary(FileSummary summary) {
+            this.summary = summary;
+        }
+
+        RecordFingerprints getFingerprints() {
+            return fingerprints;
+        }
+
+        void setFingerprints(RecordFingerprints fingerprints) {
+            this.fingerprints = fingerprints;
+        }
+
+        AppendBlobState getAppendState() {
+            return appendState;
+        }
+
+        void setAppendState(AppendBlobState appendState) {
+            this.appendState = appendState;
+        }
+
+        boolean isAppended() {
+            return appended;
+        }
+
+        void setAppended(boolean appended) {
+            this.appended = appended;
+        }
     }
 }
 
@@ -0,0 +1,53 @@
+package com.dtc.blobutil.processor;
+
+import com.dtc.blobutil.processor.ArchiveFileProcessor.FileProcessingException;
+import com.dtc.blobutil.processor.ArchiveFileProcessor.RecordCounts;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reader for one archive file layout. Counts the total and distinct records of a file.
+ *
+ * Streaming formats (JSON document, NDJSON) read the decoded content front to back, so they
+ * can be decompressed on the fly. Columnar formats (Parquet) need random access to the local
+ * copy of the blob to read the footer first and then only the columns they need.
+ */
+public interface ArchiveFormat {
+
+    /**
+     * @return Short name of the format, used in logs
+     */
+    String getName();
+
+    /**
+     * @param blobName The blob name, without any compression suffix
+     * @param contentType The Content-Type of the blob, may be null
+     * @return true if this format is selected for the blob by its extension or content type
+     */
+    boolean matches(String blobName, String contentType);
+
+    /**
+     * @return true if the format reads a decoded content stream, false if it needs random access
+     */
+    default boolean isStreaming() {
+        return true;
+    }
+
+    /**
+     * Count the records of a streaming format
+     * @param content The decoded content
+     * @param blobName The blob name (for logging and record type detection)
+     */
+    default RecordCounts count(InputStream content, String blobName) throws IOException, FileProcessingException {
+        throw new UnsupportedOperationException(getName() + " is not a streaming format");
+    }
+
+    /**
+     * Count the records of a random-access format
+     * @param blob The downloaded blob (heap buffer or local file)
+     */
+    default RecordCounts count(DownloadedBlob blob) throws IOException, FileProcessingException {
+        throw new UnsupportedOperationException(getName() + " requires a content stream");
+    }
+}
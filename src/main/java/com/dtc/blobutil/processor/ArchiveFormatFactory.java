@@ -0,0 +1,97 @@
+package com.dtc.blobutil.processor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Selects the ArchiveFormat reader for a blob.
+ *
+ * Formats are matched by file extension (ignoring a trailing .gz / .zst compression suffix) or
+ * Content-Type, in registration order. A blob that matches none of them is checked for the
+ * Parquet magic bytes and otherwise read as a ComplexData JSON document.
+ */
+public class ArchiveFormatFactory {
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveFormatFactory.class);
+    private static final byte[] PARQUET_MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+    private static final String[] COMPRESSION_SUFFIXES = {".gz", ".gzip", ".zst", ".zstd"};
+
+    private final ParquetFormat parquetFormat;
+    private final JsonDocumentFormat defaultFormat;
+    private final List<ArchiveFormat> formats;
+
+    public ArchiveFormatFactory(ObjectMapper objectMapper) {
+        this(objectMapper, new DatabindParserBackend(objectMapper));
+    }
+
+    public ArchiveFormatFactory(ObjectMapper objectMapper, JsonParserBackend parserBackend) {
+        this(objectMapper, parserBackend, DedupKeys.defaults());
+    }
+
+    /**
+     * @param dedupKeys Fields that identify distinct records, shared by every format
+     */
+    public ArchiveFormatFactory(ObjectMapper objectMapper, JsonParserBackend parserBackend, DedupKeys dedupKeys) {
+        this.parquetFormat = new ParquetFormat(dedupKeys);
+        this.defaultFormat = new JsonDocumentFormat(parserBackend, dedupKeys);
+        this.formats = Arrays.asList(parquetFormat, new NdjsonFormat(objectMapper, dedupKeys));
+    }
+
+    /**
+     * Select the reader for a downloaded blob
+     */
+    public ArchiveFormat select(DownloadedBlob blob) {
+        ArchiveFormat format = select(blob.getBlobName(), blob.getContentType());
+        if (format == defaultFormat && startsWithParquetMagic(blob)) {
+            logger.debug("Blob {} has no Parquet extension but starts with the Parquet magic bytes", blob.getBlobName());
+            return parquetFormat;
+        }
+        return format;
+    }
+
+    /**
+     * Select the reader by blob name and content type only
+     */
+    public ArchiveFormat select(String blobName, String contentType) {
+        String name = stripCompressionSuffix(blobName);
+        for (ArchiveFormat format : formats) {
+            if (format.matches(name, contentType)) {
+                return format;
+            }
+        }
+        return defaultFormat;
+    }
+
+    static String stripCompressionSuffix(String blobName) {
+        if (blobName == null) {
+            return "";
+        }
+        String lower = blobName.toLowerCase(Locale.ROOT);
+        for (String suffix : COMPRESSION_SUFFIXES) {
+            if (lower.endsWith(suffix)) {
+                return lower.substring(0, lower.length() - suffix.length());
+            }
+        }
+        return lower;
+    }
+
+    private static boolean startsWithParquetMagic(DownloadedBlob blob) {
+        if (blob.isInMemory()) {
+            byte[] content = blob.getContent();
+            return content.length >= PARQUET_MAGIC.length
+                && Arrays.equals(Arrays.copyOf(content, PARQUET_MAGIC.length), PARQUET_MAGIC);
+        }
+        try (InputStream in = blob.openStream()) {
+            return Arrays.equals(in.readNBytes(PARQUET_MAGIC.length), PARQUET_MAGIC);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
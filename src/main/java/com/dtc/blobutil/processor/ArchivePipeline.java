@@ -0,0 +1,473 @@
+package com.dtc.blobutil.processor;
+
+import com.dtc.blobutil.dao.AppendStateDao;
+import com.dtc.blobutil.dao.BlobChangeDao;
+import com.dtc.blobutil.dao.FileSummaryDao;
+import com.dtc.blobutil.dao.QuarantineDao;
+import com.dtc.blobutil.model.AppendBlobState;
+import com.dtc.blobutil.model.FailureCategory;
+import com.dtc.blobutil.model.ProcessedContent;
+import com.dtc.blobutil.processor.ArchiveFileProcessor.BlobMissingException;
+import com.dtc.blobutil.processor.ArchiveFileProcessor.FileProcessingException;
+import com.dtc.blobutil.processor.ArchiveFileProcessor.RecordCounts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Two-stage pipeline for archive file processing.
+ *
+ * The download stage runs many concurrent I/O tasks that each buffer one blob in memory.
+ * Downloaded blobs are handed to a CPU-sized parse stage through a bounded queue; when the
+ * parse stage falls behind the queue fills up and download tasks block (backpressure), so
+ * memory stays bounded by (download threads + queue capacity) buffered blobs.
+ *
+ * Failed downloads are not retried in place: they go to a {@link RetryScheduler} and are
+ * re-submitted to the download stage after a jittered backoff, so one flaky blob never holds
+ * a download thread while the rest of the batch waits behind it.
+ *
+ * Files that still fail are quarantined with a failure category; a later successful run
+ * releases them from quarantine.
+ *
+ * The summary computed while counting a file is stored next to its counts. When a
+ * {@link CrossFileDuplicateIndex} is configured, the summary also records how many of the file's
+ * records were already delivered by earlier files.
+ *
+ * When an {@link AppendStateDao} is configured, the state of each incrementally counted append
+ * blob is loaded before its download and saved after its counts, so an update of the blob only
+ * downloads and counts the appended bytes.
+ */
+public class ArchivePipeline implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ArchivePipeline.class);
+
+    private final ArchiveFileProcessor archiveProcessor;
+    private final BlobChangeDao dao;
+    private final QuarantineDao quarantineDao;
+    private final FileSummaryDao summaryDao;
+    private final AppendStateDao appendStateDao; // Null if append blobs are always counted in full
+    private final CrossFileDuplicateIndex duplicateIndex; // Null if cross-file duplicate detection is disabled
+    private final int quarantineReprocessDelayMinutes;
+    private final int maxRetries;
+    private final boolean skipUnchangedContent;
+    private final ExecutorService downloadPool;
+    private final ExecutorService parsePool;
+    private final BlockingQueue<PendingFile> parseQueue;
+    private final RetryScheduler retryScheduler;
+    private volatile boolean closed;
+
+    public ArchivePipeline(ArchiveFileProcessor archiveProcessor, BlobChangeDao dao, QuarantineDao quarantineDao,
+                           FileSummaryDao summaryDao, AppendStateDao appendStateDao,
+                           CrossFileDuplicateIndex duplicateIndex, int downloadThreads, int parseThreads,
+                           int queueCapacity, int maxRetries, boolean skipUnchangedContent,
+                           int quarantineReprocessDelayMinutes) {
+        this.archiveProcessor = archiveProcessor;
+        this.dao = dao;
+        this.quarantineDao = quarantineDao;
+        this.summaryDao = summaryDao;
+        this.appendStateDao = appendStateDao;
+        this.duplicateIndex = duplicateIndex;
+        this.quarantineReprocessDelayMinutes = quarantineReprocessDelayMinutes;
+        this.maxRetries = maxRetries;
+        this.skipUnchangedContent = skipUnchangedContent;
+        this.downloadPool = Executors.newFixedThreadPool(downloadThreads, namedThreadFactory("archive-download-"));
+        this.parsePool = Executors.newFixedThreadPool(parseThreads, namedThreadFactory("archive-parse-"));
+        this.parseQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.retryScheduler = new RetryScheduler("archive");
+
+        for (int i = 0; i < parseThreads; i++) {
+            parsePool.execute(this::runParseWorker);
+        }
+
+        logger.info("Archive pipeline started: download threads={}, parse threads={}, prefetch queue={}",
+            downloadThreads, parseThreads, queueCapacity);
+    }
+
+    /**
+     * Process a batch of archive files and wait for all of them to finish.
+     * Per-file results are reported in the order of the given blob names.
+     * @param blobNames Blob names to process
+     * @return BatchResult with processed and failed counts
+     */
+    public BatchResult processBatch(List<String> blobNames) throws InterruptedException {
+        return processBatch(blobNames, Collections.emptyMap());
+    }
+
+    /**
+     * Process a batch of archive files and wait for all of them to finish.
+     * Per-file results are reported in the order of the given blob names.
+     * @param blobNames Blob names to process
+     * @param retryCounts Retries already made for a blob in earlier cycles (retry_count); absent for none
+     * @return BatchResult with processed and failed counts
+     */
+    public BatchResult processBatch(List<String> blobNames, Map<String, Integer> retryCounts) throws InterruptedException {
+        // Shared progress counter across both stages
+        AtomicInteger completedCount = new AtomicInteger();
+        List<CompletableFuture<Boolean>> results = new ArrayList<>(blobNames.size());
+
+        for (String blobName : blobNames) {
+            CompletableFuture<Boolean> result = new CompletableFuture<>();
+            result.whenComplete((success, error) -> {
+                int completed = completedCount.incrementAndGet();
+                if (completed % 10 == 0) {
+                    logger.info("Progress: {} of {} files done", completed, blobNames.size());
+                }
+            });
+            results.add(result);
+            int attempt = retryCounts.getOrDefault(blobName, 0);
+            downloadPool.execute(() -> download(blobName, result, attempt));
+        }
+
+        // Collect results in submission order so status reporting is deterministic
+        int processed = 0;
+        int failed = 0;
+        for (int i = 0; i < results.size(); i++) {
+            String blobName = blobNames.get(i);
+            boolean success;
+            try {
+                success = results.get(i).get();
+            } catch (ExecutionException e) {
+                logger.error("Unexpected pipeline error processing file: {}", blobName, e.getCause());
+                success = false;
+            }
+            if (success) {
+                processed++;
+                logger.debug("File {} of {} completed: {}", i + 1, results.size(), blobName);
+            } else {
+                failed++;
+                logger.info("File {} of {} failed: {}", i + 1, results.size(), blobName);
+            }
+        }
+        return new BatchResult(processed, failed);
+    }
+
+    /**
+     * Download stage: fetch the blob and hand it to the parse stage (blocking while the queue is full)
+     * @param attempt Number of retries already made for this blob
+     */
+    private void download(String blobName, CompletableFuture<Boolean> result, int attempt) {
+        try {
+            logger.debug("Processing file: {}", blobName);
+
+            // Mark as processing
+            try {
+                dao.updateProcessingStatus(blobName, "PROCESSING");
+            } catch (Exception e) {
+                logger.warn("Failed to update status to PROCESSING for blob: {}", blobName, e);
+            }
+
+            // Stored counts of an earlier run, for skipping unchanged content and for the duplicate index,
+            // which already holds the records of a blob whose counts were stored
+            ProcessedContent stored = null;
+            if (skipUnchangedContent || duplicateIndex != null) {
+                try {
+                    stored = dao.getProcessedContent(blobName);
+                } catch (Exception e) {
+                    logger.warn("Failed to load previously processed content for blob: {}", blobName, e);
+                }
+            }
+            ProcessedContent previous = skipUnchangedContent ? stored : null;
+
+            AppendBlobState appendState = null;
+            if (appendStateDao != null) {
+                try {
+                    appendState = appendStateDao.get(blobName);
+                } catch (Exception e) {
+                    logger.warn("Failed to load append blob state for blob: {}", blobName, e);
+                }
+            }
+
+            DownloadedBlob blob = archiveProcessor.downloadFile(blobName, previous, appendState);
+            if (blob.isUnchanged()) {
+                // Same content as the last processed version: carry the stored counts over to the new events
+                dao.updateRecordCountsAndStatus(
+                    blobName,
+                    previous.getTotalRecords(),
+                    previous.getDistinctRecords(),
+                    "COMPLETED",
+                    blob.getEtag(),
+                    blob.getContentMd5()
+                );
+                markCompleted(blobName, result);
+                return;
+            }
+            try {
+                parseQueue.put(new PendingFile(blob, appendState != null, stored != null, result));
+            } catch (InterruptedException e) {
+                blob.close();
+                throw e;
+            }
+            if (closed) {
+                // Queued after close() drained the queue: no parse worker will take it
+                drainParseQueue();
+            }
+        } catch (BlobMissingException e) {
+            // Not retried: the blob was deleted or never written, so record it and move on
+            logger.warn("Blob is missing from the archive container, not retrying: {}", blobName);
+            markFailed(blobName, "MISSING", FailureCategory.MISSING, e, result);
+        } catch (FileProcessingException e) {
+            retryOrFail(blobName, result, attempt, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while downloading file: {}", blobName);
+            result.complete(false);
+        } catch (Exception e) {
+            logger.error("Unexpected error downloading file: {}", blobName, e);
+            markFailed(blobName, "FAILED", FailureCategory.IO, e, result);
+        }
+    }
+
+    /**
+     * Hand a failed download to the retry scheduler, or mark it failed once retries are exhausted.
+     * The download thread returns immediately and picks up the next blob.
+     */
+    private void retryOrFail(String blobName, CompletableFuture<Boolean> result, int attempt,
+                             FileProcessingException e) {
+        if (attempt >= maxRetries) {
+            logger.error("Error downloading file after {} retries: {}", maxRetries, blobName, e);
+            markFailed(blobName, "FAILED", FailureCategory.IO, e, result);
+            return;
+        }
+
+        int nextAttempt = attempt + 1;
+        OffsetDateTime nextAttemptAt = retryScheduler.schedule(nextAttempt, () -> resubmit(blobName, result, nextAttempt));
+        logger.warn("Download attempt {} failed for blob: {}. Retry {} of {} scheduled at {}",
+            attempt + 1, blobName, nextAttempt, maxRetries, nextAttemptAt, e);
+        try {
+            dao.scheduleRetry(blobName, "RETRY", nextAttempt, nextAttemptAt);
+        } catch (Exception statusException) {
+            logger.warn("Failed to record scheduled retry for blob: {}", blobName, statusException);
+        }
+    }
+
+    private void resubmit(String blobName, CompletableFuture<Boolean> result, int attempt) {
+        logger.info("Retry attempt {} of {} for blob: {}", attempt, maxRetries, blobName);
+        try {
+            downloadPool.execute(() -> download(blobName, result, attempt));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Pipeline is shut down, dropping retry for blob: {}", blobName);
+            result.complete(false);
+        }
+    }
+
+    /**
+     * Parse stage worker: take downloaded blobs off the queue, count records and store the result
+     */
+    private void runParseWorker() {
+        while (!Thread.currentThread().isInterrupted()) {
+            PendingFile pending;
+            try {
+                pending = parseQueue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            parse(pending);
+        }
+    }
+
+    private void parse(PendingFile pending) {
+        String blobName = pending.blob.getBlobName();
+        try (DownloadedBlob blob = pending.blob) {
+            RecordCounts counts = archiveProcessor.parseContent(blob);
+
+            // Update database with record counts and mark as completed
+            dao.updateRecordCountsAndStatus(
+                blobName,
+                counts.getTotalRecords(),
+                counts.getDistinctRecords(),
+                "COMPLETED",
+                counts.getContentEtag(),
+                counts.getContentMd5()
+            );
+            // Only once the counts are stored: a file that fails before is not in the index when it is retried
+            checkCrossFileDuplicates(blobName, counts, pending.processedBefore);
+            storeSummary(blobName, counts);
+            storeAppendState(blobName, counts, pending.hadAppendState);
+            markCompleted(blobName, pending.result);
+        } catch (FileProcessingException e) {
+            logger.error("Error parsing file: {}", blobName, e);
+            markFailed(blobName, "FAILED", FailureCategory.PARSE, e, pending.result);
+        } catch (Exception e) {
+            logger.error("Unexpected error processing file: {}", blobName, e);
+            markFailed(blobName, "FAILED", FailureCategory.IO, e, pending.result);
+        }
+    }
+
+    /**
+     * Estimate the records of the file already delivered by earlier files and add its records to the
+     * duplicate index. A failure is logged and leaves the estimate unset.
+     * @param processedBefore Counts of the blob were stored by an earlier run, which added its records to
+     *                        the index: they would all match, so only the records of an appended range are checked
+     */
+    private void checkCrossFileDuplicates(String blobName, RecordCounts counts, boolean processedBefore) {
+        if (duplicateIndex == null || counts.getFingerprints() == null || counts.getSummary() == null) {
+            return;
+        }
+        try {
+            int duplicates = duplicateIndex.checkAndAdd(counts.getFingerprints());
+            if (processedBefore && !counts.isAppended()) {
+                // The stored estimate of the first run is kept
+                logger.debug("Blob {} was processed before: its records were added to the duplicate index again, not checked",
+                    blobName);
+                return;
+            }
+            counts.getSummary().setCrossFileDuplicates(duplicates);
+            if (duplicates > 0) {
+                logger.info("Blob {}: {} of {} distinct records were already seen in earlier files",
+                    blobName, duplicates, counts.getDistinctRecords());
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to check cross-file duplicates for blob: {}", blobName, e);
+        }
+    }
+
+    /**
+     * Store the per-file summary. A failure is logged but does not fail the file: the counts are already stored.
+     */
+    private void storeSummary(String blobName, RecordCounts counts) {
+        if (counts.getSummary() == null) {
+            return;
+        }
+        try {
+            summaryDao.upsert(blobName, counts.getSummary(), counts.isAppended());
+        } catch (Exception e) {
+            logger.warn("Failed to store file summary for blob: {}", blobName, e);
+        }
+    }
+
+    /**
+     * Save the state the next count of an append blob continues from, or drop a state that no longer
+     * applies. A failure is logged: the next update of the blob is then counted from the older state
+     * or in full.
+     */
+    private void storeAppendState(String blobName, RecordCounts counts, boolean hadAppendState) {
+        if (appendStateDao == null) {
+            return;
+        }
+        try {
+            if (counts.getAppendState() != null) {
+                appendStateDao.upsert(blobName, counts.getAppendState());
+            } else if (hadAppendState) {
+                appendStateDao.delete(blobName);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to store append blob state for blob: {}", blobName, e);
+        }
+    }
+
+    private void markCompleted(String blobName, CompletableFuture<Boolean> result) {
+        try {
+            quarantineDao.release(blobName);
+        } catch (Exception e) {
+            logger.warn("Failed to release blob from quarantine: {}", blobName, e);
+        }
+        result.complete(true);
+    }
+
+    /**
+     * Record a final failure: set the processing status and quarantine the file with its failure category
+     */
+    private void markFailed(String blobName, String status, FailureCategory category, Throwable error,
+                            CompletableFuture<Boolean> result) {
+        try {
+            dao.updateProcessingStatus(blobName, status);
+        } catch (Exception statusException) {
+            logger.error("Failed to update status to {} for blob: {}", status, blobName, statusException);
+        }
+        try {
+            int attempts = quarantineDao.quarantine(blobName, category, error, quarantineReprocessDelayMinutes);
+            logger.warn("Quarantined blob {} (category: {}, failures: {})", blobName, category, attempts);
+        } catch (Exception quarantineException) {
+            logger.error("Failed to quarantine blob: {}", blobName, quarantineException);
+        }
+        result.complete(false);
+    }
+
+    /**
+     * Stop both stages. Downloaded blobs still waiting for the parse stage are closed, which returns
+     * their local files, cache pins and download budget, and their files are reported as not processed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        retryScheduler.close();
+        downloadPool.shutdownNow();
+        parsePool.shutdownNow();
+        drainParseQueue();
+        if (duplicateIndex != null) {
+            duplicateIndex.close();
+        }
+    }
+
+    private void drainParseQueue() {
+        List<PendingFile> pending = new ArrayList<>();
+        parseQueue.drainTo(pending);
+        for (PendingFile file : pending) {
+            logger.debug("Pipeline closed before parsing blob: {}", file.blob.getBlobName());
+            file.blob.close();
+            file.result.complete(false);
+        }
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A downloaded blob waiting in the parse queue together with its completion handle
+     */
+    private static class PendingFile {
+        private final DownloadedBlob blob;
+        private final boolean hadAppendState; // An append blob state was stored for the blob before this count
+        private final boolean processedBefore; // Counts of the blob were stored before this count
+        private final CompletableFuture<Boolean> result;
+
+        PendingFile(DownloadedBlob blob, boolean hadAppendState, boolean processedBefore,
+                    CompletableFuture<Boolean> result) {
+            this.blob = blob;
+            this.hadAppendState = hadAppendState;
+            this.processedBefore = processedBefore;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Result of processing one batch of archive files
+     */
+    public static class BatchResult {
+        private final int processed;
+        private final int failed;
+
+        public BatchResult(int processed, int failed) {
+            this.processed = processed;
+            this.failed = failed;
+        }
+
+        public int getProcessed() {
+            return processed;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+    }
+}
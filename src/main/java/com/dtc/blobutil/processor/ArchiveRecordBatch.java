@@ -0,0 +1,131 @@
+package com.dtc.blobutil.processor;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryProvider;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A batch of archive records in Arrow columnar form.
+ *
+ * Repeated strings are dictionary-encoded: their columns hold Int32 codes of the document's
+ * {@link StringDictionary}, and all of them share dictionary id {@link #STRING_DICTIONARY_ID}.
+ * Timestamps that parse as ISO-8601 are stored as epoch nanoseconds; a timestamp that does not
+ * parse keeps its original text in the *Text column instead.
+ *
+ * The root is reused for the next batch of the document, so a batch is only valid while the
+ * {@link ArchiveBatchVisitor} callback runs. Consumers that keep data must copy or transfer it.
+ */
+public class ArchiveRecordBatch {
+    public static final long STRING_DICTIONARY_ID = 0;
+
+    public static final String ID = "Id";
+    public static final String FULLNAME = "Fullname";
+    public static final String TIME = "Time";
+    public static final String TIME_TEXT = "TimeText";
+    public static final String VALUE = "Value";
+    public static final String UNITS = "Units";
+    public static final String QUALITY = "Quality";
+    public static final String STATE = "State";
+    public static final String RECORD_TIME = "RecordTime";
+    public static final String RECORD_TIME_TEXT = "RecordTimeText";
+    public static final String SEQ_NO = "SeqNo";
+    public static final String SEVERITY = "Severity";
+    public static final String CATEGORY = "Category";
+    public static final String AREA_OF_INTEREST = "AreaOfInterest";
+
+    private static final ArrowType.Int DICTIONARY_INDEX_TYPE = new ArrowType.Int(32, true);
+    private static final DictionaryEncoding STRING_ENCODING =
+        new DictionaryEncoding(STRING_DICTIONARY_ID, false, DICTIONARY_INDEX_TYPE);
+
+    /**
+     * Schema of ExportedData batches
+     */
+    public static final Schema DATA_SCHEMA = new Schema(Arrays.asList(
+        Field.nullable(ID, new ArrowType.Int(64, true)),
+        dictionaryField(FULLNAME),
+        Field.nullable(TIME, new ArrowType.Timestamp(TimeUnit.NANOSECOND, null)),
+        Field.nullable(TIME_TEXT, ArrowType.Utf8.INSTANCE),
+        Field.nullable(VALUE, new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE)),
+        dictionaryField(UNITS),
+        dictionaryField(QUALITY),
+        dictionaryField(STATE)
+    ));
+
+    /**
+     * Schema of ExportedEvents batches
+     */
+    public static final Schema EVENTS_SCHEMA = new Schema(Arrays.asList(
+        Field.nullable(ID, new ArrowType.Int(64, true)),
+        dictionaryField(FULLNAME),
+        Field.nullable(RECORD_TIME, new ArrowType.Timestamp(TimeUnit.NANOSECOND, null)),
+        Field.nullable(RECORD_TIME_TEXT, ArrowType.Utf8.INSTANCE),
+        Field.nullable(SEQ_NO, new ArrowType.Int(64, true)),
+        dictionaryField(SEVERITY),
+        dictionaryField(CATEGORY),
+        dictionaryField(AREA_OF_INTEREST)
+    ));
+
+    private final VectorSchemaRoot root;
+    private final boolean events;
+    private final StringDictionary dictionary;
+
+    ArchiveRecordBatch(VectorSchemaRoot root, boolean events, StringDictionary dictionary) {
+        this.root = root;
+        this.events = events;
+        this.dictionary = dictionary;
+    }
+
+    private static Field dictionaryField(String name) {
+        return new Field(name, new FieldType(true, DICTIONARY_INDEX_TYPE, STRING_ENCODING), null);
+    }
+
+    /**
+     * @return true for ExportedEvents records (EVENTS_SCHEMA), false for ExportedData records (DATA_SCHEMA)
+     */
+    public boolean isEvents() {
+        return events;
+    }
+
+    public VectorSchemaRoot getRoot() {
+        return root;
+    }
+
+    public int getRowCount() {
+        return root.getRowCount();
+    }
+
+    /**
+     * @return The document dictionary the encoded columns refer to. It only grows while the
+     *         document is parsed, so codes stay valid across the batches of one document.
+     */
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Build the Arrow dictionary for the encoded columns, e.g. to write the batch with an
+     * ArrowStreamWriter. The caller owns the returned vectors and must close them.
+     */
+    public DictionaryProvider.MapDictionaryProvider createDictionaryProvider(BufferAllocator allocator) {
+        String[] values = dictionary.toArray();
+        VarCharVector vector = new VarCharVector("strings", allocator);
+        vector.allocateNew(values.length);
+        for (int i = 0; i < values.length; i++) {
+            vector.setSafe(i, values[i].getBytes(StandardCharsets.UTF_8));
+        }
+        vector.setValueCount(values.length);
+        return new DictionaryProvider.MapDictionaryProvider(new Dictionary(vector, STRING_ENCODING));
+    }
+}
@@ -0,0 +1,28 @@
+package com.dtc.blobutil.processor;
+
+import com.dtc.blobutil.model.DataObject;
+import com.dtc.blobutil.model.EventObject;
+import com.dtc.blobutil.model.Header;
+
+/**
+ * Receives the records of an archive document as they are parsed
+ */
+public interface ArchiveRecordVisitor {
+
+    /**
+     * The Header of a section, reported before or after its records depending on the field order
+     * @param events true for the ExportedEvents section
+     */
+    default void header(boolean events, Header header) {
+    }
+
+    /**
+     * A record of the ExportedData section (null for a JSON null array element)
+     */
+    void data(DataObject record);
+
+    /**
+     * A record of the ExportedEvents section (null for a JSON null array element)
+     */
+    void event(EventObject record);
+}
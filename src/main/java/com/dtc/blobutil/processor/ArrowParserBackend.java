@@ -0,0 +1,412 @@
+package com.dtc.blobutil.processor;
+
+import com.dtc.blobutil.model.DataObject;
+import com.dtc.blobutil.model.EventObject;
+import com.dtc.blobutil.model.Header;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeStampNanoVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming parser that writes records straight into Arrow column vectors instead of model
+ * objects. Each section of the document fills a reusable {@link VectorSchemaRoot} of up to
+ * batchSize rows, which is handed to an {@link ArchiveBatchVisitor} whenever it is full and at
+ * the end of the document. Repeated strings are dictionary-encoded through the document
+ * {@link StringDictionary}.
+ *
+ * As a {@link JsonParserBackend} the batches are converted back to records, so the backend can
+ * be compared with the others; the counting path works on the batches directly.
+ *
+ * Arrow needs --add-opens=java.base/java.nio=ALL-UNNAMED on Java 9+.
+ */
+public class ArrowParserBackend implements JsonParserBackend, AutoCloseable {
+    public static final int DEFAULT_BATCH_SIZE = 64 * 1024;
+
+    private final JsonFactory jsonFactory;
+    private final SharedStringDictionary sharedDictionary; // Null when values are only shared within a file
+    private final int batchSize;
+    private final BufferAllocator allocator;
+
+    public ArrowParserBackend(JsonFactory jsonFactory) {
+        this(jsonFactory, null, DEFAULT_BATCH_SIZE);
+    }
+
+    public ArrowParserBackend(JsonFactory jsonFactory, SharedStringDictionary sharedDictionary, int batchSize) {
+        this.jsonFactory = jsonFactory;
+        this.sharedDictionary = sharedDictionary;
+        this.batchSize = batchSize;
+        this.allocator = new RootAllocator();
+    }
+
+    @Override
+    public String getName() {
+        return "arrow";
+    }
+
+    /**
+     * Parse a document from a stream into Arrow batches
+     */
+    public ParsedDocument parseBatches(InputStream content, ArchiveBatchVisitor visitor) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(content)) {
+            return parseDocument(parser, visitor);
+        }
+    }
+
+    /**
+     * Parse a document held in memory into Arrow batches
+     */
+    public ParsedDocument parseBatches(byte[] content, ArchiveBatchVisitor visitor) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(content)) {
+            return parseDocument(parser, visitor);
+        }
+    }
+
+    @Override
+    public ParsedDocument parse(InputStream content, ArchiveRecordVisitor visitor) throws IOException {
+        return parseBatches(content, new RecordMaterializer(visitor));
+    }
+
+    @Override
+    public ParsedDocument parse(byte[] content, ArchiveRecordVisitor visitor) throws IOException {
+        return parseBatches(content, new RecordMaterializer(visitor));
+    }
+
+    private ParsedDocument parseDocument(JsonParser parser, ArchiveBatchVisitor visitor) throws IOException {
+        StringDictionary dictionary = new StringDictionary(sharedDictionary);
+        try (BufferAllocator documentAllocator = allocator.newChildAllocator("archive-document", 0, Long.MAX_VALUE);
+             BatchWriter data = new BatchWriter(documentAllocator, false, dictionary, visitor);
+             BatchWriter events = new BatchWriter(documentAllocator, true, dictionary, visitor)) {
+            ParsedDocument document = ComplexDataReader.read(parser, dictionary, new ComplexDataReader.RecordHandler() {
+                @Override
+                public void record(JsonParser recordParser, boolean isEvent) throws IOException {
+                    if (isEvent) {
+                        events.appendEvent(recordParser);
+                    } else {
+                        data.appendData(recordParser);
+                    }
+                }
+
+                @Override
+                public void nullRecord(boolean isEvent) {
+                    visitor.nullRecord(isEvent);
+                }
+
+                @Override
+                public void header(boolean isEvent, Header header) {
+                    visitor.header(isEvent, header);
+                }
+            });
+            data.flush();
+            events.flush();
+            return document;
+        }
+    }
+
+    /**
+     * Release the Arrow memory of the backend
+     */
+    @Override
+    public void close() {
+        allocator.close();
+    }
+
+    /**
+     * Fills the vectors of one section and flushes them to the visitor in batches
+     */
+    private class BatchWriter implements AutoCloseable {
+        private final BufferAllocator allocator;
+        private final boolean events;
+        private final StringDictionary dictionary;
+        private final ArchiveBatchVisitor visitor;
+        private VectorSchemaRoot root; // Created on the first record of the section
+        private BigIntVector id;
+        private IntVector fullname;
+        private TimeStampNanoVector time; // Time or RecordTime
+        private VarCharVector timeText; // TimeText or RecordTimeText
+        private Float8Vector value; // Data only
+        private BigIntVector seqNo; // Events only
+        private IntVector[] attributes; // Units, Quality, State or Severity, Category, AreaOfInterest
+        private int rowCount;
+
+        BatchWriter(BufferAllocator allocator, boolean events, StringDictionary dictionary, ArchiveBatchVisitor visitor) {
+            this.allocator = allocator;
+            this.events = events;
+            this.dictionary = dictionary;
+            this.visitor = visitor;
+        }
+
+        private void open() {
+            if (events) {
+                root = VectorSchemaRoot.create(ArchiveRecordBatch.EVENTS_SCHEMA, allocator);
+                time = (TimeStampNanoVector) root.getVector(ArchiveRecordBatch.RECORD_TIME);
+                timeText = (VarCharVector) root.getVector(ArchiveRecordBatch.RECORD_TIME_TEXT);
+                seqNo = (BigIntVector) root.getVector(ArchiveRecordBatch.SEQ_NO);
+                attributes = new IntVector[] {
+                    (IntVector) root.getVector(ArchiveRecordBatch.SEVERITY),
+                    (IntVector) root.getVector(ArchiveRecordBatch.CATEGORY),
+                    (IntVector) root.getVector(ArchiveRecordBatch.AREA_OF_INTEREST)
+                };
+            } else {
+                root = VectorSchemaRoot.create(ArchiveRecordBatch.DATA_SCHEMA, allocator);
+                time = (TimeStampNanoVector) root.getVector(ArchiveRecordBatch.TIME);
+                timeText = (VarCharVector) root.getVector(ArchiveRecordBatch.TIME_TEXT);
+                value = (Float8Vector) root.getVector(ArchiveRecordBatch.VALUE);
+                attributes = new IntVector[] {
+                    (IntVector) root.getVector(ArchiveRecordBatch.UNITS),
+                    (IntVector) root.getVector(ArchiveRecordBatch.QUALITY),
+                    (IntVector) root.getVector(ArchiveRecordBatch.STATE)
+                };
+            }
+            id = (BigIntVector) root.getVector(ArchiveRecordBatch.ID);
+            fullname = (IntVector) root.getVector(ArchiveRecordBatch.FULLNAME);
+            root.allocateNew();
+        }
+
+        void appendData(JsonParser parser) throws IOException {
+            if (root == null) {
+                open();
+            }
+            int row = rowCount;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "Id":
+                        setLong(id, row, JsonScalars.readLong(parser));
+                        break;
+                    case "Fullname":
+                        setCode(fullname, row, JsonScalars.readCode(parser, dictionary));
+                        break;
+                    case "Time":
+                        setTime(parser, row);
+                        break;
+                    case "Value":
+                        Double number = JsonScalars.readDouble(parser);
+                        if (number == null) {
+                            value.setNull(row);
+                        } else {
+                            value.setSafe(row, number);
+                        }
+                        break;
+                    case "Units":
+                        setCode(attributes[0], row, JsonScalars.readCode(parser, dictionary));
+                        break;
+                    case "Quality":
+                        setCode(attributes[1], row, JsonScalars.readCode(parser, dictionary));
+                        break;
+                    case "State":
+                        setCode(attributes[2], row, JsonScalars.readCode(parser, dictionary));
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            endRow();
+        }
+
+        void appendEvent(JsonParser parser) throws IOException {
+            if (root == null) {
+                open();
+            }
+            int row = rowCount;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "Id":
+                        setLong(id, row, JsonScalars.readLong(parser));
+                        break;
+                    case "Fullname":
+                        setCode(fullname, row, JsonScalars.readCode(parser, dictionary));
+                        break;
+                    case "RecordTime":
+                        setTime(parser, row);
+                        break;
+                    case "SeqNo":
+                        setLong(seqNo, row, JsonScalars.readLong(parser));
+                        break;
+                    case "Severity":
+                        setCode(attributes[0], row, JsonScalars.readCode(parser, dictionary));
+                        break;
+                    case "Category":
+                        setCode(attributes[1], row, JsonScalars.readCode(parser, dictionary));
+                        break;
+                    case "AreaOfInterest":
+                        setCode(attributes[2], row, JsonScalars.readCode(parser, dictionary));
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            endRow();
+        }
+
+        private void setTime(JsonParser parser, int row) throws IOException {
+            long nanos;
+            String text = null;
+            if (parser.currentToken() == JsonToken.VALUE_STRING) {
+                nanos = IsoTimestamps.parseEpochNanos(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                if (nanos == IsoTimestamps.INVALID) {
+                    text = parser.getText();
+                }
+            } else {
+                text = JsonScalars.readString(parser);
+                nanos = text == null ? IsoTimestamps.INVALID : IsoTimestamps.parseEpochNanos(text);
+                if (nanos != IsoTimestamps.INVALID) {
+                    text = null;
+                }
+            }
+            if (nanos != IsoTimestamps.INVALID) {
+                time.setSafe(row, nanos);
+                timeText.setNull(row);
+            } else {
+                time.setNull(row);
+                if (text == null) {
+                    timeText.setNull(row);
+                } else {
+                    timeText.setSafe(row, text.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        private void endRow() {
+            rowCount++;
+            if (rowCount == batchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Hand the filled rows to the visitor and reset the vectors for the next batch
+         */
+        void flush() {
+            if (rowCount == 0) {
+                return;
+            }
+            root.setRowCount(rowCount);
+            visitor.batch(new ArchiveRecordBatch(root, events, dictionary));
+            for (FieldVector vector : root.getFieldVectors()) {
+                vector.reset();
+            }
+            rowCount = 0;
+        }
+
+        @Override
+        public void close() {
+            if (root != null) {
+                root.close();
+            }
+        }
+    }
+
+    private static void setLong(BigIntVector vector, int row, Long value) {
+        if (value == null) {
+            vector.setNull(row);
+        } else {
+            vector.setSafe(row, value);
+        }
+    }
+
+    private static void setCode(IntVector vector, int row, int code) {
+        if (code < 0) {
+            vector.setNull(row);
+        } else {
+            vector.setSafe(row, code);
+        }
+    }
+
+    /**
+     * Converts batch rows back to model objects for an {@link ArchiveRecordVisitor}.
+     * Parsed timestamps come back in ISO-8601 UTC form.
+     */
+    private static class RecordMaterializer implements ArchiveBatchVisitor {
+        private final ArchiveRecordVisitor visitor;
+
+        RecordMaterializer(ArchiveRecordVisitor visitor) {
+            this.visitor = visitor;
+        }
+
+        @Override
+        public void batch(ArchiveRecordBatch batch) {
+            VectorSchemaRoot root = batch.getRoot();
+            StringDictionary dictionary = batch.getDictionary();
+            BigIntVector id = (BigIntVector) root.getVector(ArchiveRecordBatch.ID);
+            IntVector fullname = (IntVector) root.getVector(ArchiveRecordBatch.FULLNAME);
+            if (batch.isEvents()) {
+                TimeStampNanoVector recordTime = (TimeStampNanoVector) root.getVector(ArchiveRecordBatch.RECORD_TIME);
+                VarCharVector recordTimeText = (VarCharVector) root.getVector(ArchiveRecordBatch.RECORD_TIME_TEXT);
+                BigIntVector seqNo = (BigIntVector) root.getVector(ArchiveRecordBatch.SEQ_NO);
+                IntVector severity = (IntVector) root.getVector(ArchiveRecordBatch.SEVERITY);
+                IntVector category = (IntVector) root.getVector(ArchiveRecordBatch.CATEGORY);
+                IntVector areaOfInterest = (IntVector) root.getVector(ArchiveRecordBatch.AREA_OF_INTEREST);
+                for (int row = 0; row < batch.getRowCount(); row++) {
+                    EventObject record = new EventObject();
+                    record.setId(id.getObject(row));
+                    record.setFullname(decode(fullname, row, dictionary));
+                    record.setRecordTime(time(recordTime, recordTimeText, row));
+                    record.setSeqNo(seqNo.getObject(row));
+                    record.setSeverity(decode(severity, row, dictionary));
+                    record.setCategory(decode(category, row, dictionary));
+                    record.setAreaOfInterest(decode(areaOfInterest, row, dictionary));
+                    visitor.event(record);
+                }
+            } else {
+                TimeStampNanoVector time = (TimeStampNanoVector) root.getVector(ArchiveRecordBatch.TIME);
+                VarCharVector timeText = (VarCharVector) root.getVector(ArchiveRecordBatch.TIME_TEXT);
+                Float8Vector value = (Float8Vector) root.getVector(ArchiveRecordBatch.VALUE);
+                IntVector units = (IntVector) root.getVector(ArchiveRecordBatch.UNITS);
+                IntVector quality = (IntVector) root.getVector(ArchiveRecordBatch.QUALITY);
+                IntVector state = (IntVector) root.getVector(ArchiveRecordBatch.STATE);
+                for (int row = 0; row < batch.getRowCount(); row++) {
+                    DataObject record = new DataObject();
+                    record.setId(id.getObject(row));
+                    record.setFullname(decode(fullname, row, dictionary));
+                    record.setTime(time(time, timeText, row));
+                    record.setValue(value.getObject(row));
+                    record.setUnits(decode(units, row, dictionary));
+                    record.setQuality(decode(quality, row, dictionary));
+                    record.setState(decode(state, row, dictionary));
+                    visitor.data(record);
+                }
+            }
+        }
+
+        @Override
+        public void nullRecord(boolean events) {
+            if (events) {
+                visitor.event(null);
+            } else {
+                visitor.data(null);
+            }
+        }
+
+        @Override
+        public void header(boolean events, Header header) {
+            visitor.header(events, header);
+        }
+
+        private static String decode(IntVector vector, int row, StringDictionary dictionary) {
+            return vector.isNull(row) ? null : dictionary.decode(vector.get(row));
+        }
+
+        private static String time(TimeStampNanoVector time, VarCharVector text, int row) {
+            if (!time.isNull(row)) {
+                return IsoTimestamps.format(time.get(row));
+            }
+            return text.isNull(row) ? null : new String(text.get(row), StandardCharsets.UTF_8);
+        }
+    }
+}
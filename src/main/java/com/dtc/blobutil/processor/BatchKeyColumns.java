@@ -0,0 +1,223 @@
+package com.dtc.blobutil.processor;
+
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeStampNanoVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the fields of a {@link DedupKey} from the columns of {@link ArchiveRecordBatch}es as long
+ * tuples for a {@link LongTupleSet}, and as fingerprints matching {@link DedupKey#fingerprint}.
+ *
+ * Each key field is one long: Int64 columns hold the value, dictionary-encoded strings their code
+ * in the document dictionary, doubles their bits and timestamps epoch nanoseconds (or the code of
+ * the unparsed text). A trailing flags word has bit {@code i} set when field {@code i} is null and
+ * bit {@code 32 + i} when it holds unparsed timestamp text, so a null never equals a value.
+ *
+ * One instance serves the batches of one document; the string hashes it caches are per code.
+ */
+final class BatchKeyColumns {
+    private enum Kind { LONG, CODE, DOUBLE, TIME }
+
+    private final DedupKey key;
+    private final Kind[] kinds;
+    private final FieldVector[] vectors;
+    private final VarCharVector[] timeTexts; // Unparsed text column of TIME fields
+    private final int timeField;
+    private final long[] tuple;
+    private final StringDictionary unparsedTimes = new StringDictionary();
+    private StringDictionary dictionary;
+    private long[] codeHashes = new long[64]; // Fingerprint hash per dictionary code, 0 = not computed yet
+
+    /**
+     * @param key A key accepted by {@link #check}
+     * @param events true for the events schema
+     */
+    BatchKeyColumns(DedupKey key, boolean events) {
+        Schema schema = schema(events);
+        String[] names = key.getFieldNames().toArray(new String[0]);
+        this.key = key;
+        this.kinds = new Kind[names.length];
+        this.vectors = new FieldVector[names.length];
+        this.timeTexts = new VarCharVector[names.length];
+        for (int i = 0; i < names.length; i++) {
+            kinds[i] = kind(findField(schema, names[i]));
+        }
+        this.timeField = key.getTimeField();
+        this.tuple = new long[names.length + 1];
+    }
+
+    /**
+     * @throws IllegalArgumentException if a key field has no column in the Arrow schema
+     */
+    static void check(DedupKeys keys) {
+        check(keys.getData(), false, "archive.dataDedupKey");
+        check(keys.getEvents(), true, "archive.eventsDedupKey");
+    }
+
+    private static void check(DedupKey key, boolean events, String configKey) {
+        Schema schema = schema(events);
+        List<String> unsupported = new ArrayList<>();
+        for (String name : key.getFieldNames()) {
+            Field field = findField(schema, name);
+            if (field == null || kind(field) == null) {
+                unsupported.add(name);
+            }
+        }
+        if (!unsupported.isEmpty()) {
+            throw new IllegalArgumentException(configKey + " fields " + unsupported
+                + " are not read by the arrow parser backend. Supported fields: " + supportedFields(schema));
+        }
+    }
+
+    private static Schema schema(boolean events) {
+        return events ? ArchiveRecordBatch.EVENTS_SCHEMA : ArchiveRecordBatch.DATA_SCHEMA;
+    }
+
+    private static Field findField(Schema schema, String name) {
+        for (Field field : schema.getFields()) {
+            if (field.getName().equals(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private static List<String> supportedFields(Schema schema) {
+        List<String> names = new ArrayList<>();
+        for (Field field : schema.getFields()) {
+            if (kind(field) != null) {
+                names.add(field.getName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @return How a column is read into a key, null for columns that are not record fields
+     */
+    private static Kind kind(Field field) {
+        if (field.getName().endsWith("Text")) {
+            return null; // Unparsed timestamps belong to their TIME column
+        }
+        if (field.getDictionary() != null) {
+            return Kind.CODE;
+        }
+        switch (field.getType().getTypeID()) {
+            case Int:
+                return Kind.LONG;
+            case FloatingPoint:
+                return Kind.DOUBLE;
+            case Timestamp:
+                return Kind.TIME;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return Longs per tuple: one per field plus the flags word
+     */
+    int width() {
+        return tuple.length;
+    }
+
+    /**
+     * Bind the columns of the next batch
+     */
+    void bind(ArchiveRecordBatch batch) {
+        VectorSchemaRoot root = batch.getRoot();
+        List<String> names = key.getFieldNames();
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = root.getVector(names.get(i));
+            if (kinds[i] == Kind.TIME) {
+                timeTexts[i] = (VarCharVector) root.getVector(names.get(i) + "Text");
+            }
+        }
+        if (dictionary != batch.getDictionary()) {
+            dictionary = batch.getDictionary();
+            Arrays.fill(codeHashes, 0);
+        }
+    }
+
+    /**
+     * @return The key tuple of a row; the array is reused for the next row
+     */
+    long[] tuple(int row) {
+        long flags = 0;
+        for (int i = 0; i < vectors.length; i++) {
+            long value = 0;
+            FieldVector vector = vectors[i];
+            if (vector.isNull(row)) {
+                if (kinds[i] == Kind.TIME && !timeTexts[i].isNull(row)) {
+                    value = unparsedTimes.encode(new String(timeTexts[i].get(row), StandardCharsets.UTF_8));
+                    flags |= 1L << (32 + i);
+                } else {
+                    flags |= 1L << i;
+                }
+            } else {
+                value = value(i, row);
+            }
+            tuple[i] = value;
+        }
+        tuple[vectors.length] = flags;
+        return tuple;
+    }
+
+    /**
+     * Fingerprint of the key of a row, the same value {@link DedupKey#fingerprint} gives the record
+     * @param timeNanos The record time of the row
+     */
+    long fingerprint(int row, long timeNanos) {
+        long h = RecordFingerprints.SEED;
+        for (int i = 0; i < vectors.length; i++) {
+            long value;
+            if (i == timeField) {
+                value = timeNanos;
+            } else if (vectors[i].isNull(row)) {
+                value = RecordFingerprints.NULL;
+            } else if (kinds[i] == Kind.CODE) {
+                value = codeHash(((IntVector) vectors[i]).get(row));
+            } else {
+                value = value(i, row);
+            }
+            h = RecordFingerprints.mix(h ^ value);
+        }
+        return h;
+    }
+
+    private long value(int field, int row) {
+        switch (kinds[field]) {
+            case LONG:
+                return ((BigIntVector) vectors[field]).get(row);
+            case CODE:
+                return ((IntVector) vectors[field]).get(row);
+            case DOUBLE:
+                return Double.doubleToLongBits(((Float8Vector) vectors[field]).get(row));
+            default:
+                return ((TimeStampNanoVector) vectors[field]).get(row);
+        }
+    }
+
+    private long codeHash(int code) {
+        if (code >= codeHashes.length) {
+            codeHashes = Arrays.copyOf(codeHashes, Math.max(codeHashes.length * 2, code + 1));
+        }
+        long hash = codeHashes[code];
+        if (hash == 0) {
+            hash = RecordFingerprints.hash(dictionary.decode(code));
+            codeHashes[code] = hash;
+        }
+        return hash;
+    }
+}
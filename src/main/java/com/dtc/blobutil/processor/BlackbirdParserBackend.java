@@ -0,0 +1,43 @@
+package com.dtc.blobutil.processor;
+
+import com.dtc.blobutil.model.DataObject;
+import com.dtc.blobutil.model.EventObject;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+import java.io.IOException;
+
+/**
+ * Jackson databind per record, with the Blackbird module generating the property accessors
+ * (LambdaMetafactory instead of reflection). The document is streamed; each record object is
+ * bound by an ObjectReader that is created once and reused, so deserializer lookup happens only
+ * on the first record.
+ */
+public class BlackbirdParserBackend extends AbstractStreamingParserBackend {
+    private final ObjectReader dataReader;
+    private final ObjectReader eventReader;
+
+    public BlackbirdParserBackend(ObjectMapper objectMapper) {
+        super(objectMapper.getFactory());
+        ObjectMapper blackbirdMapper = objectMapper.copy().registerModule(new BlackbirdModule());
+        this.dataReader = blackbirdMapper.readerFor(DataObject.class);
+        this.eventReader = blackbirdMapper.readerFor(EventObject.class);
+    }
+
+    @Override
+    public String getName() {
+        return "blackbird";
+    }
+
+    @Override
+    protected DataObject readData(JsonParser parser, StringDictionary dictionary) throws IOException {
+        return dataReader.readValue(parser);
+    }
+
+    @Override
+    protected EventObject readEvent(JsonParser parser, StringDictionary dictionary) throws IOException {
+        return eventReader.readValue(parser);
+    }
+}
@@ -0,0 +1,141 @@
+package com.dtc.blobutil.processor;
+
+import com.dtc.blobutil.model.Header;
+import com.dtc.blobutil.processor.JsonParserBackend.ParsedDocument;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+
+import java.io.IOException;
+
+/**
+ * Token-level navigation of a ComplexData document down to the records of its Objects arrays,
+ * shared by the streaming backends.
+ *
+ * Sections are reported the same way databind binds them: a section that is missing or a JSON
+ * null does not count as present, and an empty document is an error.
+ */
+final class ComplexDataReader {
+    private static final String EXPORTED_DATA = "ExportedData";
+    private static final String EXPORTED_EVENTS = "ExportedEvents";
+    private static final String OBJECTS = "Objects";
+    private static final String HEADER = "Header";
+
+    /**
+     * Reads one element of an Objects array
+     */
+    interface RecordHandler {
+        /**
+         * The parser is positioned on the START_OBJECT of the record and must be left on its
+         * END_OBJECT
+         * @param events true for ExportedEvents records, false for ExportedData records
+         */
+        void record(JsonParser parser, boolean events) throws IOException;
+
+        /**
+         * A JSON null array element
+         */
+        void nullRecord(boolean events);
+
+        /**
+         * The Header of a section
+         */
+        void header(boolean events, Header header);
+    }
+
+    private ComplexDataReader() {
+    }
+
+    /**
+     * Read a document, passing every record to the handler
+     * @param dictionary Dictionary the handler encodes strings into, reported with the document (may be null)
+     */
+    static ParsedDocument read(JsonParser parser, StringDictionary dictionary, RecordHandler handler) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            throw MismatchedInputException.from(parser, Object.class, "No content to map due to end-of-input");
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return ParsedDocument.NULL_DOCUMENT;
+        }
+        expect(parser, JsonToken.START_OBJECT, "ComplexData");
+
+        boolean dataSection = false;
+        boolean eventsSection = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (EXPORTED_DATA.equals(field)) {
+                dataSection = value != JsonToken.VALUE_NULL;
+                readSection(parser, handler, false);
+            } else if (EXPORTED_EVENTS.equals(field)) {
+                eventsSection = value != JsonToken.VALUE_NULL;
+                readSection(parser, handler, true);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new ParsedDocument(true, dataSection, eventsSection, dictionary);
+    }
+
+    private static void readSection(JsonParser parser, RecordHandler handler, boolean events) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return;
+        }
+        expect(parser, JsonToken.START_OBJECT, events ? EXPORTED_EVENTS : EXPORTED_DATA);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (OBJECTS.equals(field) && value != JsonToken.VALUE_NULL) {
+                expect(parser, JsonToken.START_ARRAY, OBJECTS);
+                readObjects(parser, handler, events);
+            } else if (HEADER.equals(field) && value != JsonToken.VALUE_NULL) {
+                expect(parser, JsonToken.START_OBJECT, HEADER);
+                handler.header(events, readHeader(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readObjects(JsonParser parser, RecordHandler handler, boolean events) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.VALUE_NULL) {
+                handler.nullRecord(events);
+                continue;
+            }
+            expect(parser, JsonToken.START_OBJECT, OBJECTS);
+            handler.record(parser, events);
+        }
+    }
+
+    private static Header readHeader(JsonParser parser) throws IOException {
+        Header header = new Header();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "SystemName":
+                    header.setSystemName(JsonScalars.readString(parser));
+                    break;
+                case "StartDate":
+                    header.setStartDate(JsonScalars.readString(parser));
+                    break;
+                case "EndDate":
+                    header.setEndDate(JsonScalars.readString(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return header;
+    }
+
+    private static void expect(JsonParser parser, JsonToken expected, String element) throws IOException {
+        if (parser.currentToken() != expected) {
+            throw MismatchedInputException.from(parser, Object.class,
+                "Unexpected token " + parser.currentToken() + " for " + element + ", expected " + expected);
+        }
+    }
+}
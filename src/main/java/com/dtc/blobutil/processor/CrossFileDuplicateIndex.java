@@ -0,0 +1,161 @@
+package com.dtc.blobutil.processor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Persistent index of the record keys of processed archive files, used to estimate how many
+ * records of a file were already delivered by an earlier file.
+ *
+ * Keys are held as 64-bit fingerprints in one {@link ScalableBloomFilter} per record type and UTC
+ * day of the record time, e.g. {@code data-2024-01-15.0.bloom}. A file's distinct fingerprints are
+ * checked against the filter of their day and then added to it, so the estimate never counts
+ * duplicates within the file itself. A Bloom filter has no false negatives, so the estimate can
+ * only be too high, by at most the configured false positive rate of the new records.
+ *
+ * Only the last {@code retentionDays} days are indexed: older filter files are deleted and records
+ * older than that are not checked. The index is safe to use from several parse threads, but not
+ * from several processes sharing one directory.
+ */
+public class CrossFileDuplicateIndex implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(CrossFileDuplicateIndex.class);
+    private static final long INITIAL_CAPACITY = 1L << 20; // Fingerprints in the first slice of each day
+    private static final Pattern FILE_NAME = Pattern.compile("(data|events)-(\\d{4}-\\d{2}-\\d{2})\\.\\d+\\.bloom");
+
+    private final Path directory;
+    private final double falsePositiveRate;
+    private final int retentionDays;
+    private final Map<String, ScalableBloomFilter> filters = new ConcurrentHashMap<>();
+    private volatile long lastCleanupDay = Long.MIN_VALUE;
+
+    /**
+     * @param directory Directory of the index files, created if missing
+     * @param falsePositiveRate Upper bound of the false positive rate of each day's filter
+     * @param retentionDays Days of records to keep in the index
+     */
+    public CrossFileDuplicateIndex(String directory, double falsePositiveRate, int retentionDays) throws IOException {
+        this.directory = Paths.get(directory);
+        this.falsePositiveRate = falsePositiveRate;
+        this.retentionDays = retentionDays;
+        Files.createDirectories(this.directory);
+        deleteExpired(today());
+        logger.info("Cross-file duplicate index: {} (false positive rate {}, {} days)",
+            this.directory, falsePositiveRate, retentionDays);
+    }
+
+    /**
+     * Count the records of a file that are already in the index, then add the file's records
+     * @return the estimated number of distinct records of the file seen in earlier files
+     */
+    int checkAndAdd(RecordFingerprints fingerprints) throws IOException {
+        long today = today();
+        if (today != lastCleanupDay) {
+            deleteExpired(today);
+        }
+        String type = fingerprints.getRecordType().toLowerCase(Locale.ROOT);
+
+        int duplicates = 0;
+        for (RecordFingerprints.Day day : fingerprints.getDays()) {
+            if (day.getEpochDay() < today - retentionDays) {
+                continue;
+            }
+            long[] distinct = day.distinct();
+            ScalableBloomFilter filter = filter(type + "-" + LocalDate.ofEpochDay(day.getEpochDay()));
+            synchronized (filter) {
+                for (long fingerprint : distinct) {
+                    if (filter.mightContain(fingerprint)) {
+                        duplicates++;
+                    } else {
+                        filter.add(fingerprint);
+                    }
+                }
+            }
+        }
+        return duplicates;
+    }
+
+    private ScalableBloomFilter filter(String name) throws IOException {
+        try {
+            return filters.computeIfAbsent(name, key -> {
+                try {
+                    return ScalableBloomFilter.open(directory, key, INITIAL_CAPACITY, falsePositiveRate);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Delete the filters of days that have left the retention window
+     */
+    private synchronized void deleteExpired(long today) {
+        if (today == lastCleanupDay) {
+            return;
+        }
+        lastCleanupDay = today;
+        long oldestDay = today - retentionDays;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.bloom")) {
+            for (Path file : files) {
+                Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+                if (!matcher.matches() || parseDay(matcher.group(2)) >= oldestDay) {
+                    continue;
+                }
+                ScalableBloomFilter filter = filters.remove(matcher.group(1) + "-" + matcher.group(2));
+                if (filter != null) {
+                    synchronized (filter) {
+                        filter.close();
+                    }
+                }
+                // One file that cannot be deleted does not stop the cleanup of the others
+                try {
+                    Files.deleteIfExists(file);
+                    logger.debug("Deleted expired duplicate index file: {}", file);
+                } catch (IOException e) {
+                    logger.warn("Failed to delete expired duplicate index file {}: {}", file, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to list expired duplicate index files in {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private static long parseDay(String day) {
+        try {
+            return LocalDate.parse(day).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return Long.MAX_VALUE; // Not ours: keep it
+        }
+    }
+
+    private static long today() {
+        return LocalDate.now(ZoneOffset.UTC).toEpochDay();
+    }
+
+    @Override
+    public void close() {
+        for (ScalableBloomFilter filter : filters.values()) {
+            synchronized (filter) {
+                filter.close();
+            }
+        }
+        filters.clear();
+    }
+}
@@ -0,0 +1,66 @@
+package com.dtc.blobutil.processor;
+
+import com.dtc.blobutil.model.ComplexData;
+import com.dtc.blobutil.model.DataObject;
+import com.dtc.blobutil.model.EventObject;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Jackson databind: the whole ComplexData document is bound to the model classes, then its
+ * record lists are walked. Holds every record of the file in memory at once.
+ */
+public class DatabindParserBackend implements JsonParserBackend {
+    private final ObjectMapper objectMapper;
+
+    public DatabindParserBackend(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String getName() {
+        return "databind";
+    }
+
+    @Override
+    public ParsedDocument parse(InputStream content, ArchiveRecordVisitor visitor) throws IOException {
+        return visit(objectMapper.readValue(content, ComplexData.class), visitor);
+    }
+
+    @Override
+    public ParsedDocument parse(byte[] content, ArchiveRecordVisitor visitor) throws IOException {
+        return visit(objectMapper.readValue(content, ComplexData.class), visitor);
+    }
+
+    private static ParsedDocument visit(ComplexData complexData, ArchiveRecordVisitor visitor) {
+        if (complexData == null) {
+            return ParsedDocument.NULL_DOCUMENT;
+        }
+        if (complexData.getExportedData() != null) {
+            if (complexData.getExportedData().getHeader() != null) {
+                visitor.header(false, complexData.getExportedData().getHeader());
+            }
+            List<DataObject> objects = complexData.getExportedData().getObjects();
+            if (objects != null) {
+                for (DataObject object : objects) {
+                    visitor.data(object);
+                }
+            }
+        }
+        if (complexData.getExportedEvents() != null) {
+            if (complexData.getExportedEvents().getHeader() != null) {
+                visitor.header(true, complexData.getExportedEvents().getHeader());
+            }
+            List<EventObject> events = complexData.getExportedEvents().getObjects();
+            if (events != null) {
+                for (EventObject event : events) {
+                    visitor.event(event);
+                }
+            }
+        }
+        return new ParsedDocument(true, complexData.isDataFile(), complexData.isEventsFile());
+    }
+}
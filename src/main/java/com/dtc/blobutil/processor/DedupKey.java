@@ -0,0 +1,207 @@
+package com.dtc.blobutil.processor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The fields that make two archive records of one type duplicates, compiled to an extractor.
+ *
+ * The extractor is a single method handle chain built once at startup: the getters of the key
+ * fields feed a collector that creates the key object, so extracting a key costs no reflective
+ * lookups. When the fields are exactly those of the record class's own equals/hashCode and the
+ * record time is not one of them, the record itself is the key and nothing is extracted at all.
+ *
+ * The record time field is keyed by its parsed instant (epoch nanoseconds), or by its text when it
+ * does not parse, so the same instant written in two forms is one key. This is how the Arrow
+ * columns of {@link BatchKeyColumns} compare it, so every parser backend counts the same records.
+ */
+public final class DedupKey {
+    private static final MethodHandle NEW_KEY;
+    private static final MethodHandle TIME_KEY; // (Object)Object
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            NEW_KEY = lookup.findConstructor(RecordKey.class, MethodType.methodType(void.class, Object[].class));
+            TIME_KEY = lookup.findStatic(DedupKey.class, "timeKey", MethodType.methodType(Object.class, Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Class<?> recordClass;
+    private final List<String> fieldNames;
+    private final RecordField[] fields;
+    private final MethodHandle extractor; // (Object)Object
+    private final boolean recordEquality;
+    private final int timeField; // Position of the record time field in the key, -1 if not part of it
+
+    /**
+     * @param recordClass DataObject or EventObject
+     * @param fieldNames JSON property names of the key fields
+     * @param recordEqualityFields The fields compared by the record class's equals/hashCode
+     * @param timeFieldName The record time field (Time or RecordTime)
+     * @param configKey Configuration key, for error messages
+     * @throws IllegalArgumentException if a field is unknown or repeated
+     */
+    DedupKey(Class<?> recordClass, List<String> fieldNames, List<String> recordEqualityFields, String timeFieldName,
+             String configKey) {
+        Map<String, RecordField> available = RecordField.of(recordClass);
+        if (fieldNames == null || fieldNames.isEmpty()) {
+            throw new IllegalArgumentException(configKey + " must name at least one field");
+        }
+        this.recordClass = recordClass;
+        this.fieldNames = Collections.unmodifiableList(new ArrayList<>(fieldNames));
+        this.fields = new RecordField[fieldNames.size()];
+        for (int i = 0; i < fields.length; i++) {
+            String name = fieldNames.get(i);
+            RecordField field = available.get(name);
+            if (field == null) {
+                throw new IllegalArgumentException(configKey + " has unknown field " + name + ". Known fields: " + available.keySet());
+            }
+            if (fieldNames.indexOf(name) != i) {
+                throw new IllegalArgumentException(configKey + " names field " + name + " more than once");
+            }
+            fields[i] = field;
+        }
+        this.timeField = fieldNames.indexOf(timeFieldName);
+        this.recordEquality = timeField < 0 && fieldNames.size() == recordEqualityFields.size()
+            && fieldNames.containsAll(recordEqualityFields);
+        this.extractor = compile(fields, timeField);
+    }
+
+    /**
+     * (Object)Object handle: record -> new RecordKey(new Object[] {getter0(record), getter1(record), ...}),
+     * with the getter of the time field filtered through {@link #timeKey}
+     */
+    private static MethodHandle compile(RecordField[] fields, int timeField) {
+        MethodHandle[] getters = new MethodHandle[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            getters[i] = i == timeField
+                ? MethodHandles.filterReturnValue(fields[i].getter(), TIME_KEY)
+                : fields[i].getter();
+        }
+        MethodHandle collector = NEW_KEY.asCollector(Object[].class, fields.length);
+        MethodHandle fromFields = MethodHandles.filterArguments(collector, 0, getters);
+        MethodHandle fromRecord = MethodHandles.permuteArguments(fromFields,
+            MethodType.methodType(RecordKey.class, Object.class), new int[fields.length]);
+        return fromRecord.asType(MethodType.methodType(Object.class, Object.class));
+    }
+
+    public Class<?> getRecordClass() {
+        return recordClass;
+    }
+
+    public List<String> getFieldNames() {
+        return fieldNames;
+    }
+
+    /**
+     * @return true if the record class's own equals/hashCode compares exactly these fields, which do
+     *         not include the record time
+     */
+    public boolean isRecordEquality() {
+        return recordEquality;
+    }
+
+    /**
+     * Key of a record for a hash set of distinct records; null for a null record
+     */
+    Object key(Object record) {
+        if (record == null || recordEquality) {
+            return record;
+        }
+        try {
+            return (Object) extractor.invokeExact(record);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to extract dedup key from " + recordClass.getSimpleName(), e);
+        }
+    }
+
+    /**
+     * 64-bit fingerprint of the key of a record, for the cross-file duplicate index. The record time
+     * field contributes its parsed value, so the fingerprint matches the one computed from Arrow columns.
+     * @param timeNanos The parsed record time
+     */
+    long fingerprint(Object record, long timeNanos) {
+        long h = RecordFingerprints.SEED;
+        for (int i = 0; i < fields.length; i++) {
+            long value = i == timeField ? timeNanos : RecordFingerprints.hashValue(fields[i].get(record));
+            h = RecordFingerprints.mix(h ^ value);
+        }
+        return h;
+    }
+
+    /**
+     * 64-bit hash of the key of a record, for the distinct keys of an append blob kept between
+     * counts. The record time is hashed like {@link #key} compares it, as its parsed instant or
+     * else its text. Hashes saved with an append blob state depend on this: see
+     * {@link com.dtc.blobutil.model.AppendBlobState#KEY_HASH_VERSION}.
+     */
+    long hash(Object record) {
+        long h = RecordFingerprints.SEED;
+        for (int i = 0; i < fields.length; i++) {
+            Object value = fields[i].get(record);
+            h = RecordFingerprints.mix(h ^ RecordFingerprints.hashValue(i == timeField ? timeKey(value) : value));
+        }
+        return h;
+    }
+
+    /**
+     * Key value of a record time: its epoch nanoseconds when it parses, else the value itself
+     */
+    private static Object timeKey(Object value) {
+        if (!(value instanceof String)) {
+            return value;
+        }
+        String text = (String) value;
+        long nanos = IsoTimestamps.parseEpochNanos(text);
+        return nanos != IsoTimestamps.INVALID ? (Object) nanos : text;
+    }
+
+    RecordField[] getFields() {
+        return fields;
+    }
+
+    /**
+     * @return the position of the record time field in the key, -1 if it is not part of the key
+     */
+    int getTimeField() {
+        return timeField;
+    }
+
+    @Override
+    public String toString() {
+        return recordClass.getSimpleName() + fieldNames;
+    }
+
+    /**
+     * Extracted key values with a precomputed hash
+     */
+    static final class RecordKey {
+        private final Object[] values;
+        private final int hash;
+
+        RecordKey(Object[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof RecordKey && hash == ((RecordKey) o).hash
+                && Arrays.equals(values, ((RecordKey) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.dtc.blobutil.processor;
+
+import com.dtc.blobutil.config.ArchiveConfig;
+import com.dtc.blobutil.model.DataObject;
+import com.dtc.blobutil.model.EventObject;
+
+import java.util.List;
+
+/**
+ * The dedup keys of data and event records, from archive.dataDedupKey and archive.eventsDedupKey.
+ * Compiled once at startup and shared by every archive format and parser backend.
+ */
+public final class DedupKeys {
+    private static final DedupKeys DEFAULTS = new DedupKeys(ArchiveConfig.DEFAULT_DATA_DEDUP_KEY,
+        ArchiveConfig.DEFAULT_EVENTS_DEDUP_KEY);
+
+    private final DedupKey data;
+    private final DedupKey events;
+
+    /**
+     * @throws IllegalArgumentException if a key names a field the record model does not have
+     */
+    public DedupKeys(List<String> dataFields, List<String> eventsFields) {
+        // The record classes compare exactly the default fields in equals/hashCode
+        this.data = new DedupKey(DataObject.class, dataFields, ArchiveConfig.DEFAULT_DATA_DEDUP_KEY,
+            "Time", "archive.dataDedupKey");
+        this.events = new DedupKey(EventObject.class, eventsFields, ArchiveConfig.DEFAULT_EVENTS_DEDUP_KEY,
+            "RecordTime", "archive.eventsDedupKey");
+    }
+
+    public static DedupKeys from(ArchiveConfig archiveConfig) {
+        return new DedupKeys(archiveConfig.getDataDedupKey(), archiveConfig.getEventsDedupKey());
+    }
+
+    /**
+     * @return Id, Fullname, Time for data and Id, Fullname, RecordTime, SeqNo for events
+     */
+    public static DedupKeys defaults() {
+        return DEFAULTS;
+    }
+
+    public DedupKey getData() {
+        return data;
+    }
+
+    public DedupKey getEvents() {
+        return events;
+    }
+
+    DedupKey forRecords(boolean events) {
+        return events ? this.events : data;
+    }
+
+    @Override
+    public String toString() {
+        return data + ", " + events;
+    }
+}
@@ -0,0 +1,189 @@
+package com.dtc.blobutil.processor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the memory and network used by the archive download stage, whatever its concurrency.
+ *
+ * Bytes in flight: heap a download buffers is admitted only when it fits in the remaining byte budget.
+ * This covers the first block the download buffers when it opens the blob, and then the whole blob
+ * when it is buffered on the heap, until the blob is closed after parsing. Downloads are admitted in
+ * arrival order, so a large blob is not starved by a stream of small ones; a request larger than the
+ * whole budget is admitted once nothing else is in flight. A download that needs more than it holds
+ * grows its reservation only when the budget has room right away; otherwise it closes its stream and
+ * returns what it holds before it waits, so waiting downloads hold neither heap nor budget. The content
+ * of blobs downloaded to local files is not counted: it is held by the file and the page cache, not
+ * the heap.
+ *
+ * Bandwidth: a token bucket refilled at the configured rate, holding at most one second of tokens.
+ * Readers pay for the bytes they have read and sleep off any debt, so concurrent downloads share the
+ * rate.
+ */
+final class DownloadGovernor {
+    private static final Logger logger = LoggerFactory.getLogger(DownloadGovernor.class);
+
+    private final long maxInFlightBytes;
+    private final long bytesPerSecond; // 0 = unlimited
+
+    // In-flight budget, guarded by this
+    private final Deque<Object> waiting = new ArrayDeque<>(); // Downloads waiting for admission, in arrival order
+    private long inFlightBytes;
+
+    // Token bucket, guarded by bucketLock
+    private final Object bucketLock = new Object();
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+
+    /**
+     * @param maxInFlightBytes Heap bytes of downloaded blobs that may be held at once
+     * @param bytesPerSecond Download bandwidth cap, 0 for none
+     */
+    DownloadGovernor(long maxInFlightBytes, long bytesPerSecond) {
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.bytesPerSecond = bytesPerSecond;
+        this.tokens = bytesPerSecond;
+    }
+
+    long getMaxInFlightBytes() {
+        return maxInFlightBytes;
+    }
+
+    long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Wait until the given bytes fit in the in-flight budget and reserve them
+     * @param bytes Heap bytes the download will hold, 0 for none
+     * @return the reservation; running it returns the bytes to the budget, at most once
+     */
+    Admission admit(long bytes) throws InterruptedException {
+        if (bytes <= 0) {
+            return new Admission(0);
+        }
+        synchronized (this) {
+            Object waiter = new Object();
+            waiting.add(waiter);
+            long waitStart = 0;
+            try {
+                while (waiting.peek() != waiter || (inFlightBytes > 0 && inFlightBytes + bytes > maxInFlightBytes)) {
+                    if (waitStart == 0) {
+                        waitStart = System.nanoTime();
+                    }
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                // Give up the place in line without blocking the downloads behind it
+                waiting.remove(waiter);
+                notifyAll();
+                throw e;
+            }
+            waiting.poll();
+            inFlightBytes += bytes;
+            notifyAll();
+            if (waitStart != 0) {
+                logger.debug("Download of {} bytes waited {} ms for the in-flight budget ({} of {} bytes in flight)",
+                    bytes, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStart), inFlightBytes, maxInFlightBytes);
+            }
+        }
+        return new Admission(bytes);
+    }
+
+    private synchronized void release(long bytes) {
+        inFlightBytes -= bytes;
+        notifyAll();
+    }
+
+    /**
+     * Bytes reserved in the in-flight budget by one download
+     */
+    final class Admission implements Runnable {
+        private long bytes; // Guarded by the governor
+
+        private Admission(long bytes) {
+            this.bytes = bytes;
+        }
+
+        long getBytes() {
+            synchronized (DownloadGovernor.this) {
+                return bytes;
+            }
+        }
+
+        /**
+         * Return the bytes above the given size to the budget, without waiting
+         */
+        void shrinkTo(long size) {
+            synchronized (DownloadGovernor.this) {
+                if (size < bytes) {
+                    release(bytes - Math.max(0, size));
+                    bytes = Math.max(0, size);
+                }
+            }
+        }
+
+        /**
+         * Grow the reservation to the given size if the budget has room for it without waiting
+         * @return whether the reservation now holds at least the given size
+         */
+        boolean tryGrowTo(long size) {
+            synchronized (DownloadGovernor.this) {
+                if (size <= bytes) {
+                    return true;
+                }
+                // Same rule as admit, without jumping ahead of the downloads already waiting
+                boolean fits = inFlightBytes == bytes || inFlightBytes + (size - bytes) <= maxInFlightBytes;
+                if (!waiting.isEmpty() || !fits) {
+                    return false;
+                }
+                inFlightBytes += size - bytes;
+                bytes = size;
+                return true;
+            }
+        }
+
+        /**
+         * Move the reserved bytes to a new reservation, leaving this one empty
+         */
+        Admission transfer() {
+            synchronized (DownloadGovernor.this) {
+                Admission moved = new Admission(bytes);
+                bytes = 0;
+                return moved;
+            }
+        }
+
+        /**
+         * Return all reserved bytes to the budget. Does nothing the second time.
+         */
+        @Override
+        public void run() {
+            shrinkTo(0);
+        }
+    }
+
+    /**
+     * Pay for bytes read from the network, sleeping while the bucket is in debt
+     */
+    void throttle(long bytes) throws InterruptedException {
+        if (bytesPerSecond <= 0 || bytes <= 0) {
+            return;
+        }
+        long sleepNanos;
+        synchronized (bucketLock) {
+            long now = System.nanoTime();
+            tokens = Math.min(bytesPerSecond, tokens + (now - lastRefillNanos) * (bytesPerSecond / 1e9));
+            lastRefillNanos = now;
+            tokens -= bytes;
+            sleepNanos = tokens < 0 ? (long) (-tokens / bytesPerSecond * 1e9) : 0;
+        }
+        if (sleepNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(sleepNanos);
+        }
+    }
+}
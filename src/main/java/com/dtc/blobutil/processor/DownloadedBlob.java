@@ -0,0 +1,292 @@
+package com.dtc.blobutil.processor;
+
+import com.dtc.blobutil.model.AppendBlobState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Content of an archive blob downloaded by the I/O stage and handed to the parse stage.
+ * Small blobs are held in a heap buffer; large blobs live in a local file that is read
+ * through a memory mapping and deleted when the blob is closed. Blobs served from the local
+ * cache are also file-backed, but closing them only releases the cache entry. A blob whose
+ * content matches the previously processed version carries no content at all.
+ *
+ * For an append blob counted incrementally, the content is only the range appended since the
+ * last count, preceded by the tail of the content already counted (see {@link AppendBlobState}).
+ */
+public class DownloadedBlob implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(DownloadedBlob.class);
+    private static final int SCAN_CHUNK_SIZE = 64 * 1024; // Bytes read per step when scanning a file backwards
+
+    private final String blobName;
+    private final byte[] content; // Heap content, null for file-backed blobs
+    private final Path file; // Local file, null for heap-backed blobs
+    private final long size;
+    private final Runnable releaseAction; // Runs on close instead of deleting the file, null to delete
+    private final boolean unchanged; // Content matches the previously processed version; nothing was downloaded
+    private String etag;
+    private String contentMd5; // Base64 Content-MD5 reported by the service, null if not available
+    private String contentType; // Content-Type reported by the service, null if not available
+    private ArchiveCompression declaredCompression = ArchiveCompression.NONE; // From Content-Encoding / Content-Type
+    private boolean appendBlob; // The blob is an append blob
+    private AppendBlobState appendBase; // State the content continues from, null if the content starts at offset 0
+    private long contentOffset; // Blob offset of the first content byte
+    private Runnable closeAction; // Runs when the blob is closed, e.g. to return its bytes to the download budget
+
+    private DownloadedBlob(String blobName, byte[] content, Path file, long size, Runnable releaseAction,
+                           boolean unchanged) {
+        this.blobName = blobName;
+        this.content = content;
+        this.file = file;
+        this.size = size;
+        this.releaseAction = releaseAction;
+        this.unchanged = unchanged;
+    }
+
+    /**
+     * Create a blob held entirely in memory
+     */
+    public static DownloadedBlob inMemory(String blobName, byte[] content) {
+        return new DownloadedBlob(blobName, content, null, content.length, null, false);
+    }
+
+    /**
+     * Create a blob backed by a local file. The file is deleted when the blob is closed.
+     */
+    public static DownloadedBlob mappedFile(String blobName, Path file, long size) {
+        return new DownloadedBlob(blobName, null, file, size, null, false);
+    }
+
+    /**
+     * Create a blob backed by a cache entry. Closing the blob runs the release action and keeps the file.
+     */
+    public static DownloadedBlob cachedFile(String blobName, Path file, long size, Runnable releaseAction) {
+        return new DownloadedBlob(blobName, null, file, size, releaseAction, false);
+    }
+
+    /**
+     * Create a marker for a blob whose content matches the previously processed version
+     */
+    public static DownloadedBlob unchanged(String blobName) {
+        return new DownloadedBlob(blobName, null, null, 0, null, true);
+    }
+
+    public String getBlobName() {
+        return blobName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    public String getContentMd5() {
+        return contentMd5;
+    }
+
+    public void setContentMd5(String contentMd5) {
+        this.contentMd5 = contentMd5;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    /**
+     * @return the compression declared by the blob properties (the content itself is authoritative)
+     */
+    public ArchiveCompression getDeclaredCompression() {
+        return declaredCompression;
+    }
+
+    public void setDeclaredCompression(ArchiveCompression declaredCompression) {
+        this.declaredCompression = declaredCompression;
+    }
+
+    /**
+     * @return true if the blob is an append blob
+     */
+    public boolean isAppendBlob() {
+        return appendBlob;
+    }
+
+    public void setAppendBlob(boolean appendBlob) {
+        this.appendBlob = appendBlob;
+    }
+
+    /**
+     * @return the state of the previous count when the content is only the appended range, else null
+     */
+    public AppendBlobState getAppendBase() {
+        return appendBase;
+    }
+
+    /**
+     * @return the blob offset of the first content byte, 0 unless the content is an appended range
+     */
+    public long getContentOffset() {
+        return contentOffset;
+    }
+
+    /**
+     * Mark the content as the range of an append blob starting at the given offset
+     * @param appendBase State of the previous count
+     * @param contentOffset Blob offset of the first content byte
+     */
+    public void setAppendBase(AppendBlobState appendBase, long contentOffset) {
+        this.appendBase = appendBase;
+        this.contentOffset = contentOffset;
+    }
+
+    /**
+     * @return true if the content matches the previously processed version and was not downloaded
+     */
+    public boolean isUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * @return true if the content is held in a heap buffer
+     */
+    public boolean isInMemory() {
+        return content != null;
+    }
+
+    /**
+     * @return the heap content, or null for file-backed blobs
+     */
+    public byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * @return the local file, or null for heap-backed blobs
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Open a stream over the content. File-backed content is read through a memory mapping.
+     */
+    public InputStream openStream() throws IOException {
+        if (content != null) {
+            return new ByteArrayInputStream(content);
+        }
+        return new MappedFileInputStream(file);
+    }
+
+    /**
+     * Open a stream over a range of the content
+     * @param from Content offset of the first byte
+     * @param to Content offset after the last byte
+     */
+    public InputStream openStream(long from, long to) throws IOException {
+        if (content != null) {
+            return new ByteArrayInputStream(content, (int) from, (int) (to - from));
+        }
+        return new MappedFileInputStream(file, from, to);
+    }
+
+    /**
+     * Read a range of the content into a new array
+     * @param from Content offset of the first byte
+     * @param length Number of bytes, at most the remaining content
+     */
+    public byte[] read(long from, int length) throws IOException {
+        if (content != null) {
+            return Arrays.copyOfRange(content, (int) from, (int) from + length);
+        }
+        byte[] bytes = new byte[length];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, from + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of file " + file + " for blob: " + blobName);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Length of the content up to and including its last line break, 0 if it has none
+     */
+    public long completeLinesLength() throws IOException {
+        if (content != null) {
+            for (int i = content.length - 1; i >= 0; i--) {
+                if (content[i] == '\n') {
+                    return i + 1;
+                }
+            }
+            return 0;
+        }
+        long end = size;
+        while (end > 0) {
+            int length = (int) Math.min(SCAN_CHUNK_SIZE, end);
+            byte[] chunk = read(end - length, length);
+            for (int i = length - 1; i >= 0; i--) {
+                if (chunk[i] == '\n') {
+                    return end - length + i + 1;
+                }
+            }
+            end -= length;
+        }
+        return 0;
+    }
+
+    /**
+     * Run an action when the blob is closed, after any action registered before
+     */
+    void onClose(Runnable action) {
+        Runnable previous = closeAction;
+        closeAction = previous == null ? action : () -> {
+            previous.run();
+            action.run();
+        };
+    }
+
+    /**
+     * Release the content, deleting the local file for file-backed blobs
+     */
+    @Override
+    public void close() {
+        if (closeAction != null) {
+            closeAction.run();
+        }
+        if (releaseAction != null) {
+            releaseAction.run();
+            return;
+        }
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete downloaded file {} for blob {}: {}", file, blobName, e.getMessage());
+            file.toFile().deleteOnExit();
+        }
+    }
+}
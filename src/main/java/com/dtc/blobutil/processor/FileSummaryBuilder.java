@@ -0,0 +1,276 @@
+package com.dtc.blobutil.processor;
+
+import com.dtc.blobutil.model.DataObject;
+import com.dtc.blobutil.model.EventObject;
+import com.dtc.blobutil.model.FileSummary;
+import com.dtc.blobutil.model.Header;
+import com.dtc.blobutil.model.ValueStatistics;
+import com.dtc.blobutil.processor.ArchiveFileProcessor.RecordCounts;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeStampNanoVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Accumulates the {@link FileSummary} of one section of an archive file while its records are
+ * counted. Per-Fullname counts are kept in an int array indexed by dictionary code, so a record
+ * costs one dictionary lookup and no allocation. Timestamps that do not parse as ISO-8601 are
+ * left out of the min/max time. Data sections also collect {@link ValueStatisticsBuilder value statistics},
+ * and every section collects the {@link RecordFingerprints} used for cross-file duplicate detection.
+ */
+final class FileSummaryBuilder {
+    private final String recordType;
+    private final DedupKey key;
+    private final ValueStatisticsBuilder values; // Null for events sections
+    private final RecordFingerprints fingerprints;
+    private BatchKeyColumns keyColumns; // Created by the first Arrow batch
+    private StringDictionary names; // Fullname -> code; the document dictionary on the batch path
+    private int[] counts = new int[64];
+    private long minTime = Long.MAX_VALUE;
+    private long maxTime = Long.MIN_VALUE;
+    private Header header;
+    private char[] scratch = new char[64]; // Timestamp characters for the parser
+
+    FileSummaryBuilder(String recordType, DedupKey key) {
+        this.recordType = recordType;
+        this.key = key;
+        this.values = "DATA".equals(recordType) ? new ValueStatisticsBuilder() : null;
+        this.fingerprints = new RecordFingerprints(recordType);
+    }
+
+    void header(Header sectionHeader) {
+        if (header == null) {
+            header = sectionHeader;
+        }
+    }
+
+    void data(DataObject record) {
+        data(record, true);
+    }
+
+    /**
+     * @param fingerprint false to leave the record out of the fingerprints, because an earlier count
+     *                    of the same file already added its key to the duplicate index
+     */
+    void data(DataObject record, boolean fingerprint) {
+        if (record == null) {
+            return;
+        }
+        int fullnameCode = fullname(record.getFullname());
+        long timeNanos = time(record.getTime());
+        if (record.getValue() != null) {
+            values.add(fullnameCode, record.getValue());
+        }
+        if (fingerprint) {
+            fingerprints.add(timeNanos, key.fingerprint(record, timeNanos));
+        }
+    }
+
+    void event(EventObject record) {
+        event(record, true);
+    }
+
+    /**
+     * @param fingerprint false to leave the record out of the fingerprints (see {@link #data(DataObject, boolean)})
+     */
+    void event(EventObject record, boolean fingerprint) {
+        if (record == null) {
+            return;
+        }
+        fullname(record.getFullname());
+        long timeNanos = time(record.getRecordTime());
+        if (fingerprint) {
+            fingerprints.add(timeNanos, key.fingerprint(record, timeNanos));
+        }
+    }
+
+    /**
+     * A batch of records read into Arrow columns
+     */
+    void batch(ArchiveRecordBatch batch) {
+        if (names == null) {
+            names = batch.getDictionary();
+        }
+        if (keyColumns == null) {
+            keyColumns = new BatchKeyColumns(key, batch.isEvents());
+        }
+        keyColumns.bind(batch);
+        VectorSchemaRoot root = batch.getRoot();
+        IntVector fullname = (IntVector) root.getVector(ArchiveRecordBatch.FULLNAME);
+        TimeStampNanoVector time = (TimeStampNanoVector) root.getVector(
+            batch.isEvents() ? ArchiveRecordBatch.RECORD_TIME : ArchiveRecordBatch.TIME);
+        Float8Vector value = batch.isEvents() ? null : (Float8Vector) root.getVector(ArchiveRecordBatch.VALUE);
+
+        int rows = batch.getRowCount();
+        for (int row = 0; row < rows; row++) {
+            int fullnameCode = -1;
+            if (!fullname.isNull(row)) {
+                fullnameCode = fullname.get(row);
+                count(fullnameCode);
+            }
+            long timeNanos = IsoTimestamps.INVALID;
+            if (!time.isNull(row)) {
+                timeNanos = time.get(row);
+                range(timeNanos);
+            }
+            if (value != null && !value.isNull(row)) {
+                values.add(fullnameCode, value.get(row));
+            }
+            if (timeNanos != IsoTimestamps.INVALID) {
+                fingerprints.add(timeNanos, keyColumns.fingerprint(row, timeNanos));
+            }
+        }
+    }
+
+    /**
+     * Count a record under its Fullname
+     * @return the Fullname code, or -1 for null
+     */
+    private int fullname(String fullname) {
+        if (fullname == null) {
+            return -1;
+        }
+        if (names == null) {
+            names = new StringDictionary();
+        }
+        int code = names.encode(fullname);
+        count(code);
+        return code;
+    }
+
+    /**
+     * Parse a record time and add it to the time range
+     * @return epoch nanoseconds, or IsoTimestamps.INVALID
+     */
+    private long time(String time) {
+        if (time == null) {
+            return IsoTimestamps.INVALID;
+        }
+        int length = time.length();
+        if (length > scratch.length) {
+            scratch = new char[length];
+        }
+        time.getChars(0, length, scratch, 0);
+        long nanos = IsoTimestamps.parseEpochNanos(scratch, 0, length);
+        range(nanos);
+        return nanos;
+    }
+
+    private void count(int code) {
+        if (code >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(counts.length * 2, code + 1));
+        }
+        counts[code]++;
+    }
+
+    private void range(long nanos) {
+        if (nanos == IsoTimestamps.INVALID) {
+            return;
+        }
+        if (nanos < minTime) {
+            minTime = nanos;
+        }
+        if (nanos > maxTime) {
+            maxTime = nanos;
+        }
+    }
+
+    /**
+     * Attach the summary and the record fingerprints to the counts of the section
+     */
+    void complete(RecordCounts counts) {
+        counts.setSummary(build());
+        counts.setFingerprints(fingerprints);
+    }
+
+    FileSummary build() {
+        FileSummary summary = new FileSummary();
+        summary.setRecordType(recordType);
+        if (header != null) {
+            summary.setSystemName(header.getSystemName());
+            summary.setHeaderStartDate(header.getStartDate());
+            summary.setHeaderEndDate(header.getEndDate());
+        }
+        if (minTime <= maxTime) {
+            summary.setMinTime(toDateTime(minTime));
+            summary.setMaxTime(toDateTime(maxTime));
+        }
+        Map<String, Integer> fullnameCounts = new LinkedHashMap<>();
+        int size = names == null ? 0 : Math.min(names.size(), counts.length);
+        for (int code = 0; code < size; code++) {
+            if (counts[code] > 0) {
+                fullnameCounts.put(names.decode(code), counts[code]);
+            }
+        }
+        summary.setFullnameCounts(fullnameCounts);
+        if (values != null) {
+            summary.setValueStatistics(values.fileStatistics());
+            summary.setFullnameValueStatistics(values.fullnameStatistics(names));
+        }
+        return summary;
+    }
+
+    /**
+     * Combine the summary of the records already counted in a file with the summary of the records
+     * appended to it since. The cross-file duplicate estimate is left unset.
+     * @param previous Summary of the records already counted, may be null
+     * @param appended Summary of the appended records
+     */
+    static FileSummary merge(FileSummary previous, FileSummary appended) {
+        if (previous == null) {
+            return appended;
+        }
+        FileSummary summary = new FileSummary();
+        summary.setRecordType(previous.getRecordType());
+        summary.setSystemName(previous.getSystemName());
+        summary.setHeaderStartDate(previous.getHeaderStartDate());
+        summary.setHeaderEndDate(previous.getHeaderEndDate());
+        summary.setMinTime(pick(previous.getMinTime(), appended.getMinTime(), true));
+        summary.setMaxTime(pick(previous.getMaxTime(), appended.getMaxTime(), false));
+
+        Map<String, Integer> fullnameCounts = new LinkedHashMap<>();
+        if (previous.getFullnameCounts() != null) {
+            fullnameCounts.putAll(previous.getFullnameCounts());
+        }
+        if (appended.getFullnameCounts() != null) {
+            appended.getFullnameCounts().forEach((name, count) -> fullnameCounts.merge(name, count, Integer::sum));
+        }
+        summary.setFullnameCounts(fullnameCounts);
+
+        summary.setValueStatistics(ValueStatisticsBuilder.merge(previous.getValueStatistics(), appended.getValueStatistics()));
+        if (previous.getFullnameValueStatistics() != null || appended.getFullnameValueStatistics() != null) {
+            Map<String, ValueStatistics> statistics = new LinkedHashMap<>();
+            if (previous.getFullnameValueStatistics() != null) {
+                statistics.putAll(previous.getFullnameValueStatistics());
+            }
+            if (appended.getFullnameValueStatistics() != null) {
+                appended.getFullnameValueStatistics().forEach((name, values) ->
+                    statistics.merge(name, values, ValueStatisticsBuilder::merge));
+            }
+            summary.setFullnameValueStatistics(statistics);
+        }
+        return summary;
+    }
+
+    /**
+     * @param earlier true for the earlier of two times, false for the later; a null time is ignored
+     */
+    private static OffsetDateTime pick(OffsetDateTime a, OffsetDateTime b, boolean earlier) {
+        if (a == null || b == null) {
+            return a != null ? a : b;
+        }
+        return a.isBefore(b) == earlier ? a : b;
+    }
+
+    private static OffsetDateTime toDateTime(long epochNanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L), Math.floorMod(epochNanos, 1_000_000_000L))
+            .atOffset(ZoneOffset.UTC);
+    }
+}
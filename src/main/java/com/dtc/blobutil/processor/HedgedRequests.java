@@ -0,0 +1,232 @@
+package com.dtc.blobutil.processor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hedging policy for requests whose latency has a long tail.
+ *
+ * A request that has not completed after the configured percentile of recent request latencies is
+ * sent a second time, and whichever attempt succeeds first is used; the other result is closed when
+ * it arrives. The percentile is taken over a sliding window of the latencies of first attempts only,
+ * so hedging does not hide the tail it is measured from. Nothing is hedged until the window has
+ * enough samples.
+ *
+ * Hedges are paid from a budget: every request adds budgetPercent / 100 of a token and a hedge costs
+ * one, so at most budgetPercent of the requests are sent twice, even when the store is slow overall.
+ */
+final class HedgedRequests {
+    private static final Logger logger = LoggerFactory.getLogger(HedgedRequests.class);
+    private static final int WINDOW_SIZE = 1024; // Latencies kept for the percentile
+    private static final int MIN_SAMPLES = 64; // Latencies needed before the first hedge
+    private static final int THRESHOLD_REFRESH = 64; // Samples between recomputations of the percentile
+    private static final double MAX_BUDGET_TOKENS = 10; // Hedges that can be saved up for a burst of slow requests
+    private static final int REPORT_INTERVAL = 1000; // Requests between hedging statistics in the log
+
+    private final String name;
+    private final double percentile;
+    private final double tokensPerRequest;
+    private final long minDelayNanos;
+    private final ExecutorService executor;
+
+    private final long[] window = new long[WINDOW_SIZE];
+    private int samples;
+    private long thresholdNanos; // 0 until the window has MIN_SAMPLES latencies
+    private double budgetTokens;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedged = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    /**
+     * @param name Name of the requests, for thread names and logging
+     * @param percentile Latency percentile after which a request is hedged (0 - 100, exclusive)
+     * @param budgetPercent Hedged requests as a percentage of all requests, at most
+     * @param minDelayMillis Lower bound of the hedging delay
+     */
+    HedgedRequests(String name, double percentile, double budgetPercent, int minDelayMillis) {
+        this.name = name;
+        this.percentile = percentile;
+        this.tokensPerRequest = budgetPercent / 100;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Attempts run off the calling thread so the caller can give up waiting on the first one
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, name + "-hedge-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Run a request, hedged if it is slower than usual
+     * @param request The request; may be called twice, concurrently
+     * @return the result of the first attempt that succeeds
+     * @throws Exception the failure of the last attempt when every attempt fails
+     */
+    <T extends AutoCloseable> T call(Callable<T> request) throws Exception {
+        long start = System.nanoTime();
+        long count = requests.incrementAndGet();
+        if (count % REPORT_INTERVAL == 0) {
+            logger.info("Hedged {} requests: {} of {} hedged, {} answered first by the hedge (threshold {} ms)",
+                name, hedged.get(), count, hedgeWins.get(), TimeUnit.NANOSECONDS.toMillis(currentThreshold()));
+        }
+
+        CompletableFuture<T> primary = submit(request);
+        primary.thenRun(() -> record(System.nanoTime() - start));
+
+        long delay = acquireDelay();
+        if (delay == 0) {
+            return await(primary);
+        }
+        try {
+            return unwrap(() -> primary.get(delay, TimeUnit.NANOSECONDS));
+        } catch (TimeoutException e) {
+            // Slower than the percentile: fall through to the hedge
+        } catch (InterruptedException e) {
+            primary.thenAccept(HedgedRequests::closeQuietly);
+            throw e;
+        }
+        if (!tryAcquireHedge()) {
+            return await(primary);
+        }
+
+        hedged.incrementAndGet();
+        logger.debug("Hedging {} request after {} ms", name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        CompletableFuture<T> hedge = submit(request);
+        CompletableFuture<T> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        primary.whenComplete((result, error) -> settle(first, result, error, failures));
+        hedge.whenComplete((result, error) -> {
+            if (settle(first, result, error, failures)) {
+                hedgeWins.incrementAndGet();
+            }
+        });
+        return await(first);
+    }
+
+    /**
+     * Complete the shared result with the first success, or with the failure once both attempts failed.
+     * A success that arrives second is closed.
+     * @return true if this attempt provided the result
+     */
+    private static <T extends AutoCloseable> boolean settle(CompletableFuture<T> first, T result, Throwable error,
+                                                            AtomicInteger failures) {
+        if (error != null) {
+            if (failures.incrementAndGet() == 2) {
+                first.completeExceptionally(error);
+            }
+            return false;
+        }
+        if (!first.complete(result)) {
+            closeQuietly(result);
+            return false;
+        }
+        return true;
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> request) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return request.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Wait for a result. If the caller is interrupted, the result is closed when it arrives.
+     */
+    private static <T extends AutoCloseable> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return unwrap(future::get);
+        } catch (InterruptedException e) {
+            future.thenAccept(HedgedRequests::closeQuietly);
+            throw e;
+        }
+    }
+
+    private interface Wait<T> {
+        T get() throws InterruptedException, ExecutionException, TimeoutException;
+    }
+
+    /**
+     * Rethrow the failure of an attempt as thrown by the request
+     */
+    private static <T> T unwrap(Wait<T> wait) throws Exception {
+        try {
+            return wait.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable resource) {
+        try {
+            resource.close();
+        } catch (Exception e) {
+            logger.debug("Failed to close the result of a hedged request: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Add the budget share of this request
+     * @return the hedging delay in nanoseconds, 0 if the request is not hedged
+     */
+    private synchronized long acquireDelay() {
+        budgetTokens = Math.min(MAX_BUDGET_TOKENS, budgetTokens + tokensPerRequest);
+        return thresholdNanos;
+    }
+
+    private synchronized boolean tryAcquireHedge() {
+        if (budgetTokens < 1) {
+            return false;
+        }
+        budgetTokens -= 1;
+        return true;
+    }
+
+    private synchronized long currentThreshold() {
+        return thresholdNanos;
+    }
+
+    /**
+     * Record the latency of a first attempt and refresh the threshold every THRESHOLD_REFRESH samples
+     */
+    private synchronized void record(long latencyNanos) {
+        window[samples % WINDOW_SIZE] = latencyNanos;
+        samples++;
+        if (samples >= MIN_SAMPLES && samples % THRESHOLD_REFRESH == 0) {
+            int size = Math.min(samples, WINDOW_SIZE);
+            long[] sorted = Arrays.copyOf(window, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.min(size - 1, Math.ceil(percentile / 100 * size) - 1);
+            thresholdNanos = Math.max(minDelayNanos, Math.max(1, sorted[Math.max(0, index)]));
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.dtc.blobutil.processor;
+
+import java.time.Instant;
+
+/**
+ * Allocation-free parsing of ISO-8601 timestamps into epoch nanoseconds.
+ *
+ * Accepts yyyy-MM-dd'T'HH:mm[:ss[.fraction]] with an optional Z or +/-HH[:]mm offset (no offset
+ * means UTC), which covers the Time and RecordTime values written by the exporter. Anything else
+ * is reported as {@link #INVALID} so the caller can keep the original text.
+ */
+final class IsoTimestamps {
+    static final long INVALID = Long.MIN_VALUE;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    // Years whose nanosecond timestamps fit in a long
+    private static final int MIN_YEAR = 1678;
+    private static final int MAX_YEAR = 2261;
+    private static final int MAX_LENGTH = 35; // yyyy-MM-ddTHH:mm:ss.nnnnnnnnn+HH:mm
+    // Copy of a String being parsed, reused so parsing a String allocates nothing either
+    private static final ThreadLocal<char[]> SCRATCH = ThreadLocal.withInitial(() -> new char[MAX_LENGTH]);
+
+    private IsoTimestamps() {
+    }
+
+    /**
+     * @return Epoch nanoseconds of the timestamp, or INVALID
+     */
+    static long parseEpochNanos(String text) {
+        int length = text.length();
+        if (length > MAX_LENGTH) {
+            return INVALID;
+        }
+        char[] scratch = SCRATCH.get();
+        text.getChars(0, length, scratch, 0);
+        return parseEpochNanos(scratch, 0, length);
+    }
+
+    /**
+     * @return Epoch nanoseconds of the timestamp in the buffer, or INVALID
+     */
+    static long parseEpochNanos(char[] chars, int offset, int length) {
+        int end = offset + length;
+        int pos = offset;
+        if (length < 16) { // yyyy-MM-ddTHH:mm
+            return INVALID;
+        }
+        int year = digits(chars, pos, 4, end);
+        int month = digits(chars, pos + 5, 2, end);
+        int day = digits(chars, pos + 8, 2, end);
+        char separator = chars[pos + 10];
+        int hour = digits(chars, pos + 11, 2, end);
+        int minute = digits(chars, pos + 14, 2, end);
+        if (year < MIN_YEAR || year > MAX_YEAR || chars[pos + 4] != '-' || chars[pos + 7] != '-'
+                || (separator != 'T' && separator != 't' && separator != ' ') || chars[pos + 13] != ':'
+                || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return INVALID;
+        }
+        pos += 16;
+
+        int second = 0;
+        long fraction = 0;
+        if (pos < end && chars[pos] == ':') {
+            if (pos + 3 > end) {
+                return INVALID;
+            }
+            second = digits(chars, pos + 1, 2, end);
+            if (second < 0 || second > 59) {
+                return INVALID;
+            }
+            pos += 3;
+            if (pos < end && (chars[pos] == '.' || chars[pos] == ',')) {
+                pos++;
+                int fractionDigits = 0;
+                while (pos < end && chars[pos] >= '0' && chars[pos] <= '9') {
+                    if (++fractionDigits > 9) {
+                        return INVALID;
+                    }
+                    fraction = fraction * 10 + (chars[pos++] - '0');
+                }
+                if (fractionDigits == 0) {
+                    return INVALID;
+                }
+                for (int i = fractionDigits; i < 9; i++) {
+                    fraction *= 10;
+                }
+            }
+        }
+
+        int offsetSeconds = 0;
+        if (pos < end) {
+            char zone = chars[pos];
+            if ((zone == 'Z' || zone == 'z') && pos + 1 == end) {
+                pos++;
+            } else if (zone == '+' || zone == '-') {
+                int offsetHours = digits(chars, pos + 1, 2, end);
+                int minutesAt = pos + 3;
+                if (minutesAt < end && chars[minutesAt] == ':') {
+                    minutesAt++;
+                }
+                int offsetMinutes = minutesAt + 2 == end ? digits(chars, minutesAt, 2, end) : -1;
+                if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+                    return INVALID;
+                }
+                offsetSeconds = (offsetHours * 3600 + offsetMinutes * 60) * (zone == '-' ? -1 : 1);
+                pos = end;
+            } else {
+                return INVALID;
+            }
+        }
+        if (pos != end) {
+            return INVALID;
+        }
+
+        long epochSeconds = epochDay(year, month, day) * 86400L + hour * 3600L + minute * 60L + second - offsetSeconds;
+        return epochSeconds * NANOS_PER_SECOND + fraction;
+    }
+
+    /**
+     * ISO-8601 text of epoch nanoseconds (UTC)
+     */
+    static String format(long epochNanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, NANOS_PER_SECOND), Math.floorMod(epochNanos, NANOS_PER_SECOND)).toString();
+    }
+
+    /**
+     * Parse a fixed number of decimal digits, or -1 if any of them is not a digit or they run past end
+     */
+    private static int digits(char[] chars, int pos, int count, int end) {
+        if (pos + count > end) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            char c = chars[pos + i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Days since 1970-01-01 of a proleptic Gregorian date
+     */
+    private static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+}
@@ -0,0 +1,278 @@
+package com.dtc.blobutil.processor;
+
+import com.dtc.blobutil.model.DataObject;
+import com.dtc.blobutil.model.EventObject;
+import com.dtc.blobutil.model.Header;
+import com.dtc.blobutil.processor.ArchiveFileProcessor.FileProcessingException;
+import com.dtc.blobutil.processor.ArchiveFileProcessor.RecordCounts;
+import com.dtc.blobutil.processor.JsonParserBackend.ParsedDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The original archive layout: one ComplexData JSON document holding either ExportedData or
+ * ExportedEvents. This is the default format for blobs that match no other format.
+ *
+ * The document is read by the configured {@link JsonParserBackend}; records are counted as the
+ * backend emits them, or straight from the Arrow batches of the {@link ArrowParserBackend}.
+ */
+public class JsonDocumentFormat implements ArchiveFormat {
+    private static final Logger logger = LoggerFactory.getLogger(JsonDocumentFormat.class);
+    private final JsonParserBackend parserBackend;
+    private final DedupKeys dedupKeys;
+
+    public JsonDocumentFormat(JsonParserBackend parserBackend) {
+        this(parserBackend, DedupKeys.defaults());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the backend cannot read a dedup key field
+     */
+    public JsonDocumentFormat(JsonParserBackend parserBackend, DedupKeys dedupKeys) {
+        if (parserBackend instanceof ArrowParserBackend) {
+            BatchKeyColumns.check(dedupKeys);
+        }
+        this.parserBackend = parserBackend;
+        this.dedupKeys = dedupKeys;
+    }
+
+    @Override
+    public String getName() {
+        return "json";
+    }
+
+    @Override
+    public boolean matches(String blobName, String contentType) {
+        return true;
+    }
+
+    public JsonParserBackend getParserBackend() {
+        return parserBackend;
+    }
+
+    @Override
+    public RecordCounts count(InputStream content, String blobName) throws IOException, FileProcessingException {
+        if (parserBackend instanceof ArrowParserBackend) {
+            BatchRecordCounter counter = new BatchRecordCounter(dedupKeys);
+            return counter.toCounts(((ArrowParserBackend) parserBackend).parseBatches(content, counter), blobName);
+        }
+        RecordCounter counter = new RecordCounter(dedupKeys);
+        return counter.toCounts(parserBackend.parse(content, counter), blobName);
+    }
+
+    /**
+     * Count records of an in-memory document (avoids the stream indirection for heap content)
+     */
+    public RecordCounts count(byte[] content, String blobName) throws IOException, FileProcessingException {
+        if (parserBackend instanceof ArrowParserBackend) {
+            BatchRecordCounter counter = new BatchRecordCounter(dedupKeys);
+            return counter.toCounts(((ArrowParserBackend) parserBackend).parseBatches(content, counter), blobName);
+        }
+        RecordCounter counter = new RecordCounter(dedupKeys);
+        return counter.toCounts(parserBackend.parse(content, counter), blobName);
+    }
+
+    /**
+     * Counts total and distinct records of both sections. Records are distinct by the fields of
+     * the configured {@link DedupKeys}.
+     */
+    private abstract static class Counter {
+        protected final FileSummaryBuilder dataSummary;
+        protected final FileSummaryBuilder eventsSummary;
+
+        Counter(DedupKeys dedupKeys) {
+            this.dataSummary = new FileSummaryBuilder("DATA", dedupKeys.getData());
+            this.eventsSummary = new FileSummaryBuilder("EVENTS", dedupKeys.getEvents());
+        }
+
+        abstract int totalObjects();
+
+        abstract int distinctObjects();
+
+        abstract int totalEvents();
+
+        abstract int distinctEvents();
+
+        RecordCounts toCounts(ParsedDocument document, String blobName) throws FileProcessingException {
+            int totalObjects = totalObjects();
+            int totalEvents = totalEvents();
+            if (!document.isPresent()) {
+                logger.warn("Invalid file structure for blob: {} - ComplexData is null", blobName);
+                throw new FileProcessingException("Invalid file structure for blob: " + blobName + " - ComplexData is null");
+            }
+
+            if (document.getDictionary() != null) {
+                logger.debug("Blob {}: {} distinct dictionary-encoded string values", blobName, document.getDictionary().size());
+            }
+
+            // An events file takes precedence when both sections are present
+            RecordCounts counts;
+            if (document.hasEventsSection()) {
+                if (totalEvents == 0) {
+                    logger.debug("No events found in events file: {}", blobName);
+                    counts = new RecordCounts(0, 0);
+                } else {
+                    logger.debug("Parsed events file {}: total records={}, distinct records={}",
+                        blobName, totalEvents, distinctEvents());
+                    counts = new RecordCounts(totalEvents, distinctEvents());
+                }
+                eventsSummary.complete(counts);
+                return counts;
+            } else if (document.hasDataSection()) {
+                if (totalObjects == 0) {
+                    logger.debug("No objects found in data file: {}", blobName);
+                    counts = new RecordCounts(0, 0);
+                } else {
+                    logger.debug("Parsed data file {}: total records={}, distinct records={}",
+                        blobName, totalObjects, distinctObjects());
+                    counts = new RecordCounts(totalObjects, distinctObjects());
+                }
+                dataSummary.complete(counts);
+                return counts;
+            } else {
+                logger.warn("Invalid file structure for blob: {} - Neither ExportedData nor ExportedEvents found", blobName);
+                throw new FileProcessingException("Invalid file structure for blob: " + blobName + " - Neither ExportedData nor ExportedEvents found");
+            }
+        }
+    }
+
+    /**
+     * Counts records emitted as model objects
+     */
+    private static class RecordCounter extends Counter implements ArchiveRecordVisitor {
+        private final DedupKey dataKey;
+        private final DedupKey eventsKey;
+        private final Set<Object> distinctObjects = new HashSet<>();
+        private final Set<Object> distinctEvents = new HashSet<>();
+        private int totalObjects;
+        private int totalEvents;
+
+        RecordCounter(DedupKeys dedupKeys) {
+            super(dedupKeys);
+            this.dataKey = dedupKeys.getData();
+            this.eventsKey = dedupKeys.getEvents();
+        }
+
+        @Override
+        public void header(boolean events, Header header) {
+            (events ? eventsSummary : dataSummary).header(header);
+        }
+
+        @Override
+        public void data(DataObject record) {
+            totalObjects++;
+            distinctObjects.add(dataKey.key(record));
+            dataSummary.data(record);
+        }
+
+        @Override
+        public void event(EventObject record) {
+            totalEvents++;
+            distinctEvents.add(eventsKey.key(record));
+            eventsSummary.event(record);
+        }
+
+        @Override
+        int totalObjects() {
+            return totalObjects;
+        }
+
+        @Override
+        int distinctObjects() {
+            return distinctObjects.size();
+        }
+
+        @Override
+        int totalEvents() {
+            return totalEvents;
+        }
+
+        @Override
+        int distinctEvents() {
+            return distinctEvents.size();
+        }
+    }
+
+    /**
+     * Counts records from Arrow batches. Keys are read from the columns into a primitive hash set
+     * by {@link BatchKeyColumns}: dictionary codes identify strings within the document, timestamps
+     * compare as epoch nanoseconds, and null flags keep a null field distinct from any value.
+     */
+    private static class BatchRecordCounter extends Counter implements ArchiveBatchVisitor {
+        private final BatchKeyColumns dataKey;
+        private final BatchKeyColumns eventsKey;
+        private final LongTupleSet distinctObjects;
+        private final LongTupleSet distinctEvents;
+        private int totalObjects;
+        private int totalEvents;
+        private boolean nullObject;
+        private boolean nullEvent;
+
+        BatchRecordCounter(DedupKeys dedupKeys) {
+            super(dedupKeys);
+            this.dataKey = new BatchKeyColumns(dedupKeys.getData(), false);
+            this.eventsKey = new BatchKeyColumns(dedupKeys.getEvents(), true);
+            this.distinctObjects = new LongTupleSet(dataKey.width());
+            this.distinctEvents = new LongTupleSet(eventsKey.width());
+        }
+
+        @Override
+        public void batch(ArchiveRecordBatch batch) {
+            BatchKeyColumns key = batch.isEvents() ? eventsKey : dataKey;
+            LongTupleSet distinct = batch.isEvents() ? distinctEvents : distinctObjects;
+            key.bind(batch);
+            int rows = batch.getRowCount();
+            for (int row = 0; row < rows; row++) {
+                distinct.add(key.tuple(row));
+            }
+            if (batch.isEvents()) {
+                eventsSummary.batch(batch);
+                totalEvents += rows;
+            } else {
+                dataSummary.batch(batch);
+                totalObjects += rows;
+            }
+        }
+
+        @Override
+        public void header(boolean events, Header header) {
+            (events ? eventsSummary : dataSummary).header(header);
+        }
+
+        @Override
+        public void nullRecord(boolean events) {
+            if (events) {
+                totalEvents++;
+                nullEvent = true;
+            } else {
+                totalObjects++;
+                nullObject = true;
+            }
+        }
+
+        @Override
+        int totalObjects() {
+            return totalObjects;
+        }
+
+        @Override
+        int distinctObjects() {
+            return distinctObjects.size() + (nullObject ? 1 : 0);
+        }
+
+        @Override
+        int totalEvents() {
+            return totalEvents;
+        }
+
+        @Override
+        int distinctEvents() {
+            return distinctEvents.size() + (nullEvent ? 1 : 0);
+        }
+    }
+}
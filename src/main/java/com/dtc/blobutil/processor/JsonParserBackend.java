@@ -0,0 +1,76 @@
+package com.dtc.blobutil.processor;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Parser for ComplexData archive documents. Every backend produces the same record stream:
+ * each data or event record is passed to the visitor in document order, with at least the
+ * record key fields set.
+ */
+public interface JsonParserBackend {
+
+    /**
+     * @return Name of the backend as used in archive.parserBackend
+     */
+    String getName();
+
+    /**
+     * Parse a document from a stream
+     * @param content The decoded document
+     * @param visitor Receives every record
+     * @return Which sections the document contained
+     */
+    ParsedDocument parse(InputStream content, ArchiveRecordVisitor visitor) throws IOException;
+
+    /**
+     * Parse a document held in memory
+     * @param content The document bytes
+     * @param visitor Receives every record
+     * @return Which sections the document contained
+     */
+    ParsedDocument parse(byte[] content, ArchiveRecordVisitor visitor) throws IOException;
+
+    /**
+     * Sections found in a parsed document
+     */
+    class ParsedDocument {
+        public static final ParsedDocument NULL_DOCUMENT = new ParsedDocument(false, false, false, null);
+
+        private final boolean present; // false when the document is a JSON null
+        private final boolean dataSection; // ExportedData present and not null
+        private final boolean eventsSection; // ExportedEvents present and not null
+        private final StringDictionary dictionary; // Repeated string values of the records, null if not encoded
+
+        public ParsedDocument(boolean present, boolean dataSection, boolean eventsSection) {
+            this(present, dataSection, eventsSection, null);
+        }
+
+        public ParsedDocument(boolean present, boolean dataSection, boolean eventsSection, StringDictionary dictionary) {
+            this.present = present;
+            this.dataSection = dataSection;
+            this.eventsSection = eventsSection;
+            this.dictionary = dictionary;
+        }
+
+        public boolean isPresent() {
+            return present;
+        }
+
+        public boolean hasDataSection() {
+            return dataSection;
+        }
+
+        public boolean hasEventsSection() {
+            return eventsSection;
+        }
+
+        /**
+         * @return The dictionary holding the canonical string values of the records, or null if the
+         *         backend did not dictionary-encode them
+         */
+        public StringDictionary getDictionary() {
+            return dictionary;
+        }
+    }
+}
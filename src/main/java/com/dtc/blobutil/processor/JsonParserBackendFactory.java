@@ -0,0 +1,60 @@
+package com.dtc.blobutil.processor;
+
+import com.dtc.blobutil.config.ArchiveConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Locale;
+
+/**
+ * Creates the JSON parser backend selected by archive.parserBackend
+ */
+public final class JsonParserBackendFactory {
+    public static final String DATABIND = "databind";
+    public static final String STREAMING = "streaming";
+    public static final String BLACKBIRD = "blackbird";
+    public static final String ARROW = "arrow";
+
+    private JsonParserBackendFactory() {
+    }
+
+    /**
+     * Create the backend selected by the archive configuration
+     * @param archiveConfig Backend selection and dictionary settings
+     * @param objectMapper Configured mapper whose parser features and deserialization settings are shared
+     * @param dedupKeys Fields the backend must read for distinct counts
+     * @throws IllegalArgumentException if the backend cannot read a dedup key field
+     */
+    public static JsonParserBackend create(ArchiveConfig archiveConfig, ObjectMapper objectMapper, DedupKeys dedupKeys) {
+        SharedStringDictionary sharedDictionary = archiveConfig.getStringDictionaryCacheSize() > 0
+            ? new SharedStringDictionary(archiveConfig.getStringDictionaryCacheSize())
+            : null;
+        switch (archiveConfig.getParserBackend()) {
+            case STREAMING:
+                return new StreamingParserBackend(objectMapper.getFactory(), archiveConfig.isStringDictionary(), sharedDictionary, dedupKeys);
+            case ARROW:
+                BatchKeyColumns.check(dedupKeys);
+                return new ArrowParserBackend(objectMapper.getFactory(), sharedDictionary, ArrowParserBackend.DEFAULT_BATCH_SIZE);
+            default:
+                return create(archiveConfig.getParserBackend(), objectMapper);
+        }
+    }
+
+    /**
+     * @param name Backend name (databind, streaming, blackbird or arrow)
+     * @param objectMapper Configured mapper whose parser features and deserialization settings are shared
+     */
+    public static JsonParserBackend create(String name, ObjectMapper objectMapper) {
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case DATABIND:
+                return new DatabindParserBackend(objectMapper);
+            case STREAMING:
+                return new StreamingParserBackend(objectMapper.getFactory());
+            case BLACKBIRD:
+                return new BlackbirdParserBackend(objectMapper);
+            case ARROW:
+                return new ArrowParserBackend(objectMapper.getFactory());
+            default:
+                throw new IllegalArgumentException("Unknown JSON parser backend: " + name + ". Expected one of " + ArchiveConfig.PARSER_BACKENDS);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.dtc.blobutil.processor;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+
+import java.io.IOException;
+
+/**
+ * Scalar readers for the streaming backends. Values are coerced the way databind coerces them
+ * into the model fields, so every backend produces the same record keys.
+ */
+final class JsonScalars {
+
+    private JsonScalars() {
+    }
+
+    /**
+     * Read a repeated string value through the document dictionary (or plainly if there is none)
+     */
+    static String readString(JsonParser parser, StringDictionary dictionary) throws IOException {
+        if (dictionary == null) {
+            return readString(parser);
+        }
+        if (parser.currentToken() == JsonToken.VALUE_STRING) {
+            return dictionary.canonical(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        }
+        return dictionary.canonical(readString(parser));
+    }
+
+    /**
+     * Read a repeated string value as its dictionary code
+     * @return The code, or -1 for null
+     */
+    static int readCode(JsonParser parser, StringDictionary dictionary) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_STRING) {
+            return dictionary.encode(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        }
+        String value = readString(parser);
+        return value == null ? -1 : dictionary.encode(value);
+    }
+
+    static String readString(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            throw MismatchedInputException.from(parser, String.class,
+                "Cannot deserialize value of type `java.lang.String` from " + token);
+        }
+        return parser.getValueAsString();
+    }
+
+    static Long readLong(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        switch (token) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getLongValue();
+            case VALUE_STRING:
+                String text = parser.getText().trim();
+                if (text.isEmpty()) {
+                    return null;
+                }
+                try {
+                    return Long.parseLong(text);
+                } catch (NumberFormatException e) {
+                    throw InvalidFormatException.from(parser, "not a valid `java.lang.Long` value", text, Long.class);
+                }
+            default:
+                throw MismatchedInputException.from(parser, Long.class,
+                    "Cannot deserialize value of type `java.lang.Long` from " + token);
+        }
+    }
+
+    static Integer readInteger(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        switch (token) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getIntValue();
+            case VALUE_STRING:
+                String text = parser.getText().trim();
+                if (text.isEmpty()) {
+                    return null;
+                }
+                try {
+                    return Integer.parseInt(text);
+                } catch (NumberFormatException e) {
+                    throw InvalidFormatException.from(parser, "not a valid `java.lang.Integer` value", text, Integer.class);
+                }
+            default:
+                throw MismatchedInputException.from(parser, Integer.class,
+                    "Cannot deserialize value of type `java.lang.Integer` from " + token);
+        }
+    }
+
+    /**
+     * Read a value of a model field type (Long, Integer, Double or String)
+     */
+    static Object readValue(JsonParser parser, Class<?> type) throws IOException {
+        if (type == Long.class) {
+            return readLong(parser);
+        }
+        if (type == Integer.class) {
+            return readInteger(parser);
+        }
+        if (type == Double.class) {
+            return readDouble(parser);
+        }
+        return readString(parser);
+    }
+
+    static Double readDouble(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        switch (token) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_STRING:
+                String text = parser.getText().trim();
+                if (text.isEmpty()) {
+                    return null;
+                }
+                try {
+                    return Double.parseDouble(text);
+                } catch (NumberFormatException e) {
+                    throw InvalidFormatException.from(parser, "not a valid `java.lang.Double` value", text, Double.class);
+                }
+            default:
+                throw MismatchedInputException.from(parser, Double.class,
+                    "Cannot deserialize value of type `java.lang.Double` from " + token);
+        }
+    }
+}
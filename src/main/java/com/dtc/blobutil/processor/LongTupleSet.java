@@ -0,0 +1,96 @@
+package com.dtc.blobutil.processor;
+
+/**
+ * Open-addressing hash set of fixed-width long tuples, used to count distinct records straight
+ * from Arrow columns without building a key object per row.
+ */
+final class LongTupleSet {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int width;
+    private long[] keys;
+    private boolean[] used = new boolean[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * @param width Number of longs per key
+     */
+    LongTupleSet(int width) {
+        this.width = width;
+        this.keys = new long[INITIAL_CAPACITY * width];
+    }
+
+    /**
+     * @param key The tuple; copied into the set, so the caller may reuse the array
+     * @return true if the key was not in the set yet
+     */
+    boolean add(long[] key) {
+        if ((size + 1) * 2 > used.length) {
+            grow();
+        }
+        int mask = used.length - 1;
+        int slot = hash(key, 0) & mask;
+        while (used[slot]) {
+            if (equalsAt(slot * width, key)) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        System.arraycopy(key, 0, keys, slot * width, width);
+        size++;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private boolean equalsAt(int base, long[] key) {
+        for (int i = 0; i < width; i++) {
+            if (keys[base + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        keys = new long[oldKeys.length * 2];
+        used = new boolean[oldUsed.length * 2];
+        int mask = used.length - 1;
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (!oldUsed[i]) {
+                continue;
+            }
+            int slot = hash(oldKeys, i * width) & mask;
+            while (used[slot]) {
+                slot = (slot + 1) & mask;
+            }
+            used[slot] = true;
+            System.arraycopy(oldKeys, i * width, keys, slot * width, width);
+        }
+    }
+
+    private int hash(long[] array, int base) {
+        long h = 0;
+        for (int i = 0; i < width; i++) {
+            h = mix(h ^ array[base + i]);
+        }
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * MurmurHash3 64-bit finalizer
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53a4ec5L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
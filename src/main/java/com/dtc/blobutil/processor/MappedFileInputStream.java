@@ -0,0 +1,157 @@
+package com.dtc.blobutil.processor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * InputStream over a memory-mapped local file, or a byte range of it.
+ *
+ * The file is mapped in windows of at most {@link #WINDOW_SIZE} bytes so files larger than 2 GB
+ * can be read, and bytes are read straight from the page cache without copying the whole file
+ * onto the heap. Mapped windows are released eagerly on close so the file can be deleted
+ * immediately (Windows refuses to delete a file that is still mapped).
+ */
+class MappedFileInputStream extends InputStream {
+    private static final Logger logger = LoggerFactory.getLogger(MappedFileInputStream.class);
+    private static final long WINDOW_SIZE = 1L << 30; // 1 GB per mapped window
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        // Java 11 has no public API to unmap a buffer, so use sun.misc.Unsafe.invokeCleaner (jdk.unsupported)
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (Exception e) {
+            logger.debug("Eager unmapping not available, mapped files are released by GC: {}", e.getMessage());
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final FileChannel channel;
+    private final long end; // Offset after the last byte read
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    MappedFileInputStream(Path file) throws IOException {
+        this(file, 0, -1);
+    }
+
+    /**
+     * Read a range of the file
+     * @param start Offset of the first byte
+     * @param end Offset after the last byte, or -1 for the end of the file
+     */
+    MappedFileInputStream(Path file, long start, long end) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.end = end < 0 ? channel.size() : Math.min(end, channel.size());
+        this.windowStart = Math.min(start, this.end);
+        this.window = mapWindow(windowStart);
+    }
+
+    private MappedByteBuffer mapWindow(long start) throws IOException {
+        long length = Math.min(WINDOW_SIZE, end - start);
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+    }
+
+    /**
+     * Make sure the current window has remaining bytes, advancing to the next window if needed
+     * @return false at end of file
+     */
+    private boolean ensureWindow() throws IOException {
+        if (window == null) {
+            throw new IOException("Stream is closed");
+        }
+        if (window.hasRemaining()) {
+            return true;
+        }
+        long nextStart = windowStart + window.capacity();
+        if (nextStart >= end) {
+            return false;
+        }
+        unmap(window);
+        windowStart = nextStart;
+        window = mapWindow(nextStart);
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureWindow()) {
+            return -1;
+        }
+        return window.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureWindow()) {
+            return -1;
+        }
+        int count = Math.min(length, window.remaining());
+        window.get(buffer, offset, count);
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && ensureWindow()) {
+            int step = (int) Math.min(n - skipped, window.remaining());
+            window.position(window.position() + step);
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        if (window == null) {
+            return 0;
+        }
+        long remaining = end - (windowStart + window.position());
+        return (int) Math.min(Integer.MAX_VALUE, remaining);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (window != null) {
+            unmap(window);
+            window = null;
+        }
+        channel.close();
+    }
+
+    /**
+     * Release a mapped buffer without waiting for GC (best effort)
+     */
+    static void unmap(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (Exception e) {
+            logger.debug("Could not eagerly unmap buffer, relying on GC: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.dtc.blobutil.processor;
+
+import com.dtc.blobutil.model.AppendBlobState;
+import com.dtc.blobutil.model.DataObject;
+import com.dtc.blobutil.model.EventObject;
+import com.dtc.blobutil.processor.ArchiveFileProcessor.FileProcessingException;
+import com.dtc.blobutil.processor.ArchiveFileProcessor.RecordCounts;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Newline-delimited JSON: one DataObject or EventObject per line, without the ComplexData
+ * envelope. Records are read one at a time, so only the distinct-record set stays in memory,
+ * and the file can be split at any line boundary.
+ *
+ * Whether the file holds data or events is decided by the IRIS_Data_ / IRIS_Events_ name
+ * prefix, or else by the fields of the first record (RecordTime / SeqNo mean events).
+ *
+ * NDJSON is the one layout that stays valid when records are appended, so append blobs can be
+ * counted incrementally with {@link #countAppendBlob}.
+ */
+public class NdjsonFormat implements ArchiveFormat {
+    private static final Logger logger = LoggerFactory.getLogger(NdjsonFormat.class);
+    static final int TAIL_LENGTH = 4096; // Counted bytes re-read to check that an append blob was only appended to
+    private final ObjectMapper objectMapper;
+    private final DedupKeys dedupKeys;
+
+    public NdjsonFormat(ObjectMapper objectMapper) {
+        this(objectMapper, DedupKeys.defaults());
+    }
+
+    public NdjsonFormat(ObjectMapper objectMapper, DedupKeys dedupKeys) {
+        this.objectMapper = objectMapper;
+        this.dedupKeys = dedupKeys;
+    }
+
+    @Override
+    public String getName() {
+        return "ndjson";
+    }
+
+    @Override
+    public boolean matches(String blobName, String contentType) {
+        if (blobName.endsWith(".ndjson") || blobName.endsWith(".jsonl")) {
+            return true;
+        }
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.contains("ndjson") || type.contains("jsonl") || type.contains("json-seq") || type.contains("jsonlines");
+    }
+
+    @Override
+    public RecordCounts count(InputStream content, String blobName) throws IOException, FileProcessingException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(content)) {
+            if (parser.nextToken() == null) {
+                logger.debug("No records found in NDJSON file: {}", blobName);
+                return new RecordCounts(0, 0);
+            }
+            JsonNode first = requireObject(objectMapper.readTree(parser), blobName);
+            parser.clearCurrentToken();
+
+            boolean eventsFile = isEventsFile(blobName, first);
+            Class<?> recordType = eventsFile ? EventObject.class : DataObject.class;
+            DedupKey key = dedupKeys.forRecords(eventsFile);
+            FileSummaryBuilder summary = new FileSummaryBuilder(eventsFile ? "EVENTS" : "DATA", key);
+            Set<Object> distinct = new HashSet<>();
+            Object firstRecord = objectMapper.treeToValue(first, recordType);
+            distinct.add(key.key(firstRecord));
+            summarize(summary, firstRecord);
+            int totalRecords = 1;
+
+            MappingIterator<?> records = objectMapper.readerFor(recordType).readValues(parser);
+            while (records.hasNextValue()) {
+                Object record = records.nextValue();
+                distinct.add(key.key(record));
+                summarize(summary, record);
+                totalRecords++;
+            }
+
+            logger.debug("Parsed NDJSON {} file {}: total records={}, distinct records={}",
+                recordType.getSimpleName(), blobName, totalRecords, distinct.size());
+            RecordCounts counts = new RecordCounts(totalRecords, distinct.size());
+            summary.complete(counts);
+            return counts;
+        }
+    }
+
+    /**
+     * Count an uncompressed NDJSON append blob and compute the state the next count continues from.
+     *
+     * Only complete lines are committed to the state. A last line without a line break is counted
+     * if it parses as a record (the writer may simply not end the file with a line break), but it is
+     * left out of the state and read again by the next count. When the content is the range appended
+     * since an earlier count, records whose key is in that count's state are not counted as distinct
+     * again and not fingerprinted again, so the duplicate index only sees the new records. Distinct
+     * records are told apart by the 64-bit {@link DedupKey#hash} of their key.
+     * @param blob The whole blob, or the appended range with {@link DownloadedBlob#getAppendBase()} set
+     */
+    RecordCounts countAppendBlob(DownloadedBlob blob) throws IOException, FileProcessingException {
+        String blobName = blob.getBlobName();
+        AppendBlobState base = blob.getAppendBase();
+        long start = base != null ? base.getTailLength() : 0; // The tail was counted already
+        long complete = Math.max(start, blob.completeLinesLength());
+
+        AppendCounter counter = base != null ? new AppendCounter("EVENTS".equals(base.getRecordType()), base) : null;
+        try (InputStream lines = blob.openStream(start, complete);
+             JsonParser parser = objectMapper.getFactory().createParser(lines)) {
+            if (counter == null && parser.nextToken() != null) {
+                JsonNode first = requireObject(objectMapper.readTree(parser), blobName);
+                parser.clearCurrentToken();
+                counter = new AppendCounter(isEventsFile(blobName, first), null);
+                counter.add(objectMapper.treeToValue(first, counter.recordType));
+            }
+            if (counter != null) {
+                MappingIterator<?> records = objectMapper.readerFor(counter.recordType).readValues(parser);
+                while (records.hasNextValue()) {
+                    counter.add(records.nextValue());
+                }
+            }
+        }
+
+        AppendBlobState state = null;
+        long[] committedHashes = new long[0];
+        if (counter != null) {
+            committedHashes = counter.commit();
+            int tailLength = (int) Math.min(TAIL_LENGTH, complete);
+            state = new AppendBlobState();
+            state.setRecordType(counter.events ? "EVENTS" : "DATA");
+            state.setCommittedOffset(blob.getContentOffset() + complete);
+            state.setTailLength(tailLength);
+            state.setTailMd5(md5(blob.read(complete - tailLength, tailLength)));
+            state.setTotalRecords(counter.totalRecords);
+            state.setKeyHashes(committedHashes);
+            state.setSummary(FileSummaryBuilder.merge(base != null ? base.getSummary() : null, counter.summary.build()));
+            state.setEtag(blob.getEtag());
+        }
+
+        JsonNode last = complete < blob.getSize() ? readLastLine(blob, complete, blobName) : null;
+        if (last != null) {
+            if (counter == null) {
+                counter = new AppendCounter(isEventsFile(blobName, last), null);
+            }
+            counter.addUncommitted(objectMapper.treeToValue(last, counter.recordType), committedHashes);
+        }
+        if (counter == null) {
+            logger.debug("No records found in NDJSON append blob: {}", blobName);
+            return new RecordCounts(0, 0);
+        }
+
+        RecordCounts counts = new RecordCounts(counter.totalRecords, committedHashes.length + counter.uncommittedDistinct);
+        counter.summary.complete(counts);
+        counts.setSummary(FileSummaryBuilder.merge(base != null ? base.getSummary() : null, counts.getSummary()));
+        counts.setAppendState(state);
+        counts.setAppended(base != null);
+        logger.debug("Counted NDJSON append blob {} from offset {}: total records={}, distinct records={}, committed offset={}",
+            blobName, blob.getContentOffset() + start, counts.getTotalRecords(), counts.getDistinctRecords(),
+            state != null ? state.getCommittedOffset() : 0);
+        return counts;
+    }
+
+    /**
+     * Read the last line of the content when it has no line break
+     * @return the record, or null if the line is blank or not a complete JSON value yet
+     */
+    private JsonNode readLastLine(DownloadedBlob blob, long from, String blobName) throws IOException, FileProcessingException {
+        JsonNode node;
+        try (InputStream line = blob.openStream(from, blob.getSize())) {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            logger.debug("Last line of append blob {} is incomplete, leaving it for the next count: {}", blobName, e.getOriginalMessage());
+            return null;
+        }
+        if (node == null || node.isMissingNode()) {
+            return null;
+        }
+        return requireObject(node, blobName);
+    }
+
+    /**
+     * Base64 MD5 of the tail of the counted content, as stored in {@link AppendBlobState#getTailMd5()}
+     */
+    static String md5(byte[] bytes) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("MD5").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+
+    private static JsonNode requireObject(JsonNode record, String blobName) throws FileProcessingException {
+        if (record == null || !record.isObject()) {
+            throw new FileProcessingException("Invalid NDJSON record in blob: " + blobName + " - expected a JSON object per line");
+        }
+        return record;
+    }
+
+    private static void summarize(FileSummaryBuilder summary, Object record) {
+        summarize(summary, record, true);
+    }
+
+    private static void summarize(FileSummaryBuilder summary, Object record, boolean fingerprint) {
+        if (record instanceof EventObject) {
+            summary.event((EventObject) record, fingerprint);
+        } else if (record instanceof DataObject) {
+            summary.data((DataObject) record, fingerprint);
+        }
+    }
+
+    private static boolean isEventsFile(String blobName, JsonNode firstRecord) {
+        String fileName = blobName.substring(blobName.lastIndexOf('/') + 1);
+        if (fileName.startsWith("IRIS_Events_")) {
+            return true;
+        }
+        if (fileName.startsWith("IRIS_Data_")) {
+            return false;
+        }
+        return firstRecord.has("RecordTime") || firstRecord.has("SeqNo");
+    }
+
+    /**
+     * Records and key hashes of one incremental count of an append blob
+     */
+    private final class AppendCounter {
+        private final boolean events;
+        private final Class<?> recordType;
+        private final DedupKey key;
+        private final FileSummaryBuilder summary;
+        private final long[] baseHashes; // Sorted key hashes of the earlier count
+        private long[] hashes = new long[1024]; // Key hashes not in baseHashes, unsorted with repeats
+        private int size;
+        private int totalRecords; // Including the records of the earlier count
+        private int uncommittedDistinct; // 1 if the record of an unterminated last line is distinct
+
+        /**
+         * @param base State of the earlier count, null when counting from the start of the blob
+         */
+        AppendCounter(boolean events, AppendBlobState base) {
+            this.events = events;
+            this.recordType = events ? EventObject.class : DataObject.class;
+            this.key = dedupKeys.forRecords(events);
+            this.summary = new FileSummaryBuilder(events ? "EVENTS" : "DATA", key);
+            this.baseHashes = base != null ? base.getKeyHashes() : new long[0];
+            this.totalRecords = base != null ? base.getTotalRecords() : 0;
+        }
+
+        void add(Object record) {
+            long hash = key.hash(record);
+            boolean known = Arrays.binarySearch(baseHashes, hash) >= 0;
+            if (!known) {
+                if (size == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, size * 2);
+                }
+                hashes[size++] = hash;
+            }
+            summarize(summary, record, !known);
+            totalRecords++;
+        }
+
+        /**
+         * @return the sorted key hashes of the earlier count and the committed lines
+         */
+        long[] commit() {
+            long[] added = Arrays.copyOf(hashes, size);
+            Arrays.sort(added);
+            long[] merged = new long[baseHashes.length + added.length];
+            int i = 0, j = 0, n = 0;
+            while (i < baseHashes.length || j < added.length) {
+                long next = j == added.length || i < baseHashes.length && baseHashes[i] <= added[j]
+                    ? baseHashes[i++] : added[j++];
+                if (n == 0 || merged[n - 1] != next) {
+                    merged[n++] = next;
+                }
+            }
+            return Arrays.copyOf(merged, n);
+        }
+
+        /**
+         * Count the record of an unterminated last line, which is not part of the state
+         */
+        void addUncommitted(Object record, long[] committedHashes) {
+            boolean known = Arrays.binarySearch(committedHashes, key.hash(record)) >= 0;
+            uncommittedDistinct = known ? 0 : 1;
+            // Not fingerprinted: the next count reads the line again and fingerprints it then
+            summarize(summary, record, false);
+            totalRecords++;
+        }
+    }
+}
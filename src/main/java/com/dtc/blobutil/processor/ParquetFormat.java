@@ -0,0 +1,278 @@
+package com.dtc.blobutil.processor;
+
+import com.dtc.blobutil.model.DataObject;
+import com.dtc.blobutil.model.EventObject;
+import com.dtc.blobutil.processor.ArchiveFileProcessor.FileProcessingException;
+import com.dtc.blobutil.processor.ArchiveFileProcessor.RecordCounts;
+import org.apache.parquet.ParquetReadOptions;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.conf.PlainParquetConfiguration;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.DelegatingSeekableInputStream;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.LocalInputFile;
+import org.apache.parquet.io.MessageColumnIO;
+import org.apache.parquet.io.RecordReader;
+import org.apache.parquet.io.SeekableInputStream;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parquet archive files holding DataObject or EventObject rows as top-level columns.
+ *
+ * The total record count comes from the footer. For the distinct count only the columns of the
+ * configured dedup key and those the {@link FileSummaryBuilder file summary} needs (Fullname, the
+ * record time and the data Value) are projected, so the pages of every other column (Message, ...)
+ * are never read or decompressed. Columns are matched to record fields by name, and every key column
+ * must be in the file. The projection saves decoding only: the file is read from the downloaded copy,
+ * so the whole blob is still transferred.
+ */
+public class ParquetFormat implements ArchiveFormat {
+    private static final Logger logger = LoggerFactory.getLogger(ParquetFormat.class);
+    private static final List<String> DATA_SUMMARY_COLUMNS = Arrays.asList("Fullname", "Time", "Value");
+    private static final List<String> EVENT_SUMMARY_COLUMNS = Arrays.asList("Fullname", "RecordTime");
+
+    private final DedupKeys dedupKeys;
+
+    public ParquetFormat() {
+        this(DedupKeys.defaults());
+    }
+
+    public ParquetFormat(DedupKeys dedupKeys) {
+        this.dedupKeys = dedupKeys;
+    }
+
+    @Override
+    public String getName() {
+        return "parquet";
+    }
+
+    @Override
+    public boolean matches(String blobName, String contentType) {
+        if (blobName.endsWith(".parquet")) {
+            return true;
+        }
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).contains("parquet");
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    @Override
+    public RecordCounts count(DownloadedBlob blob) throws IOException, FileProcessingException {
+        String blobName = blob.getBlobName();
+        InputFile inputFile = blob.isInMemory()
+            ? new ByteArrayInputFile(blob.getContent())
+            : new LocalInputFile(blob.getFile());
+        ParquetReadOptions options = ParquetReadOptions.builder(new PlainParquetConfiguration()).build();
+
+        try (ParquetFileReader reader = ParquetFileReader.open(inputFile, options)) {
+            MessageType fileSchema = reader.getFooter().getFileMetaData().getSchema();
+            long totalRecords = reader.getRecordCount();
+            if (totalRecords > Integer.MAX_VALUE) {
+                throw new FileProcessingException("Parquet file " + blobName + " has too many records to count: " + totalRecords);
+            }
+
+            boolean eventsFile = fileSchema.containsField("RecordTime") || fileSchema.containsField("SeqNo");
+            DedupKey key = dedupKeys.forRecords(eventsFile);
+            List<String> missing = missingColumns(fileSchema, key.getFieldNames());
+            if (!missing.isEmpty()) {
+                // Counting without them would silently dedup on a smaller key
+                throw new FileProcessingException("Invalid file structure for blob: " + blobName +
+                    " - Parquet schema has no primitive column for record key fields " + missing);
+            }
+            MessageType projection = project(fileSchema, key.getFieldNames(), eventsFile ? EVENT_SUMMARY_COLUMNS : DATA_SUMMARY_COLUMNS);
+            reader.setRequestedSchema(projection);
+
+            RecordColumns columns = new RecordColumns(projection, key.getRecordClass());
+            MessageColumnIO columnIO = new ColumnIOFactory().getColumnIO(projection, fileSchema);
+            Set<Object> distinct = new HashSet<>();
+            FileSummaryBuilder summary = new FileSummaryBuilder(eventsFile ? "EVENTS" : "DATA", key);
+            PageReadStore rowGroup;
+            while ((rowGroup = reader.readNextRowGroup()) != null) {
+                RecordReader<Group> records = columnIO.getRecordReader(rowGroup, new GroupRecordConverter(projection));
+                for (long i = 0; i < rowGroup.getRowCount(); i++) {
+                    Group record = records.read();
+                    Object row = columns.toRecord(record);
+                    distinct.add(key.key(row));
+                    if (eventsFile) {
+                        summary.event((EventObject) row);
+                    } else {
+                        summary.data((DataObject) row);
+                    }
+                }
+            }
+
+            logger.debug("Parsed Parquet {} file {}: total records={}, distinct records={}, key columns={}",
+                eventsFile ? "events" : "data", blobName, totalRecords, distinct.size(), projection.getFieldCount());
+            RecordCounts counts = new RecordCounts((int) totalRecords, distinct.size());
+            summary.complete(counts);
+            return counts;
+        }
+    }
+
+    /**
+     * Key columns the file has no primitive column for
+     */
+    private static List<String> missingColumns(MessageType fileSchema, List<String> keyColumns) {
+        List<String> missing = new ArrayList<>();
+        for (String column : keyColumns) {
+            if (!fileSchema.containsField(column) || !fileSchema.getType(column).isPrimitive()) {
+                missing.add(column);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Schema restricted to the key and summary columns present in the file
+     */
+    private static MessageType project(MessageType fileSchema, List<String> keyColumns, List<String> summaryColumns) {
+        Set<String> columns = new LinkedHashSet<>(keyColumns);
+        columns.addAll(summaryColumns);
+        List<Type> fields = new ArrayList<>();
+        for (String column : columns) {
+            if (fileSchema.containsField(column) && fileSchema.getType(column).isPrimitive()) {
+                fields.add(fileSchema.getType(column));
+            }
+        }
+        return new MessageType(fileSchema.getName(), fields);
+    }
+
+    /**
+     * Builds records from the projected columns, each set through the {@link RecordField} of the
+     * same name and converted to the field type. Record fields without a column stay null.
+     */
+    private static class RecordColumns {
+        private final MessageType schema;
+        private final Class<?> recordClass;
+        private final RecordField[] fields; // Per projected column, null if the record has no such field
+
+        RecordColumns(MessageType schema, Class<?> recordClass) {
+            this.schema = schema;
+            this.recordClass = recordClass;
+            Map<String, RecordField> recordFields = RecordField.of(recordClass);
+            this.fields = new RecordField[schema.getFieldCount()];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = recordFields.get(schema.getFieldName(i));
+            }
+        }
+
+        Object toRecord(Group group) {
+            Object record = recordClass == EventObject.class ? new EventObject() : new DataObject();
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i] != null && group.getFieldRepetitionCount(i) > 0) {
+                    fields[i].set(record, value(group, i, fields[i].getType()));
+                }
+            }
+            return record;
+        }
+
+        private Object value(Group record, int field, Class<?> type) {
+            PrimitiveType.PrimitiveTypeName column = schema.getType(field).asPrimitiveType().getPrimitiveTypeName();
+            if (type == Long.class) {
+                switch (column) {
+                    case INT64:
+                        return record.getLong(field, 0);
+                    case INT32:
+                        return (long) record.getInteger(field, 0);
+                    default:
+                        return Long.valueOf(record.getValueToString(field, 0));
+                }
+            }
+            if (type == Integer.class) {
+                switch (column) {
+                    case INT32:
+                        return record.getInteger(field, 0);
+                    case INT64:
+                        return (int) record.getLong(field, 0);
+                    default:
+                        return Integer.valueOf(record.getValueToString(field, 0));
+                }
+            }
+            if (type == Double.class) {
+                switch (column) {
+                    case DOUBLE:
+                        return record.getDouble(field, 0);
+                    case FLOAT:
+                        return (double) record.getFloat(field, 0);
+                    case INT64:
+                        return (double) record.getLong(field, 0);
+                    case INT32:
+                        return (double) record.getInteger(field, 0);
+                    default:
+                        return Double.valueOf(record.getValueToString(field, 0));
+                }
+            }
+            if (column == PrimitiveType.PrimitiveTypeName.BINARY) {
+                return record.getString(field, 0);
+            }
+            return record.getValueToString(field, 0);
+        }
+    }
+
+    /**
+     * Parquet InputFile over a heap buffer, for blobs small enough to be downloaded into memory
+     */
+    private static class ByteArrayInputFile implements InputFile {
+        private final byte[] content;
+
+        ByteArrayInputFile(byte[] content) {
+            this.content = content;
+        }
+
+        @Override
+        public long getLength() {
+            return content.length;
+        }
+
+        @Override
+        public SeekableInputStream newStream() {
+            SeekableByteArrayInputStream in = new SeekableByteArrayInputStream(content);
+            return new DelegatingSeekableInputStream(in) {
+                @Override
+                public long getPos() {
+                    return in.position();
+                }
+
+                @Override
+                public void seek(long newPos) {
+                    in.seek((int) newPos);
+                }
+            };
+        }
+    }
+
+    private static class SeekableByteArrayInputStream extends ByteArrayInputStream {
+        SeekableByteArrayInputStream(byte[] content) {
+            super(content);
+        }
+
+        int position() {
+            return pos;
+        }
+
+        void seek(int position) {
+            pos = Math.min(position, count);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.dtc.blobutil.processor;
+
+import com.dtc.blobutil.model.DataObject;
+import com.dtc.blobutil.model.EventObject;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A field of an archive record model class, named by its JSON property and bound to its getter
+ * and setter as method handles. Fields are discovered once per class from the {@link JsonProperty}
+ * annotations, so a property added to the model can be used in a dedup key without further code.
+ */
+final class RecordField {
+    private static final Map<Class<?>, Map<String, RecordField>> FIELDS = new LinkedHashMap<>();
+
+    static {
+        FIELDS.put(DataObject.class, discover(DataObject.class));
+        FIELDS.put(EventObject.class, discover(EventObject.class));
+    }
+
+    private final String name;
+    private final Class<?> type;
+    private final MethodHandle getter; // (Object)Object
+    private final MethodHandle setter; // (Object,Object)void
+
+    private RecordField(String name, Class<?> type, MethodHandle getter, MethodHandle setter) {
+        this.name = name;
+        this.type = type;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    /**
+     * @return the fields of a record class by JSON property name, in declaration order
+     */
+    static Map<String, RecordField> of(Class<?> recordClass) {
+        Map<String, RecordField> fields = FIELDS.get(recordClass);
+        if (fields == null) {
+            throw new IllegalArgumentException("Not an archive record class: " + recordClass.getName());
+        }
+        return fields;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Class<?> getType() {
+        return type;
+    }
+
+    Object get(Object record) {
+        try {
+            return (Object) getter.invokeExact(record);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to read " + name + " of " + record.getClass().getSimpleName(), e);
+        }
+    }
+
+    void set(Object record, Object value) {
+        try {
+            setter.invokeExact(record, value);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to set " + name + " of " + record.getClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * @return the getter as a (Object)Object method handle
+     */
+    MethodHandle getter() {
+        return getter;
+    }
+
+    private static Map<String, RecordField> discover(Class<?> recordClass) {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        Map<String, RecordField> fields = new LinkedHashMap<>();
+        for (Field field : recordClass.getDeclaredFields()) {
+            JsonProperty property = field.getAnnotation(JsonProperty.class);
+            if (property == null) {
+                continue;
+            }
+            String suffix = Character.toUpperCase(field.getName().charAt(0)) + field.getName().substring(1);
+            try {
+                MethodHandle getter = lookup.findVirtual(recordClass, "get" + suffix, MethodType.methodType(field.getType()));
+                MethodHandle setter = lookup.findVirtual(recordClass, "set" + suffix,
+                    MethodType.methodType(void.class, field.getType()));
+                fields.put(property.value(), new RecordField(property.value(), field.getType(),
+                    getter.asType(MethodType.methodType(Object.class, Object.class)),
+                    setter.asType(MethodType.methodType(void.class, Object.class, Object.class))));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new IllegalStateException("No public getter and setter for " + recordClass.getSimpleName() + "." + field.getName(), e);
+            }
+        }
+        return Collections.unmodifiableMap(fields);
+    }
+}
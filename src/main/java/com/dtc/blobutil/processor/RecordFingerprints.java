@@ -0,0 +1,133 @@
+package com.dtc.blobutil.processor;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 64-bit fingerprints of the dedup keys of one file's records, grouped by the UTC day of the
+ * record time. Fingerprints hash the fields of the configured {@link DedupKey}, with the record
+ * time taken as parsed epoch nanoseconds, so every parser backend produces the same values and
+ * the same instant written with a different offset matches. Records without a parseable time
+ * have no day and are not fingerprinted.
+ */
+final class RecordFingerprints {
+    private static final long NANOS_PER_DAY = 86_400_000_000_000L;
+    static final long NULL = 0x9E3779B97F4A7C15L; // Stand-in for a null key field
+    static final long SEED = 0;
+
+    private final String recordType;
+    private final Map<Long, Day> days = new HashMap<>();
+    private Day lastDay; // Consecutive records are almost always on the same day
+
+    RecordFingerprints(String recordType) {
+        this.recordType = recordType;
+    }
+
+    String getRecordType() {
+        return recordType;
+    }
+
+    /**
+     * Add the fingerprint of one record
+     * @param timeNanos Record time as epoch nanoseconds, or IsoTimestamps.INVALID (ignored)
+     */
+    void add(long timeNanos, long fingerprint) {
+        if (timeNanos == IsoTimestamps.INVALID) {
+            return;
+        }
+        long epochDay = Math.floorDiv(timeNanos, NANOS_PER_DAY);
+        Day day = lastDay;
+        if (day == null || day.epochDay != epochDay) {
+            day = days.computeIfAbsent(epochDay, Day::new);
+            lastDay = day;
+        }
+        day.add(fingerprint);
+    }
+
+    Collection<Day> getDays() {
+        return days.values();
+    }
+
+    /**
+     * 64-bit hash of one key field value: integral values as themselves, doubles by their bits,
+     * strings by {@link #hash(String)}. A {@link DedupKey} folds the field hashes of a record with
+     * {@code h = mix(h ^ fieldHash)}, starting from {@link #SEED}.
+     */
+    static long hashValue(Object value) {
+        if (value == null) {
+            return NULL;
+        }
+        if (value instanceof Long || value instanceof Integer) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Double) {
+            return Double.doubleToLongBits((Double) value);
+        }
+        return hash(value.toString());
+    }
+
+    /**
+     * 64-bit hash of a string (FNV-1a over the UTF-16 code units, finalized)
+     */
+    static long hash(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    /**
+     * SplitMix64 finalizer
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Fingerprints of the records of one day
+     */
+    static final class Day {
+        private final long epochDay;
+        private long[] fingerprints = new long[256];
+        private int size;
+
+        private Day(long epochDay) {
+            this.epochDay = epochDay;
+        }
+
+        private void add(long fingerprint) {
+            if (size == fingerprints.length) {
+                fingerprints = Arrays.copyOf(fingerprints, size * 2);
+            }
+            fingerprints[size++] = fingerprint;
+        }
+
+        long getEpochDay() {
+            return epochDay;
+        }
+
+        /**
+         * @return the distinct fingerprints, sorted
+         */
+        long[] distinct() {
+            long[] sorted = Arrays.copyOf(fingerprints, size);
+            Arrays.sort(sorted);
+            int unique = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[unique++] = sorted[i];
+                }
+            }
+            return Arrays.copyOf(sorted, unique);
+        }
+    }
+}
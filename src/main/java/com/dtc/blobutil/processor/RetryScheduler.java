@@ -0,0 +1,89 @@
+package com.dtc.blobutil.processor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delayed-retry queue for failed work items.
+ *
+ * Instead of sleeping on the worker thread, a failed item is handed to the scheduler together
+ * with a re-enqueue action. The action runs on a single timer thread once the jittered
+ * exponential backoff has elapsed and should only put the item back on a work queue; the
+ * workers keep processing other items in the meantime. The returned due time is meant to be
+ * persisted (next_attempt_at) so the backoff also survives a restart.
+ */
+public class RetryScheduler implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(RetryScheduler.class);
+    public static final long DEFAULT_BASE_DELAY_MILLIS = 1000; // 1s, 2s, 4s, ...
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 60000;
+
+    private final ScheduledExecutorService timer;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public RetryScheduler(String name) {
+        this(name, DEFAULT_BASE_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    public RetryScheduler(String name, long baseDelayMillis, long maxDelayMillis) {
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + "-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Schedule a retry
+     * @param attempt The retry attempt number (1 for the first retry)
+     * @param reenqueue Action that puts the item back on its work queue
+     * @return The time at which the retry becomes due
+     */
+    public OffsetDateTime schedule(int attempt, Runnable reenqueue) {
+        long delayMillis = delayMillis(attempt);
+        pending.incrementAndGet();
+        timer.schedule(() -> {
+            pending.decrementAndGet();
+            try {
+                reenqueue.run();
+            } catch (Exception e) {
+                logger.error("Failed to re-enqueue retry attempt {}", attempt, e);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+        return OffsetDateTime.now().plus(delayMillis, ChronoUnit.MILLIS);
+    }
+
+    /**
+     * Backoff for a retry attempt: exponential in the attempt number, capped, with "equal jitter"
+     * (half fixed, half random) so items that failed together do not retry in lockstep
+     */
+    public long delayMillis(int attempt) {
+        int shift = Math.min(Math.max(attempt - 1, 0), 30);
+        long delay = Math.min(maxDelayMillis, baseDelayMillis << shift);
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    /**
+     * @return Number of retries waiting for their backoff to elapse
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,206 @@
+package com.dtc.blobutil.processor;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scalable Bloom filter of 64-bit fingerprints, persisted as memory-mapped slice files.
+ *
+ * The filter starts with one slice sized for {@code initialCapacity} fingerprints. When a slice is
+ * full a new one is added with twice the capacity and half the false positive rate, so the rate
+ * of the whole filter stays below the configured bound however many fingerprints it holds
+ * (Almeida et al., "Scalable Bloom Filters"). Lookups check every slice; inserts go to the newest.
+ *
+ * Slice {@code i} of filter {@code name} is the file {@code name.i.bloom}: a header followed by the
+ * bit array. The bits and the insert count are updated in the mapping, so the operating system
+ * writes them back without an explicit save; {@link #close()} forces them to disk and unmaps them,
+ * so the files can be deleted right away (Windows refuses to delete a file that is still mapped).
+ * Not thread-safe: callers synchronize on the filter.
+ */
+final class ScalableBloomFilter implements AutoCloseable {
+    private static final int MAGIC = 0x53424631; // "SBF1"
+    private static final int HEADER_BYTES = 64;
+    private static final int COUNT_OFFSET = 32;
+    private static final double TIGHTENING_RATIO = 0.5;
+    private static final long MAX_SLICE_BITS = (Integer.MAX_VALUE - HEADER_BYTES) * 8L; // One mapping per slice
+
+    private final Path directory;
+    private final String name;
+    private final long initialCapacity;
+    private final double falsePositiveRate;
+    private final List<Slice> slices = new ArrayList<>();
+    private boolean closed;
+
+    private ScalableBloomFilter(Path directory, String name, long initialCapacity, double falsePositiveRate) {
+        this.directory = directory;
+        this.name = name;
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * Open a filter, loading the slices already on disk
+     * @param directory Directory holding the slice files
+     * @param name File name prefix of the filter
+     * @param initialCapacity Fingerprints held by the first slice
+     * @param falsePositiveRate Upper bound of the false positive rate of the whole filter
+     */
+    static ScalableBloomFilter open(Path directory, String name, long initialCapacity, double falsePositiveRate)
+            throws IOException {
+        ScalableBloomFilter filter = new ScalableBloomFilter(directory, name, initialCapacity, falsePositiveRate);
+        for (int index = 0; Files.exists(filter.slicePath(index)); index++) {
+            filter.slices.add(Slice.open(filter.slicePath(index)));
+        }
+        return filter;
+    }
+
+    boolean mightContain(long fingerprint) {
+        // Newest slice first: it is the largest and holds the most recent records
+        for (int i = slices.size() - 1; i >= 0; i--) {
+            if (slices.get(i).mightContain(fingerprint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Insert a fingerprint. Callers check {@link #mightContain} first, so the slice counts only
+     * include new fingerprints.
+     */
+    void add(long fingerprint) throws IOException {
+        if (closed) {
+            throw new IOException("Bloom filter " + name + " is closed");
+        }
+        Slice current = slices.isEmpty() ? null : slices.get(slices.size() - 1);
+        if (current == null || current.isFull()) {
+            current = addSlice();
+        }
+        current.add(fingerprint);
+    }
+
+    private Slice addSlice() throws IOException {
+        int index = slices.size();
+        long capacity = initialCapacity << Math.min(index, 30);
+        double rate = falsePositiveRate * (1 - TIGHTENING_RATIO) * Math.pow(TIGHTENING_RATIO, index);
+        Slice slice = Slice.create(slicePath(index), capacity, rate);
+        slices.add(slice);
+        return slice;
+    }
+
+    private Path slicePath(int index) {
+        return directory.resolve(name + "." + index + ".bloom");
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Slice slice : slices) {
+            slice.close();
+        }
+        slices.clear();
+    }
+
+    /**
+     * One fixed-size Bloom filter backed by a mapped file.
+     * Header: magic (int), hash count (int), capacity (long), bit count (long), reserved, insert count (long at 32).
+     */
+    private static final class Slice {
+        private final MappedByteBuffer buffer;
+        private final long capacity;
+        private final long bits;
+        private final int hashes;
+        private long count;
+
+        private Slice(MappedByteBuffer buffer, long capacity, long bits, int hashes, long count) {
+            this.buffer = buffer;
+            this.capacity = capacity;
+            this.bits = bits;
+            this.hashes = hashes;
+            this.count = count;
+        }
+
+        static Slice create(Path path, long capacity, double falsePositiveRate) throws IOException {
+            double ln2 = Math.log(2);
+            long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+            bits = Math.min((bits + 63) & ~63L, MAX_SLICE_BITS & ~63L);
+            int hashes = Math.max(1, (int) Math.round((double) bits / capacity * ln2));
+
+            MappedByteBuffer buffer = map(path, HEADER_BYTES + bits / 8);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, hashes);
+            buffer.putLong(8, capacity);
+            buffer.putLong(16, bits);
+            buffer.putLong(COUNT_OFFSET, 0);
+            return new Slice(buffer, capacity, bits, hashes, 0);
+        }
+
+        static Slice open(Path path) throws IOException {
+            MappedByteBuffer buffer = map(path, Files.size(path));
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a Bloom filter slice: " + path);
+            }
+            long bits = buffer.getLong(16);
+            if (bits <= 0 || HEADER_BYTES + bits / 8 > buffer.capacity()) {
+                throw new IOException("Truncated Bloom filter slice: " + path);
+            }
+            return new Slice(buffer, buffer.getLong(8), bits, buffer.getInt(4), buffer.getLong(COUNT_OFFSET));
+        }
+
+        private static MappedByteBuffer map(Path path, long size) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                // The mapping stays valid after the channel is closed
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        }
+
+        boolean isFull() {
+            return count >= capacity;
+        }
+
+        /**
+         * Double hashing: bit i is h1 + i * h2, with h2 odd so the probes cover the whole array
+         */
+        boolean mightContain(long fingerprint) {
+            long h1 = fingerprint;
+            long h2 = RecordFingerprints.mix(fingerprint) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bits;
+                if ((buffer.getLong(wordOffset(bit)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void add(long fingerprint) {
+            long h1 = fingerprint;
+            long h2 = RecordFingerprints.mix(fingerprint) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bits;
+                int offset = wordOffset(bit);
+                buffer.putLong(offset, buffer.getLong(offset) | (1L << bit));
+            }
+            buffer.putLong(COUNT_OFFSET, ++count);
+        }
+
+        private static int wordOffset(long bit) {
+            return HEADER_BYTES + (int) (bit >>> 6) * 8;
+        }
+
+        /**
+         * Write the bits to disk and release the mapping. The slice must not be used afterwards.
+         */
+        void close() {
+            buffer.force();
+            MappedFileInputStream.unmap(buffer);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.dtc.blobutil.processor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cross-file cache of canonical string instances, shared by all parse threads.
+ *
+ * Per-file dictionaries consult it only for values they have not seen yet, so a tag name that
+ * appears in every file is allocated once per process instead of once per file. The least
+ * recently used values are evicted once the cache holds maxEntries values.
+ */
+public class SharedStringDictionary {
+    private final Map<String, String> values;
+
+    public SharedStringDictionary(int maxEntries) {
+        this.values = new LinkedHashMap<String, String>(Math.min(maxEntries, 1 << 16), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Canonical instance of a value, registering the given instance if the value is new
+     */
+    public synchronized String canonical(String value) {
+        String existing = values.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    public synchronized int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,150 @@
+package com.dtc.blobutil.processor;
+
+import com.dtc.blobutil.model.DataObject;
+import com.dtc.blobutil.model.EventObject;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hand-written Jackson streaming reader. Only the fields used for deduplication, the data Value
+ * and the low-cardinality descriptive fields are read; every other field is skipped without
+ * being decoded. Scalars are coerced the way databind coerces them, so the record keys match
+ * the databind backend.
+ *
+ * When dictionary encoding is enabled, Fullname, Units, Quality, State, Severity, Category and
+ * AreaOfInterest are looked up in a per-document {@link StringDictionary} straight from the
+ * parser's character buffer, so a repeated value is never allocated twice.
+ *
+ * Fields of a configured dedup key that are not among those are read as well, through their
+ * {@link RecordField} setter; fields in no key are still skipped.
+ */
+public class StreamingParserBackend extends AbstractStreamingParserBackend {
+    private static final List<String> DATA_FIELDS = Arrays.asList("Id", "Fullname", "Time", "Value", "Units", "Quality", "State");
+    private static final List<String> EVENT_FIELDS = Arrays.asList("Id", "Fullname", "RecordTime", "SeqNo", "Severity", "Category", "AreaOfInterest");
+
+    private final boolean dictionaryEncoding;
+    private final SharedStringDictionary sharedDictionary; // Null when values are only shared within a file
+    private final Map<String, RecordField> extraDataFields; // Dedup key fields not read by readData's switch
+    private final Map<String, RecordField> extraEventFields;
+
+    public StreamingParserBackend(JsonFactory jsonFactory) {
+        this(jsonFactory, true, null, DedupKeys.defaults());
+    }
+
+    public StreamingParserBackend(JsonFactory jsonFactory, boolean dictionaryEncoding,
+                                  SharedStringDictionary sharedDictionary, DedupKeys dedupKeys) {
+        super(jsonFactory);
+        this.dictionaryEncoding = dictionaryEncoding;
+        this.sharedDictionary = sharedDictionary;
+        this.extraDataFields = extraFields(dedupKeys.getData(), DATA_FIELDS);
+        this.extraEventFields = extraFields(dedupKeys.getEvents(), EVENT_FIELDS);
+    }
+
+    private static Map<String, RecordField> extraFields(DedupKey key, List<String> readFields) {
+        Map<String, RecordField> extra = new HashMap<>();
+        for (RecordField field : key.getFields()) {
+            if (!readFields.contains(field.getName())) {
+                extra.put(field.getName(), field);
+            }
+        }
+        return extra;
+    }
+
+    @Override
+    public String getName() {
+        return "streaming";
+    }
+
+    @Override
+    protected StringDictionary newDictionary() {
+        return dictionaryEncoding ? new StringDictionary(sharedDictionary) : null;
+    }
+
+    @Override
+    protected DataObject readData(JsonParser parser, StringDictionary dictionary) throws IOException {
+        DataObject record = new DataObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "Id":
+                    record.setId(JsonScalars.readLong(parser));
+                    break;
+                case "Fullname":
+                    record.setFullname(JsonScalars.readString(parser, dictionary));
+                    break;
+                case "Time":
+                    record.setTime(JsonScalars.readString(parser));
+                    break;
+                case "Value":
+                    record.setValue(JsonScalars.readDouble(parser));
+                    break;
+                case "Units":
+                    record.setUnits(JsonScalars.readString(parser, dictionary));
+                    break;
+                case "Quality":
+                    record.setQuality(JsonScalars.readString(parser, dictionary));
+                    break;
+                case "State":
+                    record.setState(JsonScalars.readString(parser, dictionary));
+                    break;
+                default:
+                    readExtra(parser, record, extraDataFields.get(field));
+            }
+        }
+        return record;
+    }
+
+    @Override
+    protected EventObject readEvent(JsonParser parser, StringDictionary dictionary) throws IOException {
+        EventObject record = new EventObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "Id":
+                    record.setId(JsonScalars.readLong(parser));
+                    break;
+                case "Fullname":
+                    record.setFullname(JsonScalars.readString(parser, dictionary));
+                    break;
+                case "RecordTime":
+                    record.setRecordTime(JsonScalars.readString(parser));
+                    break;
+                case "SeqNo":
+                    record.setSeqNo(JsonScalars.readLong(parser));
+                    break;
+                case "Severity":
+                    record.setSeverity(JsonScalars.readString(parser, dictionary));
+                    break;
+                case "Category":
+                    record.setCategory(JsonScalars.readString(parser, dictionary));
+                    break;
+                case "AreaOfInterest":
+                    record.setAreaOfInterest(JsonScalars.readString(parser, dictionary));
+                    break;
+                default:
+                    readExtra(parser, record, extraEventFields.get(field));
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Read a dedup key field of the record, or skip the value if the field is in no key
+     */
+    private static void readExtra(JsonParser parser, Object record, RecordField field) throws IOException {
+        if (field == null) {
+            parser.skipChildren();
+        } else {
+            field.set(record, JsonScalars.readValue(parser, field.getType()));
+        }
+    }
+}
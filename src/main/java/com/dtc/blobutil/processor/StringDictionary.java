@@ -0,0 +1,167 @@
+package com.dtc.blobutil.processor;
+
+import java.util.Arrays;
+
+/**
+ * Per-file dictionary of repeated string values (Fullname, Units, Quality, ...).
+ *
+ * Each distinct value gets a small integer code in first-seen order. Values can be looked up
+ * directly from the parser's character buffer, so a value that is already in the dictionary
+ * costs no String allocation; every record holding it shares the same instance. When a
+ * {@link SharedStringDictionary} is attached, new values are canonicalized through it so the
+ * instances are also shared across files.
+ *
+ * Not thread-safe: one dictionary belongs to one parse.
+ */
+public class StringDictionary {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final SharedStringDictionary shared; // Null when there is no cross-file dictionary
+    private String[] values = new String[INITIAL_CAPACITY]; // code -> value
+    private int[] hashes = new int[INITIAL_CAPACITY]; // code -> String.hashCode of the value
+    private int[] slots = new int[INITIAL_CAPACITY * 2]; // open addressing table of code + 1, 0 = empty
+    private int size;
+
+    public StringDictionary() {
+        this(null);
+    }
+
+    public StringDictionary(SharedStringDictionary shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * Code of the value held in a character buffer, adding it if it is new
+     */
+    public int encode(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + chars[offset + i];
+        }
+        int mask = slots.length - 1;
+        int slot = spread(hash) & mask;
+        while (true) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return add(slot, hash, new String(chars, offset, length));
+            }
+            int code = entry - 1;
+            if (hashes[code] == hash && contentEquals(values[code], chars, offset, length)) {
+                return code;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Code of a value, adding it if it is new
+     */
+    public int encode(String value) {
+        int hash = value.hashCode();
+        int mask = slots.length - 1;
+        int slot = spread(hash) & mask;
+        while (true) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return add(slot, hash, value);
+            }
+            int code = entry - 1;
+            if (hashes[code] == hash && values[code].equals(value)) {
+                return code;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Canonical instance of the value held in a character buffer
+     */
+    public String canonical(char[] chars, int offset, int length) {
+        int code = encode(chars, offset, length); // May grow the values array
+        return values[code];
+    }
+
+    /**
+     * Canonical instance of a value (null stays null)
+     */
+    public String canonical(String value) {
+        if (value == null) {
+            return null;
+        }
+        int code = encode(value); // May grow the values array
+        return values[code];
+    }
+
+    /**
+     * Value of a code
+     */
+    public String decode(int code) {
+        if (code < 0 || code >= size) {
+            throw new IndexOutOfBoundsException("Dictionary code " + code + " out of range [0, " + size + ")");
+        }
+        return values[code];
+    }
+
+    /**
+     * @return Number of distinct values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The values indexed by code
+     */
+    public String[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    private int add(int slot, int hash, String value) {
+        if (shared != null) {
+            value = shared.canonical(value);
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int code = size++;
+        values[code] = value;
+        hashes[code] = hash;
+        slots[slot] = code + 1;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return code;
+    }
+
+    /**
+     * Double the slot table, keeping the load factor at or below one half
+     */
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int code = 0; code < size; code++) {
+            int slot = spread(hashes[code]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = code + 1;
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean contentEquals(String value, char[] chars, int offset, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,197 @@
+package com.dtc.blobutil.processor;
+
+import com.dtc.blobutil.model.ValueStatistics;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects the Value of ExportedData records while a file is counted and reduces them to
+ * {@link ValueStatistics} per Fullname and for the whole file.
+ *
+ * Recording a value costs two array stores: the value goes into a double[] column and its
+ * Fullname code into a parallel int[] column. When the statistics are built, a counting sort over
+ * the codes regroups the values into one contiguous run per Fullname, and each run is reduced by a
+ * branch-free loop over four independent accumulator lanes, which the JIT keeps in registers and
+ * pipelines. Standard deviations use a second pass over the run, so they stay accurate for series
+ * with a large offset.
+ */
+final class ValueStatisticsBuilder {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private double[] values = new double[INITIAL_CAPACITY];
+    private int[] codes = new int[INITIAL_CAPACITY]; // Fullname code per value, -1 for records without a Fullname
+    private int size;
+
+    /**
+     * Record the value of one record
+     * @param fullnameCode Fullname code, or -1 if the record has no Fullname (counted for the file only)
+     */
+    void add(int fullnameCode, double value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            codes = Arrays.copyOf(codes, size * 2);
+        }
+        values[size] = value;
+        codes[size] = fullnameCode;
+        size++;
+    }
+
+    /**
+     * Statistics over all recorded values of the file
+     */
+    ValueStatistics fileStatistics() {
+        return reduce(values, 0, size);
+    }
+
+    /**
+     * Statistics per Fullname, in code order
+     * @param names The dictionary the Fullname codes refer to, null if no record had a Fullname
+     */
+    Map<String, ValueStatistics> fullnameStatistics(StringDictionary names) {
+        Map<String, ValueStatistics> statistics = new LinkedHashMap<>();
+        if (names == null) {
+            return statistics;
+        }
+
+        // Counting sort: offsets[code]..offsets[code + 1] is the run of one Fullname
+        int seriesCount = names.size();
+        int[] offsets = new int[seriesCount + 1];
+        for (int i = 0; i < size; i++) {
+            if (codes[i] >= 0) {
+                offsets[codes[i] + 1]++;
+            }
+        }
+        for (int code = 0; code < seriesCount; code++) {
+            offsets[code + 1] += offsets[code];
+        }
+        double[] grouped = new double[offsets[seriesCount]];
+        int[] next = Arrays.copyOf(offsets, seriesCount);
+        for (int i = 0; i < size; i++) {
+            int code = codes[i];
+            if (code >= 0) {
+                grouped[next[code]++] = values[i];
+            }
+        }
+
+        for (int code = 0; code < seriesCount; code++) {
+            if (offsets[code + 1] > offsets[code]) {
+                statistics.put(names.decode(code), reduce(grouped, offsets[code], offsets[code + 1]));
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Reduce one run of values. NaN values are counted and masked out of the other statistics
+     * with conditional moves rather than branches (a NaN never compares less or greater, so the
+     * min/max selects skip it without a mask).
+     */
+    static ValueStatistics reduce(double[] values, int from, int to) {
+        double min0 = Double.POSITIVE_INFINITY, min1 = min0, min2 = min0, min3 = min0;
+        double max0 = Double.NEGATIVE_INFINITY, max1 = max0, max2 = max0, max3 = max0;
+        double sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+        long nan0 = 0, nan1 = 0, nan2 = 0, nan3 = 0;
+
+        int i = from;
+        for (; i + 4 <= to; i += 4) {
+            double x0 = values[i];
+            double x1 = values[i + 1];
+            double x2 = values[i + 2];
+            double x3 = values[i + 3];
+            boolean n0 = x0 != x0;
+            boolean n1 = x1 != x1;
+            boolean n2 = x2 != x2;
+            boolean n3 = x3 != x3;
+            nan0 += n0 ? 1 : 0;
+            nan1 += n1 ? 1 : 0;
+            nan2 += n2 ? 1 : 0;
+            nan3 += n3 ? 1 : 0;
+            min0 = x0 < min0 ? x0 : min0;
+            min1 = x1 < min1 ? x1 : min1;
+            min2 = x2 < min2 ? x2 : min2;
+            min3 = x3 < min3 ? x3 : min3;
+            max0 = x0 > max0 ? x0 : max0;
+            max1 = x1 > max1 ? x1 : max1;
+            max2 = x2 > max2 ? x2 : max2;
+            max3 = x3 > max3 ? x3 : max3;
+            sum0 += n0 ? 0 : x0;
+            sum1 += n1 ? 0 : x1;
+            sum2 += n2 ? 0 : x2;
+            sum3 += n3 ? 0 : x3;
+        }
+        for (; i < to; i++) {
+            double x = values[i];
+            boolean n = x != x;
+            nan0 += n ? 1 : 0;
+            min0 = x < min0 ? x : min0;
+            max0 = x > max0 ? x : max0;
+            sum0 += n ? 0 : x;
+        }
+
+        long nanCount = nan0 + nan1 + nan2 + nan3;
+        long count = (to - from) - nanCount;
+        if (count == 0) {
+            return new ValueStatistics(0, nanCount, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+        }
+        double min = Math.min(Math.min(min0, min1), Math.min(min2, min3));
+        double max = Math.max(Math.max(max0, max1), Math.max(max2, max3));
+        double mean = ((sum0 + sum1) + (sum2 + sum3)) / count;
+        if (Double.isInfinite(mean) || Double.isNaN(mean)) {
+            // Infinite values (or both signs of them): there is no meaningful spread
+            return new ValueStatistics(count, nanCount, min, max, mean, Double.NaN);
+        }
+
+        // Second pass: sum of squared deviations from the mean
+        double m0 = 0, m1 = 0, m2 = 0, m3 = 0;
+        i = from;
+        for (; i + 4 <= to; i += 4) {
+            double d0 = values[i] - mean;
+            double d1 = values[i + 1] - mean;
+            double d2 = values[i + 2] - mean;
+            double d3 = values[i + 3] - mean;
+            m0 += d0 != d0 ? 0 : d0 * d0;
+            m1 += d1 != d1 ? 0 : d1 * d1;
+            m2 += d2 != d2 ? 0 : d2 * d2;
+            m3 += d3 != d3 ? 0 : d3 * d3;
+        }
+        for (; i < to; i++) {
+            double d = values[i] - mean;
+            m0 += d != d ? 0 : d * d;
+        }
+        double stddev = Math.sqrt(((m0 + m1) + (m2 + m3)) / count);
+
+        return new ValueStatistics(count, nanCount, min, max, mean, stddev);
+    }
+
+    /**
+     * Combine the statistics of two disjoint sets of values, as when records are appended to a file
+     * that was already counted. The spread is combined with the pairwise update of Chan et al.
+     * @return the combined statistics, or the non-null argument if one of them is null
+     */
+    static ValueStatistics merge(ValueStatistics a, ValueStatistics b) {
+        if (a == null || b == null) {
+            return a != null ? a : b;
+        }
+        long nanCount = a.getNanCount() + b.getNanCount();
+        if (a.getCount() == 0 || b.getCount() == 0) {
+            ValueStatistics values = a.getCount() == 0 ? b : a;
+            return new ValueStatistics(values.getCount(), nanCount, values.getMin(), values.getMax(),
+                values.getMean(), values.getStddev());
+        }
+        long count = a.getCount() + b.getCount();
+        double min = Math.min(a.getMin(), b.getMin());
+        double max = Math.max(a.getMax(), b.getMax());
+        if (!Double.isFinite(a.getMean()) || !Double.isFinite(b.getMean())) {
+            double mean = (a.getMean() * a.getCount() + b.getMean() * b.getCount()) / count;
+            return new ValueStatistics(count, nanCount, min, max, mean, Double.NaN);
+        }
+        double delta = b.getMean() - a.getMean();
+        double mean = a.getMean() + delta * b.getCount() / count;
+        double m2 = a.getStddev() * a.getStddev() * a.getCount()
+            + b.getStddev() * b.getStddev() * b.getCount()
+            + delta * delta * ((double) a.getCount() * b.getCount() / count);
+        return new ValueStatistics(count, nanCount, min, max, mean, Math.sqrt(m2 / count));
+    }
+}